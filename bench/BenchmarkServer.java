@@ -0,0 +1,70 @@
+import benchmarks.Fixtures;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+// A SQLiteServer inside the benchmark's own JVM, on a free local port and a fresh database in a
+// temporary directory, seeded with FormDataGenerator. SQLiteServer and SQLiteClient read their port
+// and database from system properties when first loaded, so start() must come before anything
+// touches either class, and only one server can run per JVM (JMH forks one per trial).
+final class BenchmarkServer implements Fixtures.Server {
+    private static Path directory;
+    private static Thread serving;
+
+    // Starts the server with all three forms for students 0..students-1 already in the database
+    @Override
+    public void start(int students) throws IOException, SQLException {
+        startServer(students);
+    }
+
+    @Override
+    public void stop() throws IOException, InterruptedException {
+        stopServer();
+    }
+
+    static int port() {
+        return Integer.getInteger("server.port");
+    }
+
+    private static synchronized void startServer(int students) throws IOException, SQLException {
+        if (serving != null) {
+            throw new IllegalStateException("A benchmark server is already running in this JVM");
+        }
+        directory = Files.createTempDirectory("form-bench");
+        String url = "jdbc:sqlite:" + directory.resolve("bench.db");
+        int port;
+        try (ServerSocket probe = new ServerSocket(0)) {
+            port = probe.getLocalPort();
+        }
+        System.setProperty("server.database", url);
+        System.setProperty("server.port", String.valueOf(port));
+        System.setProperty("client.port", String.valueOf(port));
+
+        FormDataGenerator.createDatabase(url, students, 1);
+        if (!SQLiteServer.start()) {
+            throw new IllegalStateException("The server did not start; see the log above");
+        }
+        serving = new Thread(SQLiteServer::serve, "benchmark-server");
+        serving.setDaemon(true);
+        serving.start();
+    }
+
+    private static synchronized void stopServer() throws IOException, InterruptedException {
+        if (serving == null) {
+            return;
+        }
+        SQLiteServer.stop();
+        serving.join();
+        serving = null;
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+}
@@ -0,0 +1,29 @@
+import benchmarks.Fixtures;
+
+import java.io.File;
+import java.io.IOException;
+
+// Export All Forms to Excel from a running BenchmarkServer into a temporary file. Covers the whole
+// path: three cursors streaming the tables from the server in parallel, decoding, and the streaming
+// workbook written to disk.
+final class ExportFixture implements Fixtures.Export {
+    private final File file;
+
+    ExportFixture() throws IOException {
+        file = File.createTempFile("form-export", ".xlsx");
+    }
+
+    @Override
+    public void close() {
+        file.delete();
+    }
+
+    @Override
+    public long exportAllForms() throws IOException, InterruptedException {
+        long total = FormExporter.countRows();
+        if (!FormExporter.export(file, total, (written, of) -> { }, () -> false)) {
+            throw new IllegalStateException("Export was cancelled");
+        }
+        return file.length();
+    }
+}
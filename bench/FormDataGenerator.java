@@ -0,0 +1,180 @@
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Random;
+
+// Synthetic forms for the benchmarks and the load generator. Values look like what the forms accept:
+// numeric student IDs, dd.MM.yy dates, the combo box labels and a few sentences in every free-text
+// answer, so they go through StorageCodec and the triggers the same way real submissions do. The same
+// seed always gives the same data.
+//
+// Run on its own to fill a database file: FormDataGenerator <database file> <students> [seed]
+final class FormDataGenerator {
+    static final String[] ACCEPTANCE_COLUMNS = {"name", "studentID", "faculty", "dates", "institutionName",
+            "institutionAddress", "institutionPhone", "responsibleName"};
+    static final String[] EVALUATION_COLUMNS = {"name", "studentID", "evaluationDate", "responsibleName", "evaluation"};
+    static final String[] PLACE_EVALUATION_COLUMNS = {"name", "studentID", "institutionName", "duration",
+            "salary", "transportation", "meals", "practiceTheory", "foreignLanguage", "responsibilities",
+            "workingSpace", "factoryConditions", "recommendation", "futureWork", "processScore",
+            "decisionMaking", "expectations", "researchDevelopment", "comments", "reasonForChoice",
+            "analysisMethodsLearned", "courseAssociation", "workAssociation", "knowledgeLacks",
+            "positiveAspects", "negativeAspects"};
+
+    // Student IDs are FIRST_STUDENT_ID, FIRST_STUDENT_ID + 1, ... in the order students are generated
+    static final int FIRST_STUDENT_ID = 100_000;
+
+    private static final String[] FIRST_NAMES = {"Ayşe", "Mehmet", "Elif", "Can", "Zeynep", "Emre", "Deniz", "Burak",
+            "Selin", "Oğuz", "Ece", "Kerem", "Derya", "Mert", "İrem", "Cem"};
+    private static final String[] LAST_NAMES = {"Yılmaz", "Kaya", "Demir", "Şahin", "Çelik", "Aydın", "Öztürk", "Arslan",
+            "Doğan", "Koç", "Kurt", "Polat"};
+    private static final String[] FACULTIES = {"Engineering", "Economics", "Architecture", "Law", "Communication", "Design"};
+    private static final String[] INSTITUTION_KINDS = {"Software", "Logistics", "Energy", "Textile", "Automotive",
+            "Banking", "Consulting", "Telecom", "Health", "Media"};
+    private static final String[] INSTITUTION_SUFFIXES = {"A.Ş.", "Ltd.", "Holding", "Group", "Labs"};
+    private static final String[] CITIES = {"İzmir", "İstanbul", "Ankara", "Bursa", "Manisa"};
+    private static final String[] WORDS = {"project", "team", "database", "testing", "meeting", "report", "design",
+            "customer", "deadline", "production", "quality", "analysis", "training", "mentor", "software", "process",
+            "documentation", "safety", "planning", "learned", "responsibility", "communication", "experience",
+            "department", "engineer", "prototype", "requirements", "presentation", "feedback", "schedule"};
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ofPattern("dd.MM.yy");
+    private static final int INSTITUTIONS = 200;
+    private static final int BATCH_SIZE = 500;
+
+    private final Random random;
+
+    FormDataGenerator(long seed) {
+        this.random = new Random(seed);
+    }
+
+    static String[] columns(String table) {
+        switch (table) {
+            case "InternshipAcceptance":
+                return ACCEPTANCE_COLUMNS;
+            case "InternEvaluation":
+                return EVALUATION_COLUMNS;
+            default:
+                return PLACE_EVALUATION_COLUMNS;
+        }
+    }
+
+    static String studentID(int student) {
+        return String.valueOf(FIRST_STUDENT_ID + student);
+    }
+
+    // One form as it is typed in, in the order of columns(table)
+    Object[] form(String table, String studentID) {
+        String name = pick(FIRST_NAMES) + " " + pick(LAST_NAMES);
+        String institution = institution();
+        String responsible = pick(FIRST_NAMES) + " " + pick(LAST_NAMES);
+        switch (table) {
+            case "InternshipAcceptance":
+                LocalDate start = LocalDate.of(2024, 6, 1).plusDays(random.nextInt(120));
+                return new Object[]{name, studentID, pick(FACULTIES),
+                        start.format(DAY_FORMAT) + "-" + start.plusDays(20 + random.nextInt(40)).format(DAY_FORMAT),
+                        institution, random.nextInt(200) + " Cumhuriyet Cd., " + pick(CITIES),
+                        "0232 " + (1_000_000 + random.nextInt(9_000_000)), responsible};
+            case "InternEvaluation":
+                return new Object[]{name, studentID, LocalDate.of(2024, 9, 1).plusDays(random.nextInt(60)).format(DAY_FORMAT),
+                        responsible, text(10, 40)};
+            default:
+                Object[] values = new Object[PLACE_EVALUATION_COLUMNS.length];
+                values[0] = name;
+                values[1] = studentID;
+                values[2] = institution;
+                values[3] = (20 + random.nextInt(40)) + " days";
+                values[4] = pick(StorageCodec.SALARY_LABELS);
+                for (int i = 5; i <= 13; i++) {
+                    values[i] = pick(StorageCodec.LIKERT_LABELS);
+                }
+                for (int i = 14; i <= 17; i++) {
+                    values[i] = String.valueOf(1 + random.nextInt(5));
+                }
+                for (int i = 18; i < values.length; i++) {
+                    values[i] = text(20, 80);
+                }
+                return values;
+        }
+    }
+
+    // Adds all three forms for students numbered from..to-1, in stored form and in one transaction
+    void seed(Connection conn, int from, int to) throws SQLException {
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try {
+            for (String table : SQLiteServer.DOSSIER_TABLES) {
+                String[] columns = columns(table);
+                String[] stored = StorageCodec.encode(table, columns, new Object[columns.length]).columns;
+                String sql = "INSERT INTO " + table + " (" + String.join(", ", stored) + ") VALUES (" +
+                        "?" + ", ?".repeat(stored.length - 1) + ")";
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    for (int student = from; student < to; student++) {
+                        Object[] values = StorageCodec.encode(table, columns, form(table, studentID(student))).values;
+                        for (int i = 0; i < values.length; i++) {
+                            stmt.setObject(i + 1, values[i]);
+                        }
+                        stmt.addBatch();
+                        if ((student - from + 1) % BATCH_SIZE == 0) {
+                            stmt.executeBatch();
+                        }
+                    }
+                    stmt.executeBatch();
+                }
+            }
+            conn.commit();
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+
+    private String institution() {
+        int n = random.nextInt(INSTITUTIONS);
+        return INSTITUTION_KINDS[n % INSTITUTION_KINDS.length] + " " + CITIES[n % CITIES.length] + " " + (n / 10) + " " +
+                INSTITUTION_SUFFIXES[n % INSTITUTION_SUFFIXES.length];
+    }
+
+    private String text(int minWords, int maxWords) {
+        int words = minWords + random.nextInt(maxWords - minWords + 1);
+        StringBuilder text = new StringBuilder(words * 9);
+        for (int i = 0; i < words; i++) {
+            String word = pick(WORDS);
+            if (i == 0) {
+                text.append(Character.toUpperCase(word.charAt(0))).append(word, 1, word.length());
+            } else {
+                text.append(random.nextInt(8) == 0 ? ". " : " ").append(word);
+            }
+        }
+        return text.append('.').toString();
+    }
+
+    private String pick(String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    // Creates the schema in a new database and adds all three forms for students 0..students-1
+    static void createDatabase(String url, int students, long seed) throws SQLException {
+        try (Connection conn = DriverManager.getConnection(url)) {
+            try (Statement pragma = conn.createStatement()) {
+                pragma.execute("PRAGMA journal_mode=WAL");
+            }
+            SchemaMigrations.migrate(conn);
+            new FormDataGenerator(seed).seed(conn, 0, students);
+        }
+    }
+
+    public static void main(String[] args) throws SQLException {
+        if (args.length < 2) {
+            System.out.println("Usage: FormDataGenerator <database file> <students> [seed]");
+            return;
+        }
+        int students = Integer.parseInt(args[1]);
+        createDatabase("jdbc:sqlite:" + args[0], students, args.length > 2 ? Long.parseLong(args[2]) : 1);
+        System.out.println("Added " + students + " students with all three forms to " + args[0]);
+    }
+}
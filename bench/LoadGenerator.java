@@ -0,0 +1,434 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Many instructors at once against one SQLiteServer, without any Swing: each simulated instructor is
+// a virtual thread with its own connection, doing what the forms do (log in, submit a form, open a
+// student in Search/Edit, change a field, delete a form) with a pause between actions. Reports
+// throughput, latency percentiles and how often calls failed or the server was too busy, every few
+// seconds and per operation at the end.
+//
+// By default it starts a server in the same JVM on a fresh database (see BenchmarkServer), so the
+// server.* properties apply to it, e.g. -Dserver.mode=virtual -Dserver.maxConnections=5000. With
+// -Dload.external=true it drives the server at client.host/client.port instead, whose database must
+// have been filled with FormDataGenerator for at least load.students students.
+//
+//   java -cp target/benchmarks.jar -Dload.clients=2000 -Dload.seconds=300 LoadGenerator
+//
+// Exits with status 1 if more than load.maxErrorPercent of the calls failed, so it can gate a build.
+// run() does the same without exiting and returns the totals, for a short run from a test.
+final class LoadGenerator {
+    private static final double MAX_ERROR_PERCENT = Double.parseDouble(System.getProperty("load.maxErrorPercent", "100"));
+
+    // The free-text field an update changes, as the search dialog would after a correction
+    private static final Map<String, String> UPDATED_COLUMNS = Map.of(
+            "InternshipAcceptance", "responsibleName",
+            "InternEvaluation", "evaluation",
+            "InternshipPlaceEvaluation", "comments");
+
+    // What to run; starts from the load.* properties
+    static final class Config {
+        int clients = Integer.getInteger("load.clients", 1000);
+        int seconds = Integer.getInteger("load.seconds", 60);
+        // Clients are started evenly over this long so they do not all connect in the same instant
+        int rampSeconds = Integer.getInteger("load.rampSeconds", 10);
+        int students = Integer.getInteger("load.students", 10_000);
+        // Average pause between two actions of one instructor; 0 sends the next call right away
+        int thinkMillis = Integer.getInteger("load.thinkMillis", 100);
+        int reportSeconds = Integer.getInteger("load.reportSeconds", 10);
+        // Relative weights of the operations
+        String mix = System.getProperty("load.mix", "authenticate=5,insert=15,lookup=50,update=20,delete=10");
+        // A call or connect with no answer for this long counts as an error and the client reconnects
+        int timeoutMillis = Integer.getInteger("load.timeoutMillis", 30_000);
+        boolean external = Boolean.getBoolean("load.external");
+    }
+
+    // Totals of a whole run, as printed at its end
+    static final class Summary {
+        final long calls;
+        final long errors;
+        final long busy;
+        final double elapsedSeconds;
+
+        Summary(long calls, long errors, long busy, double elapsedSeconds) {
+            this.calls = calls;
+            this.errors = errors;
+            this.busy = busy;
+            this.elapsedSeconds = elapsedSeconds;
+        }
+
+        double errorPercent() {
+            return percent(errors, calls);
+        }
+
+        double busyPercent() {
+            return percent(busy, calls);
+        }
+    }
+
+    enum Operation { CONNECT, AUTHENTICATE, INSERT, LOOKUP, UPDATE, DELETE }
+
+    enum Outcome { OK, CONFLICT, BUSY, ERROR }
+
+    // Counts and latencies of one operation over the whole run
+    private static final class Stats {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final Map<Outcome, LongAdder> outcomes = new EnumMap<>(Outcome.class);
+
+        Stats() {
+            for (Outcome outcome : Outcome.values()) {
+                outcomes.put(outcome, new LongAdder());
+            }
+        }
+
+        long count(Outcome outcome) {
+            return outcomes.get(outcome).sum();
+        }
+    }
+
+    private final Config config;
+    private final Map<Operation, Stats> stats = new EnumMap<>(Operation.class);
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder busy = new LongAdder();
+    private final AtomicInteger connected = new AtomicInteger();
+    // Latencies of all calls since the last periodic report; replaced by the reporter
+    private volatile LatencyHistogram interval = new LatencyHistogram();
+    // Forms added by the run, so deletes remove those and the seeded students stay for lookups
+    private final Queue<String[]> inserted = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger nextStudent = new AtomicInteger();
+
+    private String host;
+    private int port;
+
+    private LoadGenerator(Config config) {
+        this.config = config;
+        for (Operation operation : Operation.values()) {
+            stats.put(operation, new Stats());
+        }
+        nextStudent.set(config.students);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Summary summary = run(new Config());
+        if (summary.errorPercent() > MAX_ERROR_PERCENT) {
+            System.out.printf("FAILED: %.2f%% of calls failed, more than the %.2f%% allowed%n", summary.errorPercent(), MAX_ERROR_PERCENT);
+            System.exit(1);
+        }
+        System.exit(0); // The server's executors are meant to live as long as its process and would keep this one running
+    }
+
+    // Runs the load, printing as it goes, and returns the totals. Without config.external the server
+    // is started in this JVM and stopped again at the end, which can happen only once per JVM.
+    static Summary run(Config config) throws Exception {
+        return new LoadGenerator(config).run();
+    }
+
+    private Summary run() throws Exception {
+        Operation[] mix = parseMix(config.mix);
+        BenchmarkServer server = null;
+        if (config.external) {
+            host = System.getProperty("client.host", "localhost");
+            port = Integer.getInteger("client.port", 12345);
+        } else {
+            System.out.println("Seeding " + config.students + " students and starting the server...");
+            server = new BenchmarkServer();
+            server.start(config.students);
+            host = "localhost";
+            port = BenchmarkServer.port();
+        }
+        try {
+            System.out.println(config.clients + " clients against " + host + ":" + port + " for " +
+                    (config.rampSeconds + config.seconds) + " s (" + config.rampSeconds + " s ramp-up), mix " +
+                    config.mix + ", think time " + config.thinkMillis + " ms");
+
+            long begin = System.nanoTime();
+            long deadline = begin + TimeUnit.SECONDS.toNanos(config.rampSeconds + config.seconds);
+            Thread reporter = new Thread(() -> report(begin), "load-reporter");
+            reporter.setDaemon(true);
+            reporter.start();
+            try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int i = 0; i < config.clients; i++) {
+                    long startAt = begin + TimeUnit.SECONDS.toNanos(config.rampSeconds) * i / config.clients;
+                    int index = i;
+                    clients.execute(() -> new Instructor(index, mix).run(startAt, deadline));
+                }
+            }
+            reporter.interrupt();
+            Summary summary = new Summary(completed.sum(), failed.sum(), busy.sum(), (System.nanoTime() - begin) / 1e9);
+            printSummary(summary);
+            return summary;
+        } finally {
+            if (server != null) {
+                server.stop();
+            }
+        }
+    }
+
+    // "insert=15,lookup=50" as a table to draw from, each operation appearing as often as its weight
+    private static Operation[] parseMix(String mix) {
+        List<Operation> table = new ArrayList<>();
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.trim().split("=");
+            Operation operation = Operation.valueOf(parts[0].trim().toUpperCase());
+            if (operation == Operation.CONNECT) {
+                throw new IllegalArgumentException("Connecting is not an operation of the mix");
+            }
+            for (int i = Integer.parseInt(parts[1].trim()); i > 0; i--) {
+                table.add(operation);
+            }
+        }
+        if (table.isEmpty()) {
+            throw new IllegalArgumentException("The mix has no operations: " + mix);
+        }
+        return table.toArray(new Operation[0]);
+    }
+
+    private void record(Operation operation, long nanos, Outcome outcome) {
+        Stats s = stats.get(operation);
+        s.latency.recordNanos(nanos);
+        interval.recordNanos(nanos);
+        s.outcomes.get(outcome).increment();
+        completed.increment();
+        if (outcome == Outcome.ERROR) {
+            failed.increment();
+        } else if (outcome == Outcome.BUSY) {
+            busy.increment();
+        }
+    }
+
+    // One line every reportSeconds, for the interval just ended, so a degrading soak run shows up as it happens
+    private void report(long begin) {
+        long lastCompleted = 0, lastFailed = 0, lastBusy = 0;
+        try {
+            while (true) {
+                Thread.sleep(TimeUnit.SECONDS.toMillis(config.reportSeconds));
+                long nowCompleted = completed.sum(), nowFailed = failed.sum(), nowBusy = busy.sum();
+                LatencyHistogram latency = interval;
+                interval = new LatencyHistogram();
+                long calls = nowCompleted - lastCompleted;
+                System.out.printf("%5d s  %8.1f calls/s  errors %5.2f%%  busy %5.2f%%  %d connected  %s%n",
+                        TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - begin), calls / (double) config.reportSeconds,
+                        percent(nowFailed - lastFailed, calls), percent(nowBusy - lastBusy, calls), connected.get(),
+                        latency.summary());
+                lastCompleted = nowCompleted;
+                lastFailed = nowFailed;
+                lastBusy = nowBusy;
+            }
+        } catch (InterruptedException e) {
+            // The run is over
+        }
+    }
+
+    // Prints the totals per operation and of the whole run
+    private void printSummary(Summary summary) {
+        double elapsedSeconds = summary.elapsedSeconds;
+        System.out.println();
+        System.out.printf("%-13s %9s %9s %8s %8s %9s %10s %10s %10s %10s%n",
+                "operation", "calls", "calls/s", "errors", "busy", "conflicts", "p50", "p99", "p99.9", "max");
+        for (Operation operation : Operation.values()) {
+            Stats s = stats.get(operation);
+            long calls = s.latency.count();
+            if (calls == 0) {
+                continue;
+            }
+            System.out.printf("%-13s %9d %9.1f %7.2f%% %7.2f%% %9d %10s %10s %10s %10s%n",
+                    operation.name().toLowerCase(), calls, calls / elapsedSeconds,
+                    percent(s.count(Outcome.ERROR), calls), percent(s.count(Outcome.BUSY), calls), s.count(Outcome.CONFLICT),
+                    LatencyHistogram.format(s.latency.percentileMicros(50)), LatencyHistogram.format(s.latency.percentileMicros(99)),
+                    LatencyHistogram.format(s.latency.percentileMicros(99.9)), LatencyHistogram.format(s.latency.maxMicros()));
+        }
+        System.out.printf("%nTotal: %d calls in %.1f s, %.1f calls/s, errors %.2f%%, busy %.2f%%%n", summary.calls,
+                elapsedSeconds, summary.calls / elapsedSeconds, summary.errorPercent(), summary.busyPercent());
+    }
+
+    private static double percent(long part, long whole) {
+        return whole == 0 ? 0 : 100.0 * part / whole;
+    }
+
+    private static boolean isBusy(QueryResult result) {
+        return result.isError() && (result.getErrorCode() & 0xff) == 5; // SQLITE_BUSY and its extended codes
+    }
+
+    private static boolean isBusy(Exception e) {
+        return e.getMessage() != null && e.getMessage().contains("SERVER_BUSY");
+    }
+
+    // One simulated instructor with its own connection and the student it last opened
+    private final class Instructor {
+        private final Random random;
+        private final FormDataGenerator generator;
+        private final Operation[] mix;
+        private ClientConnectionPool.PooledConnection conn;
+        private String openStudent;
+        private Map<String, QueryResult> openDossier;
+
+        Instructor(int index, Operation[] mix) {
+            this.random = new Random(index);
+            this.generator = new FormDataGenerator(index);
+            this.mix = mix;
+        }
+
+        void run(long startAt, long deadline) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(startAt - System.nanoTime());
+                while (System.nanoTime() < deadline) {
+                    if (conn == null) {
+                        connect();
+                    } else {
+                        perform(mix[random.nextInt(mix.length)]);
+                    }
+                    if (config.thinkMillis > 0) {
+                        Thread.sleep(random.nextInt(2 * config.thinkMillis + 1));
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                disconnect();
+            }
+        }
+
+        private void connect() {
+            long start = System.nanoTime();
+            try {
+                Socket socket = new Socket();
+                socket.connect(new InetSocketAddress(host, port), config.timeoutMillis);
+                socket.setSoTimeout(config.timeoutMillis);
+                conn = new ClientConnectionPool.PooledConnection(socket, true);
+                if (!conn.binary) {
+                    disconnect();
+                    throw new IOException("The server does not speak the binary protocol");
+                }
+                connected.incrementAndGet();
+                record(Operation.CONNECT, System.nanoTime() - start, Outcome.OK);
+            } catch (IOException e) {
+                record(Operation.CONNECT, System.nanoTime() - start, isBusy(e) ? Outcome.BUSY : Outcome.ERROR);
+            }
+        }
+
+        private void disconnect() {
+            if (conn != null) {
+                if (conn.binary) {
+                    connected.decrementAndGet();
+                }
+                conn.close();
+                conn = null;
+            }
+        }
+
+        private void perform(Operation operation) {
+            if (operation == Operation.UPDATE && openDossier == null) {
+                operation = Operation.LOOKUP; // Nothing open to change yet
+            }
+            long start = System.nanoTime();
+            Outcome outcome;
+            try {
+                switch (operation) {
+                    case AUTHENTICATE:
+                        outcome = authenticate();
+                        break;
+                    case INSERT:
+                        outcome = insert();
+                        break;
+                    case LOOKUP:
+                        outcome = lookup();
+                        break;
+                    case UPDATE:
+                        outcome = update();
+                        break;
+                    default:
+                        outcome = delete();
+                }
+            } catch (IOException | UncheckedIOException e) {
+                outcome = isBusy(e) ? Outcome.BUSY : Outcome.ERROR;
+                disconnect(); // The connection is in an unknown state; the next action reconnects
+            }
+            record(operation, System.nanoTime() - start, outcome);
+        }
+
+        private Outcome execute(String query, Object... params) throws IOException {
+            QueryResult result = conn.readResult(conn.send(query, params));
+            return isBusy(result) ? Outcome.BUSY : result.isError() ? Outcome.ERROR : Outcome.OK;
+        }
+
+        private Outcome authenticate() throws IOException {
+            return execute("SELECT COUNT(*) FROM instructors WHERE instructorId = ? AND password = ?", 123, "123");
+        }
+
+        private Outcome insert() throws IOException {
+            String table = SQLiteServer.DOSSIER_TABLES[random.nextInt(SQLiteServer.DOSSIER_TABLES.length)];
+            String studentID = FormDataGenerator.studentID(nextStudent.getAndIncrement());
+            StorageCodec.Encoded row = StorageCodec.encode(table, FormDataGenerator.columns(table), generator.form(table, studentID));
+            Outcome outcome = execute("INSERT INTO " + table + " (" + String.join(", ", row.columns) + ") VALUES (" +
+                    "?" + ", ?".repeat(row.columns.length - 1) + ")", row.values);
+            if (outcome == Outcome.OK) {
+                inserted.add(new String[]{table, studentID});
+            }
+            return outcome;
+        }
+
+        // All three forms of one of the seeded students, as the Search/Edit dialog opens them
+        private Outcome lookup() throws IOException {
+            openStudent = FormDataGenerator.studentID(random.nextInt(config.students));
+            openDossier = conn.fetchDossier(openStudent);
+            for (QueryResult result : openDossier.values()) {
+                if (result.isError()) {
+                    openDossier = null;
+                    return isBusy(result) ? Outcome.BUSY : Outcome.ERROR;
+                }
+            }
+            return Outcome.OK;
+        }
+
+        // Changes one field of a form of the open student, at the version it was read with
+        private Outcome update() throws IOException {
+            String table = SQLiteServer.DOSSIER_TABLES[random.nextInt(SQLiteServer.DOSSIER_TABLES.length)];
+            QueryResult form = openDossier.get(table);
+            if (form == null || form.rowCount() == 0) {
+                openDossier = null;
+                return Outcome.CONFLICT; // Gone since it was opened
+            }
+            Object[] row = form.getRows().get(0);
+            int versionColumn = form.columnIndex("version");
+            String column = UPDATED_COLUMNS.get(table);
+            Object value = generator.form(table, openStudent)[List.of(FormDataGenerator.columns(table)).indexOf(column)];
+            StorageCodec.Encoded edit = StorageCodec.encode(table, new String[]{column}, new Object[]{value});
+            RecordUpdate.Result result = conn.updateIfVersion(new RecordUpdate(table, openStudent,
+                    ((Number) row[versionColumn]).longValue(), edit.columns, edit.values));
+            switch (result.getStatus()) {
+                case UPDATED:
+                    row[versionColumn] = result.getVersion();
+                    return Outcome.OK;
+                case CONFLICT:
+                case DELETED:
+                    openDossier = null; // Someone else changed it; the next update opens the student again
+                    return Outcome.CONFLICT;
+                default:
+                    return result.getError() != null && result.getError().contains("SQLITE_BUSY") ? Outcome.BUSY : Outcome.ERROR;
+            }
+        }
+
+        // Deletes a form added during the run, or if there is none a form that never existed
+        private Outcome delete() throws IOException {
+            String[] form = inserted.poll();
+            if (form == null) {
+                form = new String[]{SQLiteServer.DOSSIER_TABLES[random.nextInt(SQLiteServer.DOSSIER_TABLES.length)], "0"};
+            }
+            return execute("DELETE FROM " + form[0] + " WHERE studentID = ?", form[1]);
+        }
+    }
+}
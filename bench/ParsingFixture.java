@@ -0,0 +1,65 @@
+import benchmarks.Fixtures;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+// The client's side of a Search/Edit lookup once the reply has arrived: reading a DOSSIER reply into
+// results, then turning each form back into what the search dialog shows, as searchInDatabase and
+// createSearchTab do (StorageCodec.decode, then every value as a string, then each field by header).
+final class ParsingFixture implements Fixtures.Parsing {
+    private final byte[] reply;
+
+    ParsingFixture() throws IOException {
+        // One student's three forms, framed as SQLiteServer.sendDossier writes them
+        FormDataGenerator generator = new FormDataGenerator(1);
+        String studentID = FormDataGenerator.studentID(0);
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        WireProtocol.FrameWriter frames = new WireProtocol.FrameWriter(buffer);
+        long id = 1;
+        for (String table : SQLiteServer.DOSSIER_TABLES) {
+            StorageCodec.Encoded row = StorageCodec.encode(table, FormDataGenerator.columns(table), generator.form(table, studentID));
+            List<String> columns = new ArrayList<>(List.of("id"));
+            List<Object> values = new ArrayList<>(List.of(id++));
+            columns.addAll(List.of(row.columns));
+            values.addAll(Arrays.asList(row.values));
+            columns.add("version");
+            values.add(1L);
+            frames.writeTable(1, table);
+            frames.writeColumns(1, columns.toArray(new String[0]));
+            frames.writeRow(1, values.toArray());
+        }
+        frames.writeEndResult(1);
+        reply = buffer.toByteArray();
+    }
+
+    @Override
+    public Map<String, QueryResult> readDossier() throws IOException {
+        return ClientConnectionPool.PooledConnection.readDossier(
+                new WireProtocol.FrameReader(new ByteArrayInputStream(reply)), 1);
+    }
+
+    @Override
+    public int readAndDecodeDossier() throws IOException {
+        Map<String, QueryResult> dossier = readDossier();
+        int length = 0;
+        for (Map.Entry<String, QueryResult> entry : dossier.entrySet()) {
+            QueryResult result = StorageCodec.decode(entry.getKey(), entry.getValue());
+            String[] headers = result.getColumns();
+            String[] data = result.rowAsStrings(0);
+            for (String column : FormDataGenerator.columns(entry.getKey())) {
+                for (int i = 0; i < headers.length; i++) {
+                    if (headers[i].equalsIgnoreCase(column)) {
+                        length += data[i].length();
+                        break;
+                    }
+                }
+            }
+        }
+        return length;
+    }
+}
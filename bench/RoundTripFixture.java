@@ -0,0 +1,72 @@
+import benchmarks.Fixtures;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// One client of a running BenchmarkServer, with a binary and a text protocol connection of its own:
+// what one form lookup or submission costs end to end over a local socket.
+final class RoundTripFixture implements Fixtures.RoundTrip {
+    // Inserted students are numbered after the seeded ones, so each insert is a new record
+    private static final AtomicInteger inserted = new AtomicInteger();
+
+    private final int students;
+    private final ClientConnectionPool.PooledConnection binary;
+    private final ClientConnectionPool.PooledConnection text;
+    private final FormDataGenerator generator;
+
+    RoundTripFixture(int students) throws IOException {
+        this.students = students;
+        this.binary = new ClientConnectionPool.PooledConnection(new Socket("localhost", BenchmarkServer.port()), true);
+        this.text = new ClientConnectionPool.PooledConnection(new Socket("localhost", BenchmarkServer.port()), false);
+        this.generator = new FormDataGenerator(Thread.currentThread().threadId());
+    }
+
+    @Override
+    public QueryResult selectBinary() throws IOException {
+        return binary.readResult(binary.send(
+                "SELECT * FROM InternshipPlaceEvaluation WHERE studentID = ?", new Object[]{randomStudent()}));
+    }
+
+    @Override
+    public QueryResult selectText() throws IOException {
+        return text.readResult(text.send(
+                "SELECT * FROM InternshipPlaceEvaluation WHERE studentID = ?", new Object[]{randomStudent()}));
+    }
+
+    // All three forms of one student, as the Search/Edit dialog asks for them
+    @Override
+    public Map<String, QueryResult> dossierBinary() throws IOException {
+        return binary.fetchDossier(randomStudent());
+    }
+
+    @Override
+    public QueryResult insertBinary() throws IOException {
+        return insert(binary);
+    }
+
+    @Override
+    public QueryResult insertText() throws IOException {
+        return insert(text);
+    }
+
+    @Override
+    public void close() {
+        binary.close();
+        text.close();
+    }
+
+    private QueryResult insert(ClientConnectionPool.PooledConnection conn) throws IOException {
+        String table = "InternEvaluation";
+        String studentID = FormDataGenerator.studentID(students + inserted.getAndIncrement());
+        StorageCodec.Encoded row = StorageCodec.encode(table, FormDataGenerator.EVALUATION_COLUMNS, generator.form(table, studentID));
+        return conn.readResult(conn.send("INSERT INTO " + table + " (" + String.join(", ", row.columns) + ") VALUES (" +
+                "?" + ", ?".repeat(row.columns.length - 1) + ")", row.values));
+    }
+
+    private String randomStudent() {
+        return FormDataGenerator.studentID(ThreadLocalRandom.current().nextInt(students));
+    }
+}
@@ -0,0 +1,97 @@
+import benchmarks.Fixtures;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+// The server's side of a reply: reading place evaluation rows (the widest form, with eight free-text
+// answers) from SQLite and writing them as binary frames, as SQLiteServer.writeRows does for every
+// SELECT. framesOnly leaves out the JDBC part to show what the frame encoding alone costs.
+final class SerializationFixture implements Fixtures.Serialization {
+    private final Path directory;
+    private final Connection conn;
+    private final PreparedStatement select;
+    private String[] columns;
+    private final List<Object[]> values = new ArrayList<>();
+    private final CountingStream sink = new CountingStream();
+
+    SerializationFixture(int rows) throws IOException, SQLException {
+        directory = Files.createTempDirectory("form-bench");
+        String url = "jdbc:sqlite:" + directory.resolve("bench.db");
+        FormDataGenerator.createDatabase(url, rows, 1);
+        conn = DriverManager.getConnection(url);
+        select = conn.prepareStatement("SELECT * FROM InternshipPlaceEvaluation LIMIT ?");
+        select.setInt(1, rows);
+        try (ResultSet rs = select.executeQuery()) {
+            columns = new String[rs.getMetaData().getColumnCount()];
+            for (int i = 1; i <= columns.length; i++) {
+                columns[i - 1] = rs.getMetaData().getColumnName(i);
+            }
+            while (rs.next()) {
+                Object[] row = new Object[columns.length];
+                for (int i = 1; i <= columns.length; i++) {
+                    row[i - 1] = rs.getObject(i);
+                }
+                values.add(row);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            select.close();
+            conn.close();
+        } catch (SQLException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+        try (var files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Override
+    public long resultSetToFrames() throws IOException, SQLException {
+        sink.count = 0;
+        WireProtocol.FrameWriter frames = new WireProtocol.FrameWriter(sink);
+        try (ResultSet rs = select.executeQuery()) {
+            SQLiteServer.writeRows(rs, frames, 1);
+        }
+        frames.writeEndResult(1);
+        return sink.count;
+    }
+
+    @Override
+    public long framesOnly() throws IOException {
+        sink.count = 0;
+        WireProtocol.FrameWriter frames = new WireProtocol.FrameWriter(sink);
+        frames.writeColumns(1, columns);
+        for (Object[] row : values) {
+            frames.writeRow(1, row);
+        }
+        frames.writeEndResult(1);
+        return sink.count;
+    }
+
+    // Stands in for the socket: counts the bytes and drops them
+    private static final class CountingStream extends OutputStream {
+        long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Export All Forms to Excel against a local server holding the given number of students, each with
+// all three forms (so three times as many rows).
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ExportBenchmark {
+    @Param({"1000", "10000", "100000"})
+    public int students;
+
+    private Fixtures.Server server;
+    private Fixtures.Export fixture;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        server = Fixtures.create(Fixtures.Server.class, "BenchmarkServer");
+        server.start(students);
+        fixture = Fixtures.create(Fixtures.Export.class, "ExportFixture");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        fixture.close();
+        server.stop();
+    }
+
+    @Benchmark
+    public long exportAllForms() throws Exception {
+        return fixture.exportAllForms();
+    }
+}
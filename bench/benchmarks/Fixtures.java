@@ -0,0 +1,72 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+
+// JMH only accepts benchmarks in a named package, and code in a named package cannot refer to the
+// application's classes in the default package. So each benchmark here is a thin JMH shell around a
+// fixture next to the application classes in bench/, reached through one of these interfaces. The
+// fixture is created by reflection once per trial; the measured calls are plain interface calls.
+public final class Fixtures {
+    private Fixtures() {
+    }
+
+    // BenchmarkServer: SQLiteServer on a free port with a freshly seeded database
+    public interface Server {
+        void start(int students) throws Exception;
+
+        void stop() throws Exception;
+    }
+
+    // RoundTripFixture: one client's pair of connections to the running server
+    public interface RoundTrip extends AutoCloseable {
+        Object selectBinary() throws Exception;
+
+        Object selectText() throws Exception;
+
+        Object dossierBinary() throws Exception;
+
+        Object insertBinary() throws Exception;
+
+        Object insertText() throws Exception;
+
+        @Override
+        void close();
+    }
+
+    // SerializationFixture: place evaluation rows read from SQLite and written as frames
+    public interface Serialization extends AutoCloseable {
+        long resultSetToFrames() throws Exception;
+
+        long framesOnly() throws Exception;
+
+        @Override
+        void close() throws IOException;
+    }
+
+    // ParsingFixture: one student's DOSSIER reply read and decoded on the client
+    public interface Parsing {
+        Object readDossier() throws Exception;
+
+        int readAndDecodeDossier() throws Exception;
+    }
+
+    // ExportFixture: Export All Forms to Excel from the running server to a temporary file
+    public interface Export extends AutoCloseable {
+        long exportAllForms() throws Exception;
+
+        @Override
+        void close();
+    }
+
+    // Creates the default package class with the given name through its constructor taking args
+    public static <T> T create(Class<T> type, String className, Object... args) throws ReflectiveOperationException {
+        for (Constructor<?> constructor : Class.forName(className).getDeclaredConstructors()) {
+            if (constructor.getParameterCount() == args.length) {
+                constructor.setAccessible(true);
+                return type.cast(constructor.newInstance(args));
+            }
+        }
+        throw new NoSuchMethodException(className + " has no constructor taking " + args.length + " arguments");
+    }
+}
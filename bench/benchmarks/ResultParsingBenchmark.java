@@ -0,0 +1,32 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// The client's side of a Search/Edit lookup once the reply has arrived: reading a DOSSIER reply into
+// results, and then decoding each form into the strings the search dialog shows.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ResultParsingBenchmark {
+    private Fixtures.Parsing fixture;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        fixture = Fixtures.create(Fixtures.Parsing.class, "ParsingFixture");
+    }
+
+    @Benchmark
+    public Object readDossier() throws Exception {
+        return fixture.readDossier();
+    }
+
+    @Benchmark
+    public int readAndDecodeDossier() throws Exception {
+        return fixture.readAndDecodeDossier();
+    }
+}
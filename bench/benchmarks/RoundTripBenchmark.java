@@ -0,0 +1,74 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Client to server and back over a local socket: what one form lookup or submission costs end to end,
+// on the binary protocol and on the legacy text protocol. Each benchmark thread has its own connections,
+// so running with -t N measures N instructors working at once.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RoundTripBenchmark {
+    static final int STUDENTS = 10_000;
+
+    @State(Scope.Benchmark)
+    public static class Server {
+        Fixtures.Server server;
+
+        @Setup(Level.Trial)
+        public void start() throws Exception {
+            server = Fixtures.create(Fixtures.Server.class, "BenchmarkServer");
+            server.start(STUDENTS);
+        }
+
+        @TearDown(Level.Trial)
+        public void stop() throws Exception {
+            server.stop();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Client {
+        Fixtures.RoundTrip client;
+
+        @Setup(Level.Trial)
+        public void connect(Server server) throws Exception {
+            client = Fixtures.create(Fixtures.RoundTrip.class, "RoundTripFixture", STUDENTS);
+        }
+
+        @TearDown(Level.Trial)
+        public void close() throws Exception {
+            client.close();
+        }
+    }
+
+    @Benchmark
+    public Object selectBinary(Client client) throws Exception {
+        return client.client.selectBinary();
+    }
+
+    @Benchmark
+    public Object selectText(Client client) throws Exception {
+        return client.client.selectText();
+    }
+
+    // All three forms of one student, as the Search/Edit dialog asks for them
+    @Benchmark
+    public Object dossierBinary(Client client) throws Exception {
+        return client.client.dossierBinary();
+    }
+
+    @Benchmark
+    public Object insertBinary(Client client) throws Exception {
+        return client.client.insertBinary();
+    }
+
+    @Benchmark
+    public Object insertText(Client client) throws Exception {
+        return client.client.insertText();
+    }
+}
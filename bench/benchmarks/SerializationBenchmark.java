@@ -0,0 +1,40 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// The server's side of a reply: place evaluation rows read from SQLite and written as binary frames,
+// as SQLiteServer.writeRows does for every SELECT, and the frame encoding alone without JDBC.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SerializationBenchmark {
+    @Param({"1", "100", "1000"})
+    public int rows;
+
+    private Fixtures.Serialization fixture;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        fixture = Fixtures.create(Fixtures.Serialization.class, "SerializationFixture", rows);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        fixture.close();
+    }
+
+    @Benchmark
+    public long resultSetToFrames() throws Exception {
+        return fixture.resultSetToFrames();
+    }
+
+    @Benchmark
+    public long framesOnly() throws Exception {
+        return fixture.framesOnly();
+    }
+}
@@ -0,0 +1,70 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Statements sent to the server together, either pipelined on one connection or as a single
+// transaction with SQLiteClient.executeBatch. An atomic batch commits only if every statement succeeds.
+class Batch {
+    private final boolean atomic;
+    private final List<Statement> statements = new ArrayList<>();
+
+    Batch(boolean atomic) {
+        this.atomic = atomic;
+    }
+
+    Batch add(String sql, Object... params) {
+        statements.add(new Statement(sql, params));
+        return this;
+    }
+
+    boolean isAtomic() {
+        return atomic;
+    }
+
+    List<Statement> getStatements() {
+        return Collections.unmodifiableList(statements);
+    }
+
+    int size() {
+        return statements.size();
+    }
+
+    static class Statement {
+        final String sql;
+        final Object[] params;
+
+        Statement(String sql, Object[] params) {
+            this.sql = sql;
+            this.params = params != null ? params : new Object[0];
+        }
+    }
+
+    // One result per statement, in the order they were added
+    static class Result {
+        private final boolean committed;
+        private final List<QueryResult> results;
+
+        Result(boolean committed, List<QueryResult> results) {
+            this.committed = committed;
+            this.results = results;
+        }
+
+        boolean isCommitted() {
+            return committed;
+        }
+
+        List<QueryResult> getResults() {
+            return results;
+        }
+
+        int failureCount() {
+            int failures = 0;
+            for (QueryResult result : results) {
+                if (result.isError()) {
+                    failures++;
+                }
+            }
+            return failures;
+        }
+    }
+}
@@ -0,0 +1,233 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// Pushes the changes that triggers log to ChangeLog to the subscribed clients after every write. Each
+// subscriber is written by its own thread, and one that falls MAX_PENDING behind is disconnected.
+final class ChangeFeed {
+    private static final int MAX_PENDING = 1024;
+    private static final int PRUNE_AFTER = 1000;
+
+    private final int maxSubscribers;
+    private final List<Subscriber> subscribers = new ArrayList<>(); // Guarded by this
+    private DatabasePool database;
+    private long lastChangeId; // Guarded by this; written only on the writer thread
+    private long prunedThrough;
+
+    ChangeFeed(int maxSubscribers) {
+        this.maxSubscribers = maxSubscribers;
+    }
+
+    // ChangeLog and the triggers filling it
+    static String[] schema() {
+        List<String> sql = new ArrayList<>();
+        sql.add("CREATE TABLE ChangeLog (id INTEGER PRIMARY KEY AUTOINCREMENT, tableName TEXT NOT NULL, " +
+                "studentID TEXT, operation TEXT NOT NULL)");
+        for (String table : SQLiteServer.DOSSIER_TABLES) {
+            String prefix = triggerPrefix(table);
+            String insert = "INSERT INTO ChangeLog (tableName, studentID, operation) ";
+            sql.add("CREATE TRIGGER " + prefix + "_change_insert AFTER INSERT ON " + table + " FOR EACH ROW BEGIN " +
+                    insert + "VALUES ('" + table + "', NEW.studentID, '" + RecordChange.INSERT + "'); END");
+            sql.add("CREATE TRIGGER " + prefix + "_change_delete AFTER DELETE ON " + table + " FOR EACH ROW BEGIN " +
+                    insert + "VALUES ('" + table + "', OLD.studentID, '" + RecordChange.DELETE + "'); END");
+            // A record moved to another student ID is gone from the old ID and new under the other one
+            sql.add("CREATE TRIGGER " + prefix + "_change_update AFTER UPDATE ON " + table + " FOR EACH ROW BEGIN " +
+                    insert + "SELECT '" + table + "', OLD.studentID, '" + RecordChange.DELETE + "' WHERE OLD.studentID IS NOT NEW.studentID; " +
+                    insert + "VALUES ('" + table + "', NEW.studentID, CASE WHEN OLD.studentID IS NOT NEW.studentID " +
+                    "THEN '" + RecordChange.INSERT + "' ELSE '" + RecordChange.UPDATE + "' END); END");
+        }
+        return sql.toArray(new String[0]);
+    }
+
+    // Schema version 7: a version on every form record, starting at 1 and counting its updates, carried
+    // by the change notifications. Any update that leaves version as it was gets it increased by a
+    // trigger, so every write path counts, and the change is logged by that second update (or by the
+    // first if it set the new version itself) with the record's new version.
+    static String[] rowVersions() {
+        List<String> sql = new ArrayList<>();
+        sql.add("ALTER TABLE ChangeLog ADD COLUMN version INTEGER");
+        for (String table : SQLiteServer.DOSSIER_TABLES) {
+            String prefix = triggerPrefix(table);
+            String insert = "INSERT INTO ChangeLog (tableName, studentID, operation, version) ";
+            sql.add("ALTER TABLE " + table + " ADD COLUMN version INTEGER NOT NULL DEFAULT 1");
+            sql.add("CREATE TRIGGER " + prefix + "_version AFTER UPDATE ON " + table + " FOR EACH ROW " +
+                    "WHEN NEW.version IS OLD.version BEGIN " +
+                    "UPDATE " + table + " SET version = OLD.version + 1 WHERE id = NEW.id; END");
+
+            sql.add("DROP TRIGGER " + prefix + "_change_insert");
+            sql.add("DROP TRIGGER " + prefix + "_change_delete");
+            sql.add("DROP TRIGGER " + prefix + "_change_update");
+            sql.add("CREATE TRIGGER " + prefix + "_change_insert AFTER INSERT ON " + table + " FOR EACH ROW BEGIN " +
+                    insert + "VALUES ('" + table + "', NEW.studentID, '" + RecordChange.INSERT + "', NEW.version); END");
+            sql.add("CREATE TRIGGER " + prefix + "_change_delete AFTER DELETE ON " + table + " FOR EACH ROW BEGIN " +
+                    insert + "VALUES ('" + table + "', OLD.studentID, '" + RecordChange.DELETE + "', OLD.version); END");
+            // A record moved to another student ID is gone from the old ID; the new one gets the update
+            sql.add("CREATE TRIGGER " + prefix + "_change_move AFTER UPDATE OF studentID ON " + table + " FOR EACH ROW " +
+                    "WHEN OLD.studentID IS NOT NEW.studentID BEGIN " +
+                    insert + "VALUES ('" + table + "', OLD.studentID, '" + RecordChange.DELETE + "', OLD.version); END");
+            sql.add("CREATE TRIGGER " + prefix + "_change_update AFTER UPDATE ON " + table + " FOR EACH ROW " +
+                    "WHEN NEW.version IS NOT OLD.version BEGIN " +
+                    insert + "VALUES ('" + table + "', NEW.studentID, '" + RecordChange.UPDATE + "', NEW.version); END");
+        }
+        return sql.toArray(new String[0]);
+    }
+
+    private static String triggerPrefix(String table) {
+        switch (table) {
+            case "InternshipAcceptance":
+                return "acceptance";
+            case "InternEvaluation":
+                return "evaluation";
+            default:
+                return "place_evaluation";
+        }
+    }
+
+    // Starts publishing the changes written through database. Changes logged before the server
+    // started were never seen by any client connected now, so they are discarded.
+    void attach(DatabasePool database) throws SQLException {
+        this.database = database;
+        database.write(conn -> {
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(id), 0) FROM ChangeLog")) {
+                rs.next();
+                synchronized (this) {
+                    lastChangeId = rs.getLong(1);
+                }
+                stmt.execute("DELETE FROM ChangeLog");
+            }
+            prunedThrough = lastChangeId;
+            return null;
+        });
+        database.setAfterWrite(this::publish);
+    }
+
+    // Hands the socket over to the feed. The client first gets the id of the last change so far and
+    // then every later one. Returns false, leaving the socket to the caller, if the feed is full.
+    boolean subscribe(Socket socket, OutputStream output, int requestId) {
+        Subscriber subscriber;
+        synchronized (this) {
+            if (subscribers.size() >= maxSubscribers) {
+                return false;
+            }
+            subscriber = new Subscriber(socket, output, requestId, lastChangeId);
+            subscribers.add(subscriber);
+        }
+        try {
+            socket.setSoTimeout(0); // Nothing more is read, so the idle timeout no longer applies
+        } catch (IOException ignored) {
+        }
+        Thread.ofVirtual().name("change-feed-" + socket.getRemoteSocketAddress()).start(subscriber);
+        return true;
+    }
+
+    synchronized int subscriberCount() {
+        return subscribers.size();
+    }
+
+    // Runs on the writer thread after each write
+    private Void publish(Connection conn) throws SQLException {
+        long since;
+        synchronized (this) {
+            since = lastChangeId;
+        }
+        List<RecordChange> changes = new ArrayList<>();
+        PreparedStatement stmt = database.prepareCached(conn,
+                "SELECT id, tableName, studentID, operation, version FROM ChangeLog WHERE id > ? ORDER BY id");
+        try {
+            stmt.setLong(1, since);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    changes.add(new RecordChange(rs.getLong(1), rs.getString(2), rs.getString(3), rs.getString(4), rs.getLong(5)));
+                }
+            }
+        } finally {
+            stmt.clearParameters();
+        }
+        if (changes.isEmpty()) {
+            return null;
+        }
+
+        synchronized (this) {
+            for (RecordChange change : changes) {
+                lastChangeId = change.id;
+                for (Subscriber subscriber : subscribers) {
+                    if (!subscriber.pending.offer(change)) {
+                        subscriber.close(); // Too far behind; its thread ends and unsubscribes it
+                    }
+                }
+            }
+        }
+        if (lastChangeId - prunedThrough >= PRUNE_AFTER) {
+            PreparedStatement prune = database.prepareCached(conn, "DELETE FROM ChangeLog WHERE id <= ?");
+            try {
+                prune.setLong(1, lastChangeId);
+                prune.executeUpdate();
+            } finally {
+                prune.clearParameters();
+            }
+            prunedThrough = lastChangeId;
+        }
+        return null;
+    }
+
+    private synchronized void unsubscribe(Subscriber subscriber) {
+        subscribers.remove(subscriber);
+    }
+
+    private final class Subscriber implements Runnable {
+        final BlockingQueue<RecordChange> pending = new ArrayBlockingQueue<>(MAX_PENDING);
+        private final Socket socket;
+        private final WireProtocol.FrameWriter frames;
+        private final int requestId;
+        private long lastSent;
+
+        Subscriber(Socket socket, OutputStream output, int requestId, long lastChangeId) {
+            this.socket = socket;
+            this.frames = new WireProtocol.FrameWriter(output);
+            this.requestId = requestId;
+            this.lastSent = lastChangeId;
+        }
+
+        @Override
+        public void run() {
+            try {
+                frames.writeSubscribed(requestId, lastSent);
+                frames.flush();
+                while (true) {
+                    RecordChange change = pending.poll(WireProtocol.CHANGE_HEARTBEAT_MILLIS, TimeUnit.MILLISECONDS);
+                    if (change == null) {
+                        frames.writeSubscribed(requestId, lastSent);
+                    }
+                    // Everything already queued goes out in the same packet
+                    while (change != null) {
+                        frames.writeChange(requestId, change);
+                        lastSent = change.id;
+                        change = pending.poll();
+                    }
+                    frames.flush();
+                }
+            } catch (IOException e) {
+                System.out.println("Change subscriber disconnected: " + socket.getRemoteSocketAddress());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                unsubscribe(this);
+                close();
+            }
+        }
+
+        void close() {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
@@ -0,0 +1,142 @@
+import java.io.IOException;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Client end of the server's change feed (see ChangeFeed): one connection of its own, subscribed to
+// record changes, passing each one on to the listeners. While the feed is down the listeners are told
+// so, and it reconnects in the background, waiting longer after each failed attempt. It is started by
+// the first listener added, and not at all against a server that only speaks the text protocol.
+final class ChangeSubscription {
+    private static final long MIN_RETRY_MILLIS = 1000;
+    private static final long MAX_RETRY_MILLIS = 30_000;
+
+    // Called on the subscription thread
+    interface Listener {
+        void changed(RecordChange change);
+
+        // Every change from now on will be passed on. Also called after a reconnection, when changes
+        // made while the feed was down have been missed.
+        default void subscribed() {
+        }
+
+        // Changes may be missed until subscribed() is called again
+        default void unsubscribed() {
+        }
+    }
+
+    private final String host;
+    private final int port;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private Thread thread;
+    private boolean subscribed; // Guarded by this, so a listener added meanwhile is told exactly once
+    private long retryMillis = MIN_RETRY_MILLIS;
+
+    ChangeSubscription(String host, int port) {
+        this.host = host;
+        this.port = port;
+    }
+
+    synchronized void addListener(Listener listener) {
+        if (listeners.contains(listener)) {
+            return;
+        }
+        listeners.add(listener);
+        if (subscribed) {
+            listener.subscribed();
+        }
+        if (thread == null) {
+            thread = new Thread(this::run, "change-subscription");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    private void run() {
+        while (true) {
+            try (Socket socket = new Socket(host, port)) {
+                ClientConnectionPool.PooledConnection conn = new ClientConnectionPool.PooledConnection(socket, true);
+                if (!conn.binary) {
+                    System.out.println("The server does not send change notifications");
+                    return;
+                }
+                // Missing heartbeats mean the connection is gone even if the socket has not noticed
+                socket.setSoTimeout(3 * WireProtocol.CHANGE_HEARTBEAT_MILLIS);
+                listen(conn, conn.sendSubscribe());
+            } catch (SocketTimeoutException e) {
+                System.out.println("Change feed timed out; reconnecting");
+            } catch (IOException e) {
+                // Server down or restarting; try again later
+            } finally {
+                unsubscribed();
+            }
+            try {
+                Thread.sleep(retryMillis);
+            } catch (InterruptedException e) {
+                return;
+            }
+            retryMillis = Math.min(retryMillis * 2, MAX_RETRY_MILLIS);
+        }
+    }
+
+    private synchronized void subscribed() {
+        subscribed = true;
+        for (Listener listener : listeners) {
+            listener.subscribed();
+        }
+    }
+
+    private synchronized void unsubscribed() {
+        if (!subscribed) {
+            return;
+        }
+        subscribed = false;
+        for (Listener listener : listeners) {
+            listener.unsubscribed();
+        }
+    }
+
+    private void listen(ClientConnectionPool.PooledConnection conn, int requestId) throws IOException {
+        WireProtocol.FrameReader frames = conn.frameReader;
+        long lastChangeId = -1;
+        while (frames.next()) {
+            if (frames.requestId() != requestId) {
+                frames.skipPayload();
+                continue;
+            }
+            switch (frames.type()) {
+                case WireProtocol.SUBSCRIBED:
+                    long id = frames.in().readLong();
+                    if (lastChangeId < 0) {
+                        lastChangeId = id;
+                        retryMillis = MIN_RETRY_MILLIS;
+                        subscribed();
+                    } else if (id != lastChangeId) {
+                        throw new IOException("Change feed is out of step with the server");
+                    }
+                    break;
+                case WireProtocol.CHANGE:
+                    RecordChange change = frames.readChange();
+                    if (lastChangeId < 0) {
+                        throw new IOException("Change received before the subscription was confirmed");
+                    }
+                    lastChangeId = change.id;
+                    for (Listener listener : listeners) {
+                        listener.changed(change);
+                    }
+                    break;
+                case WireProtocol.ERROR:
+                    frames.in().readInt();
+                    throw new IOException(WireProtocol.readString(frames.in()));
+                default:
+                    frames.skipPayload();
+            }
+        }
+        throw new IOException("Server closed the change feed");
+    }
+}
@@ -0,0 +1,507 @@
+import java.io.*;
+import java.net.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+// Bounded pool of long-lived sockets to SQLiteServer. The server keeps reading queries
+// from a socket until it is closed, so one connection can serve any number of queries.
+class ClientConnectionPool {
+    private final String host;
+    private final int port;
+    private final int maxSize;
+    private final long idleTimeoutMillis;
+    private final long validateAfterMillis;
+    private final long borrowTimeoutMillis;
+    private final boolean preferBinary;
+
+    private final Semaphore permits;
+    private final Deque<PooledConnection> idle = new ArrayDeque<>(); // LIFO so the warmest socket is reused first
+    private final ScheduledExecutorService evictor;
+
+    ClientConnectionPool(String host, int port, int maxSize, long idleTimeoutMillis,
+                         long validateAfterMillis, long borrowTimeoutMillis, boolean preferBinary) {
+        this.host = host;
+        this.port = port;
+        this.maxSize = maxSize;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.validateAfterMillis = validateAfterMillis;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.preferBinary = preferBinary;
+        this.permits = new Semaphore(maxSize, true);
+
+        this.evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "client-pool-evictor");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1000, idleTimeoutMillis / 2);
+        evictor.scheduleAtFixedRate(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    PooledConnection borrow() throws IOException {
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new IOException("Timed out waiting for a free server connection (pool size " + maxSize + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a server connection");
+        }
+
+        try {
+            PooledConnection conn;
+            while ((conn = pollIdle()) != null) {
+                long idleFor = System.currentTimeMillis() - conn.lastUsed;
+                if (idleFor > idleTimeoutMillis || !conn.isOpen()) {
+                    conn.close();
+                } else if (idleFor > validateAfterMillis && !conn.validate()) {
+                    conn.close();
+                } else {
+                    conn.reused = true;
+                    conn.requestOutput.written = false;
+                    return conn;
+                }
+            }
+            conn = new PooledConnection(new Socket(host, port), preferBinary);
+            conn.reused = false;
+            conn.requestOutput.written = false;
+            return conn;
+        } catch (IOException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    // Returns a healthy connection to the pool
+    void release(PooledConnection conn) {
+        conn.lastUsed = System.currentTimeMillis();
+        synchronized (idle) {
+            idle.push(conn);
+        }
+        permits.release();
+    }
+
+    // Drops a connection that failed mid-request so it is never handed out again
+    void invalidate(PooledConnection conn) {
+        conn.close();
+        permits.release();
+    }
+
+    private PooledConnection pollIdle() {
+        synchronized (idle) {
+            return idle.poll();
+        }
+    }
+
+    private void evictIdle() {
+        long now = System.currentTimeMillis();
+        synchronized (idle) {
+            Iterator<PooledConnection> it = idle.iterator();
+            while (it.hasNext()) {
+                PooledConnection conn = it.next();
+                if (now - conn.lastUsed > idleTimeoutMillis || !conn.isOpen()) {
+                    it.remove();
+                    conn.close();
+                }
+            }
+        }
+    }
+
+    static class PooledConnection {
+        private static final int MAX_PREPARED_PER_CONNECTION = 256;
+
+        final Socket socket;
+        final InputStream input;
+        final ReplyTiming replyTiming;
+        final OutputStream output;
+        private final RequestOutput requestOutput;
+        final boolean binary;
+        final WireProtocol.FrameReader frameReader;
+        private final WireProtocol.FrameWriter frameWriter;
+        private int nextRequestId = 1;
+        private final Map<String, Integer> preparedHandles = new HashMap<>();
+        long lastUsed = System.currentTimeMillis();
+        boolean reused;
+
+        PooledConnection(Socket socket, boolean preferBinary) throws IOException {
+            this.socket = socket;
+            socket.setTcpNoDelay(true);
+            socket.setKeepAlive(true);
+            this.replyTiming = new ReplyTiming(socket.getInputStream());
+            this.input = new BufferedInputStream(replyTiming);
+            this.requestOutput = new RequestOutput(socket.getOutputStream());
+            this.output = new BufferedOutputStream(requestOutput);
+            this.frameReader = new WireProtocol.FrameReader(input);
+            this.frameWriter = new WireProtocol.FrameWriter(output);
+            try {
+                this.binary = preferBinary && negotiateBinary();
+            } catch (IOException e) {
+                close();
+                throw e;
+            }
+        }
+
+        // Offers the binary protocol; an older server replies with an error and we stay on text
+        private boolean negotiateBinary() throws IOException {
+            writeLine(WireProtocol.HANDSHAKE);
+            String reply = WireProtocol.readLine(input);
+            if (reply == null) {
+                throw new EOFException("Server closed the connection");
+            }
+            if (reply.equals(WireProtocol.HANDSHAKE_ACK)) {
+                return true;
+            }
+            String line = reply;
+            while (line != null && !line.equals("END")) {
+                line = WireProtocol.readLine(input);
+            }
+            if (reply.startsWith(SQLiteServer.SERVER_BUSY)) {
+                throw new IOException(reply.substring("ERROR: ".length()));
+            }
+            if (line == null) {
+                throw new EOFException("Server closed the connection");
+            }
+            return false;
+        }
+
+        // Writes one request; ResultCursor reads the reply tagged with the returned id. Parameterized
+        // statements are prepared once per socket and then only executed with new values.
+        int send(String query, Object[] params) throws IOException {
+            boolean parameterized = params != null && params.length > 0;
+            if (!binary) {
+                String line = parameterized ? inlineParameters(query, params) : query;
+                if (line.indexOf('\n') >= 0 || line.indexOf('\r') >= 0) {
+                    // The server would read it as two statements and every later reply would be off by one
+                    throw new IOException("The text protocol cannot send a statement containing a line break");
+                }
+                writeLine(line);
+                return 0;
+            }
+            if (!parameterized) {
+                WireProtocol.writeString(frameWriter.begin(nextRequestId, WireProtocol.QUERY), query);
+                frameWriter.end();
+                flushRequest();
+                return nextRequestId++;
+            }
+            Integer handle = preparedHandles.get(query);
+            if (handle == null) {
+                if (preparedHandles.size() >= MAX_PREPARED_PER_CONNECTION) {
+                    preparedHandles.clear(); // Handles are reused, replacing the server's old entries
+                }
+                handle = preparedHandles.size() + 1;
+                preparedHandles.put(query, handle);
+                // The PREPARED reply is skipped by the cursor reading the EXECUTE that follows
+                DataOutputStream prepare = frameWriter.begin(nextRequestId++, WireProtocol.PREPARE);
+                prepare.writeInt(handle);
+                WireProtocol.writeString(prepare, query);
+                frameWriter.end();
+            }
+            DataOutputStream execute = frameWriter.begin(nextRequestId, WireProtocol.EXECUTE);
+            execute.writeInt(handle);
+            execute.writeInt(params.length);
+            for (Object param : params) {
+                WireProtocol.writeValue(execute, param);
+            }
+            frameWriter.end();
+            flushRequest();
+            return nextRequestId++;
+        }
+
+        // Reads the whole reply to a request already written with send()
+        QueryResult readResult(int requestId) throws IOException {
+            return new ResultCursor(this, requestId, healthy -> { }).toResult();
+        }
+
+        int sendBatch(Batch batch) throws IOException {
+            DataOutputStream payload = frameWriter.begin(nextRequestId, WireProtocol.BATCH);
+            payload.writeBoolean(batch.isAtomic());
+            payload.writeInt(batch.size());
+            for (Batch.Statement statement : batch.getStatements()) {
+                WireProtocol.writeString(payload, statement.sql);
+                payload.writeInt(statement.params.length);
+                for (Object param : statement.params) {
+                    WireProtocol.writeValue(payload, param);
+                }
+            }
+            frameWriter.end();
+            flushRequest();
+            return nextRequestId++;
+        }
+
+        // One result per statement, each read like a single reply, then the BATCH_END frame
+        Batch.Result readBatch(int requestId, int count) throws IOException {
+            List<QueryResult> results = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                results.add(readResult(requestId));
+            }
+            while (frameReader.next()) {
+                if (frameReader.requestId() == requestId && frameReader.type() == WireProtocol.BATCH_END) {
+                    return new Batch.Result(frameReader.in().readBoolean(), results);
+                }
+                frameReader.skipPayload();
+            }
+            throw new EOFException("Server closed the connection");
+        }
+
+        int sendSearch(String words, String institution, int limit) throws IOException {
+            DataOutputStream payload = frameWriter.begin(nextRequestId, WireProtocol.SEARCH);
+            WireProtocol.writeString(payload, words);
+            WireProtocol.writeString(payload, institution);
+            payload.writeInt(limit);
+            frameWriter.end();
+            flushRequest();
+            return nextRequestId++;
+        }
+
+        // Sends the update and reads whether it went through. Only available on the binary protocol.
+        RecordUpdate.Result updateIfVersion(RecordUpdate update) throws IOException {
+            int requestId = nextRequestId++;
+            DataOutputStream payload = frameWriter.begin(requestId, WireProtocol.UPDATE_IF_VERSION);
+            WireProtocol.writeString(payload, update.table);
+            WireProtocol.writeString(payload, update.studentID);
+            payload.writeLong(update.expectedVersion);
+            payload.writeInt(update.columns.length);
+            for (int i = 0; i < update.columns.length; i++) {
+                WireProtocol.writeString(payload, update.columns[i]);
+                WireProtocol.writeValue(payload, update.values[i]);
+            }
+            frameWriter.end();
+            flushRequest();
+
+            String[] columns = new String[0];
+            List<Object[]> rows = new ArrayList<>();
+            while (frameReader.next()) {
+                if (frameReader.requestId() != requestId) {
+                    frameReader.skipPayload();
+                    continue;
+                }
+                switch (frameReader.type()) {
+                    case WireProtocol.COLUMNS:
+                        columns = frameReader.readColumns();
+                        break;
+                    case WireProtocol.ROW:
+                        rows.add(frameReader.readRow());
+                        break;
+                    case WireProtocol.UPDATE_COUNT:
+                        frameReader.in().readInt();
+                        return RecordUpdate.Result.updated(update.expectedVersion + 1);
+                    case WireProtocol.CONFLICT:
+                        long version = frameReader.in().readLong();
+                        return rows.isEmpty() ? RecordUpdate.Result.deleted()
+                                : RecordUpdate.Result.conflict(QueryResult.ofRows(columns, rows), version);
+                    case WireProtocol.ERROR:
+                        frameReader.in().readInt();
+                        return RecordUpdate.Result.error(WireProtocol.readString(frameReader.in()));
+                    default:
+                        frameReader.skipPayload();
+                }
+            }
+            throw new EOFException("Server closed the connection");
+        }
+
+        // Turns this connection into a change feed: from here on it only carries CHANGE and SUBSCRIBED
+        // frames, read with frameReader. Only available on the binary protocol.
+        int sendSubscribe() throws IOException {
+            frameWriter.begin(nextRequestId, WireProtocol.SUBSCRIBE);
+            frameWriter.end();
+            flushRequest();
+            return nextRequestId++;
+        }
+
+        // Every form of one student in a single round trip, keyed by table in the server's order.
+        // Only available on the binary protocol.
+        Map<String, QueryResult> fetchDossier(String studentID) throws IOException {
+            int requestId = nextRequestId++;
+            WireProtocol.writeString(frameWriter.begin(requestId, WireProtocol.DOSSIER), studentID);
+            frameWriter.end();
+            flushRequest();
+            return readDossier(frameReader, requestId);
+        }
+
+        // The reply to a DOSSIER request, read from frames
+        static Map<String, QueryResult> readDossier(WireProtocol.FrameReader frameReader, int requestId) throws IOException {
+            Map<String, QueryResult> results = new LinkedHashMap<>();
+            String table = null;
+            String[] columns = new String[0];
+            List<Object[]> rows = new ArrayList<>();
+            while (frameReader.next()) {
+                if (frameReader.requestId() != requestId) {
+                    frameReader.skipPayload();
+                    continue;
+                }
+                switch (frameReader.type()) {
+                    case WireProtocol.TABLE:
+                        if (table != null) {
+                            results.put(table, QueryResult.ofRows(columns, rows));
+                        }
+                        table = WireProtocol.readString(frameReader.in());
+                        columns = new String[0];
+                        rows = new ArrayList<>();
+                        break;
+                    case WireProtocol.COLUMNS:
+                        columns = frameReader.readColumns();
+                        break;
+                    case WireProtocol.ROW:
+                        rows.add(frameReader.readRow());
+                        break;
+                    case WireProtocol.END_RESULT:
+                        if (table != null) {
+                            results.put(table, QueryResult.ofRows(columns, rows));
+                        }
+                        return results;
+                    case WireProtocol.ERROR:
+                        int errorCode = frameReader.in().readInt();
+                        String error = WireProtocol.readString(frameReader.in());
+                        results.clear();
+                        results.put(table != null ? table : "", QueryResult.ofError(error, errorCode));
+                        return results;
+                    default:
+                        frameReader.skipPayload();
+                }
+            }
+            throw new EOFException("Server closed the connection");
+        }
+
+        // Text protocol fallback: substitutes each ? outside string literals with an escaped literal
+        private static String inlineParameters(String query, Object[] params) {
+            StringBuilder sql = new StringBuilder(query.length() + 16 * params.length);
+            boolean inString = false;
+            int next = 0;
+            for (int i = 0; i < query.length(); i++) {
+                char c = query.charAt(i);
+                if (c == '\'') {
+                    inString = !inString;
+                } else if (c == '?' && !inString && next < params.length) {
+                    Object param = params[next++];
+                    if (param == null) {
+                        sql.append("NULL");
+                    } else if (param instanceof Number) {
+                        sql.append(param);
+                    } else {
+                        // Line breaks are spliced in with char() so the statement stays on one line
+                        String literal = param.toString().replace("'", "''")
+                                .replace("\r", "' || char(13) || '")
+                                .replace("\n", "' || char(10) || '");
+                        sql.append('\'').append(literal).append('\'');
+                    }
+                    continue;
+                }
+                sql.append(c);
+            }
+            return sql.toString();
+        }
+
+        private void writeLine(String line) throws IOException {
+            output.write((line + "\n").getBytes(StandardCharsets.UTF_8));
+            output.flush();
+            replyTiming.requestSent();
+        }
+
+        private void flushRequest() throws IOException {
+            frameWriter.flush();
+            replyTiming.requestSent();
+        }
+
+        // Whether any of the requests made since the connection was borrowed reached the socket. Until one
+        // has, the server cannot have run it, so after a failure it is safe to send again on another connection.
+        boolean requestWritten() {
+            return requestOutput.written;
+        }
+
+        boolean isOpen() {
+            return !socket.isClosed() && socket.isConnected() && !socket.isInputShutdown() && !socket.isOutputShutdown();
+        }
+
+        // Round trip on a connection that sat idle for a while, in case the server dropped it
+        boolean validate() {
+            try {
+                boolean[] healthy = new boolean[1];
+                new ResultCursor(this, "SELECT 1", null, ok -> healthy[0] = ok).toResult();
+                return healthy[0];
+            } catch (IOException | UncheckedIOException e) {
+                return false;
+            }
+        }
+
+        void close() {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    // Sits under a connection's write buffer and notes that bytes were handed to the socket; set before
+    // the write, since a write that fails part way may still have sent some of them
+    private static final class RequestOutput extends FilterOutputStream {
+        boolean written;
+
+        RequestOutput(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            written = true;
+            out.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            written = true;
+            out.write(b, off, len);
+        }
+    }
+
+    // Sits under a connection's read buffer and notes when the reply to the last request started and
+    // finished arriving, for ClientTimings. Only the thread using the connection touches it.
+    static final class ReplyTiming extends FilterInputStream {
+        long sentNanos;
+        long firstByteNanos;
+        long lastByteNanos;
+
+        ReplyTiming(InputStream in) {
+            super(in);
+        }
+
+        void requestSent() {
+            sentNanos = System.nanoTime();
+            firstByteNanos = 0;
+            lastByteNanos = 0;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            received(b < 0 ? 0 : 1);
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            received(n);
+            return n;
+        }
+
+        private void received(int bytes) {
+            if (bytes > 0) {
+                lastByteNanos = System.nanoTime();
+                if (firstByteNanos == 0) {
+                    firstByteNanos = lastByteNanos;
+                }
+            }
+        }
+    }
+}
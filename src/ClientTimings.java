@@ -0,0 +1,195 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Where the time of a call to the server goes, as seen from the client:
+//   connect     getting a connection from the pool, including opening one if none is idle
+//   write       writing the request to the socket
+//   first byte  waiting for the reply to start, i.e. the server's work plus the network round trip
+//   last byte   from the first to the last byte of the reply; rows are decoded as they arrive, so
+//               for long replies this includes most of the decoding
+//   parse       what is left of building the result after the last byte arrived
+//   render      turning the result into what the window shows; recorded by the UI as an operation of its own
+// Each phase is kept in a histogram of the last WINDOW_MINUTES minutes, and operations slower than
+// client.slowMillis are kept for the Diagnostics tab.
+final class ClientTimings {
+    enum Phase {
+        CONNECT("Connect"), WRITE("Write request"), FIRST_BYTE("First byte"), LAST_BYTE("Last byte"),
+        PARSE("Parse"), RENDER("Render");
+
+        final String label;
+
+        Phase(String label) {
+            this.label = label;
+        }
+    }
+
+    private static final long SLOW_MILLIS = Long.getLong("client.slowMillis", 500);
+    static final int WINDOW_MINUTES = 5;
+    private static final int RECENT_SLOW_OPERATIONS = 100;
+
+    private static final Map<Phase, RollingHistogram> phases = new EnumMap<>(Phase.class);
+    private static final RollingHistogram totals = new RollingHistogram();
+    private static final Deque<Operation> recentSlow = new ArrayDeque<>(); // Guarded by itself
+
+    static {
+        for (Phase phase : Phase.values()) {
+            phases.put(phase, new RollingHistogram());
+        }
+    }
+
+    private ClientTimings() {
+    }
+
+    // A finished operation; phase times are in nanoseconds and 0 for phases it did not go through
+    static final class Operation {
+        final long finishedAtMillis;
+        final String name;
+        final String detail;
+        final long totalNanos;
+        final long[] phaseNanos;
+        final boolean succeeded;
+
+        Operation(String name, String detail, long totalNanos, long[] phaseNanos, boolean succeeded) {
+            this.finishedAtMillis = System.currentTimeMillis();
+            this.name = name;
+            this.detail = detail;
+            this.totalNanos = totalNanos;
+            this.phaseNanos = phaseNanos;
+            this.succeeded = succeeded;
+        }
+    }
+
+    // Times one call from the thread making it. A call that reconnects after a stale connection adds
+    // the second attempt's phases to the first's.
+    static final class Timer {
+        private final String name;
+        private final String detail;
+        private final long started = System.nanoTime();
+        private final long[] phaseNanos = new long[Phase.values().length];
+        private long mark = started;
+        private boolean replied;
+
+        private Timer(String name, String detail) {
+            this.name = name;
+            this.detail = detail;
+        }
+
+        // A connection has been borrowed from the pool
+        void connected() {
+            long now = System.nanoTime();
+            phaseNanos[Phase.CONNECT.ordinal()] += now - mark;
+            mark = now;
+        }
+
+        // The whole reply to the request last written on conn has been read
+        void received(ClientConnectionPool.PooledConnection conn) {
+            long now = System.nanoTime();
+            ClientConnectionPool.ReplyTiming reply = conn.replyTiming;
+            long sent = Math.max(mark, reply.sentNanos);
+            // No read from the socket at all means the reply was already buffered when it was asked for
+            long firstByte = reply.firstByteNanos != 0 ? Math.max(sent, reply.firstByteNanos) : sent;
+            long lastByte = reply.lastByteNanos != 0 ? Math.max(firstByte, reply.lastByteNanos) : firstByte;
+            phaseNanos[Phase.WRITE.ordinal()] += sent - mark;
+            phaseNanos[Phase.FIRST_BYTE.ordinal()] += firstByte - sent;
+            phaseNanos[Phase.LAST_BYTE.ordinal()] += lastByte - firstByte;
+            phaseNanos[Phase.PARSE.ordinal()] += Math.max(0, now - lastByte);
+            mark = now;
+            replied = true;
+        }
+
+        // A call that failed before any reply, or that the text protocol carried out as separate
+        // queries timed on their own, only counts towards the connect phase
+        void finish(boolean succeeded) {
+            Phase[] taken = replied ? new Phase[] {Phase.CONNECT, Phase.WRITE, Phase.FIRST_BYTE, Phase.LAST_BYTE, Phase.PARSE}
+                    : new Phase[] {Phase.CONNECT};
+            record(name, detail, System.nanoTime() - started, phaseNanos, succeeded, taken);
+        }
+    }
+
+    // Starts timing a call to the server; detail says what it was about, e.g. the statement, and is
+    // kept with its string literals masked if the call turns out slow
+    static Timer start(String name, String detail) {
+        return new Timer(name, detail);
+    }
+
+    // Time the UI took to show what a call returned, measured from startNanos
+    static void rendered(String name, String detail, long startNanos) {
+        long nanos = System.nanoTime() - startNanos;
+        long[] phaseNanos = new long[Phase.values().length];
+        phaseNanos[Phase.RENDER.ordinal()] = nanos;
+        record(name, detail, nanos, phaseNanos, true, Phase.RENDER);
+    }
+
+    private static void record(String name, String detail, long totalNanos, long[] phaseNanos, boolean succeeded,
+                               Phase... phasesTaken) {
+        for (Phase phase : phasesTaken) {
+            phases.get(phase).record(phaseNanos[phase.ordinal()]);
+        }
+        totals.record(totalNanos);
+        if (TimeUnit.NANOSECONDS.toMillis(totalNanos) >= SLOW_MILLIS) {
+            Operation operation = new Operation(name, ServerMetrics.mask(detail), totalNanos, phaseNanos, succeeded);
+            synchronized (recentSlow) {
+                if (recentSlow.size() >= RECENT_SLOW_OPERATIONS) {
+                    recentSlow.removeLast();
+                }
+                recentSlow.addFirst(operation);
+            }
+        }
+    }
+
+    // Samples of the phase over the last WINDOW_MINUTES minutes
+    static LatencyHistogram phase(Phase phase) {
+        return phases.get(phase).snapshot();
+    }
+
+    static LatencyHistogram totals() {
+        return totals.snapshot();
+    }
+
+    // Newest first
+    static List<Operation> recentSlowOperations() {
+        synchronized (recentSlow) {
+            return new ArrayList<>(recentSlow);
+        }
+    }
+
+    static long slowMillis() {
+        return SLOW_MILLIS;
+    }
+
+    // One histogram per minute, of which the last WINDOW_MINUTES are kept
+    private static final class RollingHistogram {
+        private final LatencyHistogram[] minutes = new LatencyHistogram[WINDOW_MINUTES];
+        private final long[] minuteOf = new long[WINDOW_MINUTES];
+
+        synchronized void record(long nanos) {
+            long minute = currentMinute();
+            int slot = (int) (minute % WINDOW_MINUTES);
+            if (minutes[slot] == null || minuteOf[slot] != minute) {
+                minutes[slot] = new LatencyHistogram();
+                minuteOf[slot] = minute;
+            }
+            minutes[slot].recordNanos(nanos);
+        }
+
+        synchronized LatencyHistogram snapshot() {
+            long minute = currentMinute();
+            LatencyHistogram merged = new LatencyHistogram();
+            for (int i = 0; i < WINDOW_MINUTES; i++) {
+                if (minutes[i] != null && minute - minuteOf[i] < WINDOW_MINUTES) {
+                    merged.add(minutes[i]);
+                }
+            }
+            return merged;
+        }
+
+        private static long currentMinute() {
+            return TimeUnit.NANOSECONDS.toMinutes(System.nanoTime());
+        }
+    }
+}
@@ -0,0 +1,474 @@
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+// Server-side SQLite connections shared by all clients. SQLite allows a single writer at a time,
+// so every write goes through one dedicated connection on its own thread (a serialized queue),
+// while reads are spread over a fixed pool of query-only connections. With WAL journaling the
+// readers see the last committed snapshot and never block, or are blocked by, the writer.
+//
+// Writes of a single INSERT, UPDATE or DELETE can go through writeGrouped() instead, which commits
+// the ones queued at the same time in one transaction (group commit): each commit waits for the disk,
+// so at busy times a commit per write is what limits how many writes go through. Every write still
+// gets its own savepoint and its own result. How long the writer waits for more writes to join a
+// group, and how many at most, trades latency against throughput; the synchronous setting trades
+// durability against both.
+class DatabasePool implements AutoCloseable {
+    private static final int BUSY_TIMEOUT_MILLIS = 5000;
+    private static final int MAX_BUSY_RETRIES = 3;
+    private static final List<String> SYNCHRONOUS_LEVELS = Arrays.asList("OFF", "NORMAL", "FULL", "EXTRA");
+
+    private final Connection writer;
+    private final ExecutorService writerQueue;
+    private final BlockingQueue<Connection> readers;
+    private final long readerWaitMillis;
+    // Each connection is only ever used by one thread at a time, so its cache needs no locking
+    private final Map<Connection, StatementCache> statementCaches = new IdentityHashMap<>();
+    private volatile SqlWork<Void> afterWrite;
+    private final LongAdder busyRetries = new LongAdder();
+    private final LatencyHistogram writeWaits = new LatencyHistogram();
+    private final int groupCommitMax;
+    private final long groupCommitWindowNanos;
+    private final BlockingQueue<GroupedWrite<?>> groupedWrites = new LinkedBlockingQueue<>();
+    private final LongAdder writes = new LongAdder();
+    private final LongAdder writeTransactions = new LongAdder();
+
+    // synchronous is SQLite's setting for the writer (OFF, NORMAL, FULL or EXTRA). Up to groupCommitMax
+    // grouped writes share a transaction; the writer waits up to groupCommitWindowMicros for more to
+    // arrive after the first, or with 0 takes only those already queued.
+    DatabasePool(String url, int readerCount, long readerWaitMillis, int statementCacheSize,
+                 String synchronous, int groupCommitMax, long groupCommitWindowMicros) throws SQLException {
+        if (!SYNCHRONOUS_LEVELS.contains(synchronous.toUpperCase())) {
+            throw new SQLException("Unknown synchronous setting " + synchronous + ", expected one of " + SYNCHRONOUS_LEVELS);
+        }
+        this.readerWaitMillis = readerWaitMillis;
+        this.groupCommitMax = Math.max(1, groupCommitMax);
+        this.groupCommitWindowNanos = TimeUnit.MICROSECONDS.toNanos(groupCommitWindowMicros);
+        this.writer = DriverManager.getConnection(url);
+        configure(writer, false);
+        try (Statement stmt = writer.createStatement()) {
+            stmt.execute("PRAGMA synchronous = " + synchronous.toUpperCase());
+        }
+        statementCaches.put(writer, new StatementCache(statementCacheSize));
+        this.writerQueue = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "sqlite-writer");
+            t.setDaemon(true);
+            return t;
+        });
+
+        this.readers = new ArrayBlockingQueue<>(readerCount);
+        for (int i = 0; i < readerCount; i++) {
+            Connection conn = DriverManager.getConnection(url);
+            configure(conn, true);
+            statementCaches.put(conn, new StatementCache(statementCacheSize));
+            readers.add(conn);
+        }
+    }
+
+    private static void configure(Connection conn, boolean readOnly) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("PRAGMA busy_timeout = " + BUSY_TIMEOUT_MILLIS);
+            if (readOnly) {
+                // Any write that slips onto a reader fails instead of competing for the write lock
+                stmt.execute("PRAGMA query_only = ON");
+            }
+        }
+    }
+
+    // Statements that can run on a read-only connection; everything else is treated as a write
+    static boolean isReadOnly(String sql) {
+        String head = sql.stripLeading();
+        int end = 0;
+        while (end < head.length() && Character.isLetter(head.charAt(end))) {
+            end++;
+        }
+        String keyword = head.substring(0, end).toUpperCase();
+        if (keyword.equals("SELECT") || keyword.equals("EXPLAIN")) {
+            return true;
+        }
+        if (keyword.equals("WITH")) {
+            String upper = head.toUpperCase();
+            return !upper.contains("INSERT") && !upper.contains("UPDATE") && !upper.contains("DELETE") && !upper.contains("REPLACE");
+        }
+        return false;
+    }
+
+    // Statements that may share a transaction with other writes: one INSERT, UPDATE, DELETE or REPLACE.
+    // Anything else, such as CREATE TABLE, gets a turn of its own.
+    static boolean isGroupable(String sql) {
+        String keyword = firstKeyword(sql);
+        return keyword.equals("INSERT") || keyword.equals("UPDATE") || keyword.equals("DELETE") || keyword.equals("REPLACE");
+    }
+
+    // Statements that change the connection they run on rather than the data: transactions, savepoints,
+    // PRAGMAs and attached databases. The connections are shared by every client, so after a client's
+    // BEGIN everyone else's writes would join its transaction; these are only for the server's own use.
+    static boolean changesConnection(String sql) {
+        switch (firstKeyword(sql)) {
+            case "BEGIN":
+            case "COMMIT":
+            case "END":
+            case "ROLLBACK":
+            case "SAVEPOINT":
+            case "RELEASE":
+            case "PRAGMA":
+            case "ATTACH":
+            case "DETACH":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static String firstKeyword(String sql) {
+        String head = sql.stripLeading();
+        int end = 0;
+        while (end < head.length() && Character.isLetter(head.charAt(end))) {
+            end++;
+        }
+        return head.substring(0, end).toUpperCase();
+    }
+
+    // Prepared statement for sql on conn, reused across executions; callers must not close it
+    PreparedStatement prepareCached(Connection conn, String sql) throws SQLException {
+        return statementCaches.get(conn).get(conn, sql);
+    }
+
+    // Runs read work on a pooled reader connection, waiting if all readers are in use
+    <T> T read(SqlWork<T> work) throws SQLException {
+        Connection conn;
+        try {
+            conn = readers.poll(readerWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database reader");
+        }
+        if (conn == null) {
+            throw new SQLException("Timed out waiting for a free database reader");
+        }
+        try {
+            return work.run(conn);
+        } finally {
+            readers.add(conn);
+        }
+    }
+
+    // Runs on the writer thread after every write, whether it succeeded or not, before the next one starts.
+    // Failures are logged and do not affect the write.
+    void setAfterWrite(SqlWork<Void> afterWrite) {
+        this.afterWrite = afterWrite;
+    }
+
+    // Queues write work behind every earlier write and waits for it to finish on the writer thread
+    <T> T write(SqlWork<T> work) throws SQLException {
+        long queued = System.nanoTime();
+        Future<T> future = writerQueue.submit(() -> {
+            writeWaits.recordNanos(System.nanoTime() - queued);
+            try {
+                T result = withBusyRetry(work);
+                writes.increment();
+                writeTransactions.increment();
+                return result;
+            } finally {
+                runAfterWrite();
+            }
+        });
+        return await(future);
+    }
+
+    // Like write(), but the work may be committed in one transaction with other grouped writes. It must
+    // leave the transaction alone and its changes must be undone by rolling back to a savepoint, which
+    // holds for a single statement that isGroupable(). Its result, or the exception it threw, is returned
+    // once the transaction has committed.
+    <T> T writeGrouped(SqlWork<T> work) throws SQLException {
+        if (groupCommitMax == 1) {
+            return write(work);
+        }
+        GroupedWrite<T> write = new GroupedWrite<>(work);
+        groupedWrites.add(write);
+        writerQueue.execute(this::commitGroup);
+        return await(write.result);
+    }
+
+    private static <T> T await(Future<T> future) throws SQLException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(false);
+            throw new SQLException("Interrupted while waiting for the database writer");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException) {
+                throw (SQLException) cause;
+            }
+            throw new SQLException(cause.getMessage(), cause);
+        }
+    }
+
+    // Runs on the writer thread, once per grouped write queued; takes every grouped write queued so far,
+    // waiting up to the window for more, unless an earlier turn already took them all
+    private void commitGroup() {
+        List<GroupedWrite<?>> group = new ArrayList<>();
+        groupedWrites.drainTo(group, groupCommitMax);
+        if (group.isEmpty()) {
+            return;
+        }
+        long deadline = System.nanoTime() + groupCommitWindowNanos;
+        try {
+            while (group.size() < groupCommitMax) {
+                long remaining = deadline - System.nanoTime();
+                GroupedWrite<?> next = remaining > 0 ? groupedWrites.poll(remaining, TimeUnit.NANOSECONDS) : groupedWrites.poll();
+                if (next == null) {
+                    break;
+                }
+                group.add(next);
+                groupedWrites.drainTo(group, groupCommitMax - group.size());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        group.removeIf(write -> write.result.isDone()); // Given up on while queued
+
+        long started = System.nanoTime();
+        for (GroupedWrite<?> write : group) {
+            writeWaits.recordNanos(started - write.queued);
+        }
+        try {
+            if (group.size() == 1 || !commitTogether(group)) {
+                for (GroupedWrite<?> write : group) {
+                    write.runAlone();
+                }
+            }
+        } finally {
+            runAfterWrite();
+        }
+        for (GroupedWrite<?> write : group) {
+            write.complete();
+        }
+    }
+
+    // Runs the writes in one transaction, each in a savepoint of its own so a failing one (a UNIQUE
+    // constraint, say) is undone alone and reported to its caller while the others commit. Returns
+    // false, with nothing committed, if the transaction failed as a whole or the database was busy;
+    // the writes are then run again one at a time.
+    private boolean commitTogether(List<GroupedWrite<?>> group) {
+        try {
+            writer.setAutoCommit(false);
+        } catch (SQLException e) {
+            return false;
+        }
+        try {
+            for (GroupedWrite<?> write : group) {
+                Savepoint savepoint = writer.setSavepoint();
+                try {
+                    write.run(writer);
+                    writer.releaseSavepoint(savepoint);
+                } catch (SQLException e) {
+                    writer.rollback(savepoint);
+                    writer.releaseSavepoint(savepoint);
+                    if (isBusy(e)) {
+                        throw e;
+                    }
+                    write.failed(e);
+                }
+            }
+            writer.commit();
+            long committed = group.stream().filter(write -> write.failure == null).count();
+            if (committed > 0) {
+                writes.add(committed);
+                writeTransactions.increment();
+            }
+            return true;
+        } catch (SQLException | RuntimeException e) {
+            try {
+                writer.rollback();
+            } catch (SQLException rollbackFailure) {
+                rollbackFailure.printStackTrace();
+            }
+            return false;
+        } finally {
+            try {
+                writer.setAutoCommit(true);
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private <T> T withBusyRetry(SqlWork<T> work) throws SQLException {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return work.run(writer);
+            } catch (SQLException e) {
+                if (!isBusy(e) || attempt >= MAX_BUSY_RETRIES) {
+                    throw e;
+                }
+                busyRetries.increment();
+                try {
+                    Thread.sleep(10L << attempt);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private void runAfterWrite() {
+        SqlWork<Void> hook = afterWrite;
+        if (hook == null) {
+            return;
+        }
+        try {
+            hook.run(writer);
+        } catch (SQLException | RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Writes run again because SQLite reported the database busy, since the pool was opened
+    long busyRetries() {
+        return busyRetries.sum();
+    }
+
+    // How long writes waited for the writer thread behind earlier ones
+    LatencyHistogram writeWaits() {
+        return writeWaits;
+    }
+
+    // Writes committed on the writer connection, and the transactions they were committed in; with group
+    // commit there are fewer transactions than writes. A write is counted once, when it commits, also
+    // when its group had to fall back to running it alone; failed writes are not counted.
+    long writes() {
+        return writes.sum();
+    }
+
+    long writeTransactions() {
+        return writeTransactions.sum();
+    }
+
+    static boolean isBusy(SQLException e) {
+        return (e.getErrorCode() & 0xff) == 5; // SQLITE_BUSY and its extended codes
+    }
+
+    @Override
+    public void close() {
+        writerQueue.shutdown();
+        try {
+            writerQueue.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (StatementCache cache : statementCaches.values()) {
+            cache.clear();
+        }
+        closeQuietly(writer);
+        Connection conn;
+        while ((conn = readers.poll()) != null) {
+            closeQuietly(conn);
+        }
+    }
+
+    private static void closeQuietly(Connection conn) {
+        try {
+            conn.close();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Least-recently-used prepared statements of one connection, keyed by SQL text
+    static class StatementCache {
+        private final int maxSize;
+        private final LinkedHashMap<String, PreparedStatement> statements;
+
+        StatementCache(int maxSize) {
+            this.maxSize = maxSize;
+            this.statements = new LinkedHashMap<>(16, 0.75f, true);
+        }
+
+        PreparedStatement get(Connection conn, String sql) throws SQLException {
+            PreparedStatement stmt = statements.get(sql);
+            if (stmt != null) {
+                return stmt;
+            }
+            stmt = conn.prepareStatement(sql);
+            statements.put(sql, stmt);
+            if (statements.size() > maxSize) {
+                Map.Entry<String, PreparedStatement> eldest = statements.entrySet().iterator().next();
+                statements.remove(eldest.getKey());
+                closeQuietly(eldest.getValue());
+            }
+            return stmt;
+        }
+
+        void clear() {
+            for (PreparedStatement stmt : statements.values()) {
+                closeQuietly(stmt);
+            }
+            statements.clear();
+        }
+
+        private static void closeQuietly(Statement stmt) {
+            try {
+                stmt.close();
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    // A write queued for writeGrouped(); its result is held back until the transaction has committed
+    private final class GroupedWrite<T> {
+        final SqlWork<T> work;
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        final long queued = System.nanoTime();
+        private T value;
+        private Throwable failure;
+
+        GroupedWrite(SqlWork<T> work) {
+            this.work = work;
+        }
+
+        void run(Connection conn) throws SQLException {
+            value = work.run(conn);
+            failure = null;
+        }
+
+        void failed(SQLException e) {
+            value = null;
+            failure = e;
+        }
+
+        void runAlone() {
+            try {
+                value = withBusyRetry(work);
+                failure = null;
+                writes.increment();
+                writeTransactions.increment();
+            } catch (SQLException | RuntimeException e) {
+                failed(e instanceof SQLException ? (SQLException) e : new SQLException(e.getMessage(), e));
+            }
+        }
+
+        void complete() {
+            if (failure != null) {
+                result.completeExceptionally(failure);
+            } else {
+                result.complete(value);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    interface SqlWork<T> {
+        T run(Connection conn) throws SQLException;
+    }
+}
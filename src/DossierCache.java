@@ -0,0 +1,114 @@
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Recently fetched dossiers by studentID, trusted only while the change subscription is up. A fetch
+// that overlapped any invalidation is not stored, since it may have read the record before the change.
+final class DossierCache implements ChangeSubscription.Listener {
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final LinkedHashMap<String, Entry> entries;
+    private boolean active;
+    private long epoch; // Counts invalidations, so put() can tell whether one happened during the fetch
+    private long hits;
+    private long misses;
+
+    private static final class Entry {
+        final Map<String, QueryResult> dossier;
+        final long fetchedAt;
+
+        Entry(Map<String, QueryResult> dossier, long fetchedAt) {
+            this.dossier = dossier;
+            this.fetchedAt = fetchedAt;
+        }
+    }
+
+    DossierCache(int maxEntries, long ttlMillis) {
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttlMillis * 1_000_000;
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > DossierCache.this.maxEntries;
+            }
+        };
+    }
+
+    // The cached dossier, or null if there is none that can be trusted
+    synchronized Map<String, QueryResult> get(String studentID) {
+        Entry entry = active ? entries.get(studentID) : null;
+        if (entry != null && System.nanoTime() - entry.fetchedAt > ttlNanos) {
+            entries.remove(studentID);
+            entry = null;
+        }
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.dossier;
+    }
+
+    // Take before fetching and hand to put() with the result
+    synchronized long epoch() {
+        return epoch;
+    }
+
+    // Stores a dossier fetched since epoch() returned fetchEpoch, unless it may already be out of date.
+    // Returns the dossier as callers should keep it.
+    synchronized Map<String, QueryResult> put(String studentID, Map<String, QueryResult> dossier, long fetchEpoch) {
+        Map<String, QueryResult> stored = Collections.unmodifiableMap(dossier);
+        if (active && fetchEpoch == epoch && !hasError(dossier)) {
+            entries.put(studentID, new Entry(stored, System.nanoTime()));
+        }
+        return stored;
+    }
+
+    synchronized void invalidate(String studentID) {
+        epoch++;
+        entries.remove(studentID);
+    }
+
+    synchronized void clear() {
+        epoch++;
+        entries.clear();
+    }
+
+    synchronized long getHits() {
+        return hits;
+    }
+
+    synchronized long getMisses() {
+        return misses;
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    @Override
+    public synchronized void subscribed() {
+        clear(); // Anything changed while the feed was down has not been reported
+        active = true;
+    }
+
+    @Override
+    public void changed(RecordChange change) {
+        invalidate(change.studentID);
+    }
+
+    @Override
+    public synchronized void unsubscribed() {
+        active = false;
+        clear();
+    }
+
+    private static boolean hasError(Map<String, QueryResult> dossier) {
+        for (QueryResult result : dossier.values()) {
+            if (result.isError()) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
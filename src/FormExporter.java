@@ -0,0 +1,184 @@
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+// Writes every form table to one workbook without holding the tables in memory. Each table is read
+// through its own cursor on its own thread, so the three are fetched from the server in parallel;
+// the rows meet in a bounded queue and a single thread writes them to a streaming workbook that only
+// keeps ROW_WINDOW rows per sheet in memory and spills the rest to a temporary file.
+class FormExporter {
+    // Form tables and the sheet each is exported to, in sheet order
+    static final Map<String, String> SHEET_NAMES = sheetNames();
+
+    private static final int ROW_WINDOW = 100;
+    // Place evaluation rows carry 26 free-text columns, so at most CHUNK_ROWS * QUEUE_CHUNKS rows wait in memory
+    private static final int CHUNK_ROWS = 64;
+    private static final int QUEUE_CHUNKS = 8;
+
+    @FunctionalInterface
+    interface Progress {
+        void update(long written, long total);
+    }
+
+    private static Map<String, String> sheetNames() {
+        Map<String, String> names = new LinkedHashMap<>();
+        names.put("InternshipAcceptance", "Internship Acceptance");
+        names.put("InternEvaluation", "Intern Evaluation");
+        names.put("InternshipPlaceEvaluation", "Internship Place Evaluation");
+        return Collections.unmodifiableMap(names);
+    }
+
+    // Rows of all form tables together, used to size the progress bar; -1 if it cannot be counted
+    static long countRows() {
+        List<String> counts = new ArrayList<>();
+        for (String table : SHEET_NAMES.keySet()) {
+            counts.add("(SELECT COUNT(*) FROM " + table + ")");
+        }
+        QueryResult result = SQLiteClient.execute("SELECT " + String.join(" + ", counts));
+        if (result.isError() || result.rowCount() == 0) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(String.valueOf(result.getRows().get(0)[0]));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    // Returns false if cancelled before the file was written
+    static boolean export(File file, long total, Progress progress, BooleanSupplier cancelled) throws IOException, InterruptedException {
+        List<String> tables = new ArrayList<>(SHEET_NAMES.keySet());
+        BlockingQueue<Chunk> queue = new ArrayBlockingQueue<>(QUEUE_CHUNKS);
+        ExecutorService readers = Executors.newFixedThreadPool(tables.size());
+        SXSSFWorkbook workbook = new SXSSFWorkbook(ROW_WINDOW);
+        workbook.setCompressTempFiles(true);
+        try {
+            Sheet[] sheets = new Sheet[tables.size()];
+            int[] nextRow = new int[tables.size()];
+            for (int i = 0; i < tables.size(); i++) {
+                sheets[i] = workbook.createSheet(SHEET_NAMES.get(tables.get(i)));
+                int sheet = i;
+                readers.execute(() -> read(sheet, tables.get(sheet), queue));
+            }
+
+            long written = 0;
+            int open = tables.size();
+            while (open > 0) {
+                if (cancelled.getAsBoolean()) {
+                    return false;
+                }
+                Chunk chunk = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (chunk == null) {
+                    continue;
+                }
+                if (chunk.failure != null) {
+                    throw new IOException("Error reading " + tables.get(chunk.sheet) + ": " + chunk.failure.getMessage(), chunk.failure);
+                }
+                Sheet sheet = sheets[chunk.sheet];
+                if (chunk.columns != null) {
+                    Row header = sheet.createRow(nextRow[chunk.sheet]++);
+                    for (int j = 0; j < chunk.columns.length; j++) {
+                        header.createCell(j).setCellValue(chunk.columns[j]);
+                    }
+                }
+                for (Object[] values : chunk.rows) {
+                    Row row = sheet.createRow(nextRow[chunk.sheet]++);
+                    for (int j = 0; j < values.length; j++) {
+                        setCellValue(row.createCell(j), values[j]);
+                    }
+                }
+                written += chunk.rows.size();
+                if (chunk.last) {
+                    open--;
+                }
+                progress.update(written, total);
+            }
+
+            if (cancelled.getAsBoolean()) {
+                return false;
+            }
+            try (OutputStream out = new FileOutputStream(file)) {
+                workbook.write(out);
+            }
+            return true;
+        } finally {
+            readers.shutdownNow(); // Readers blocked on a full queue give up once nobody is taking from it
+            workbook.dispose();
+            workbook.close();
+        }
+    }
+
+    // Runs on a reader thread: hands the table's rows to the writer in chunks
+    private static void read(int sheet, String table, BlockingQueue<Chunk> queue) {
+        try {
+            try (ResultCursor cursor = SQLiteClient.openCursor("SELECT * FROM " + table)) {
+                if (cursor.isError()) {
+                    throw new IOException(cursor.getError());
+                }
+                StorageCodec.Decoder decoder = StorageCodec.decoder(table, cursor.getColumns());
+                String[] columns = decoder.columns();
+                List<Object[]> rows = new ArrayList<>(CHUNK_ROWS);
+                while (cursor.hasNext()) {
+                    rows.add(decoder.decode(cursor.next()));
+                    if (rows.size() == CHUNK_ROWS) {
+                        queue.put(new Chunk(sheet, columns, rows, false, null));
+                        columns = null;
+                        rows = new ArrayList<>(CHUNK_ROWS);
+                    }
+                }
+                if (cursor.isError()) {
+                    throw new IOException(cursor.getError());
+                }
+                queue.put(new Chunk(sheet, columns, rows, true, null));
+            } catch (IOException | UncheckedIOException e) {
+                queue.put(new Chunk(sheet, null, Collections.emptyList(), true, e));
+            }
+        } catch (InterruptedException e) {
+            // Export finished or was cancelled; closing the cursor dropped its connection
+        }
+    }
+
+    // Numbers are written as numeric cells, everything else as text
+    static void setCellValue(Cell cell, Object value) {
+        if (value instanceof Number) {
+            cell.setCellValue(((Number) value).doubleValue());
+        } else if (value != null) {
+            cell.setCellValue(value.toString());
+        }
+    }
+
+    // Rows of one sheet; the first chunk of a sheet also carries its column names
+    private static class Chunk {
+        final int sheet;
+        final String[] columns;
+        final List<Object[]> rows;
+        final boolean last;
+        final Exception failure;
+
+        Chunk(int sheet, String[] columns, List<Object[]> rows, boolean last, Exception failure) {
+            this.sheet = sheet;
+            this.columns = columns;
+            this.rows = rows;
+            this.last = last;
+            this.failure = failure;
+        }
+    }
+}
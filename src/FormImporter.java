@@ -0,0 +1,369 @@
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+// Imports forms of one table from an .xlsx or .csv file. Rows are streamed from the file rather than
+// loaded as a whole, checked with the same rules as the entry forms, and inserted BATCH_SIZE at a time
+// in one transaction per batch. Rows the server refuses, e.g. a student ID that already exists, are
+// reported individually and do not stop the rest of the file.
+//
+// The first row must name the columns, as in the "Export All Forms" workbook; unknown columns such as
+// id are ignored.
+class FormImporter {
+    static final int BATCH_SIZE = 500;
+
+    // Columns inserted for each table, in the same order as the entry forms save them
+    private static final Map<String, String[]> COLUMNS = Map.of(
+            "InternshipAcceptance", new String[]{"name", "studentID", "faculty", "dates", "institutionName",
+                    "institutionAddress", "institutionPhone", "responsibleName"},
+            "InternEvaluation", new String[]{"name", "studentID", "evaluationDate", "responsibleName", "evaluation"},
+            "InternshipPlaceEvaluation", new String[]{"name", "studentID", "institutionName", "duration",
+                    "salary", "transportation", "meals", "practiceTheory", "foreignLanguage", "responsibilities",
+                    "workingSpace", "factoryConditions", "recommendation", "futureWork", "processScore",
+                    "decisionMaking", "expectations", "researchDevelopment", "comments", "reasonForChoice",
+                    "analysisMethodsLearned", "courseAssociation", "workAssociation", "knowledgeLacks",
+                    "positiveAspects", "negativeAspects"});
+
+    // Fields the entry forms refuse to submit empty
+    private static final Map<String, String[]> REQUIRED = Map.of(
+            "InternshipAcceptance", COLUMNS.get("InternshipAcceptance"),
+            "InternEvaluation", COLUMNS.get("InternEvaluation"),
+            "InternshipPlaceEvaluation", new String[]{"name", "studentID", "institutionName", "duration"});
+
+    private final String table;
+    private final Function<Batch, Batch.Result> server;
+    private final Report report = new Report();
+
+    private String[] columns;      // Table columns present in the file
+    private int[] positions;       // Position of each of those columns in a file row
+    private String insertSql;
+    private Batch pending;
+    private final List<Integer> pendingRows = new ArrayList<>();
+    private final List<String> pendingIds = new ArrayList<>();
+
+    FormImporter(String table) {
+        this(table, SQLiteClient::executeBatch);
+    }
+
+    // server runs each batch of inserts; tests pass one backed by a local database
+    FormImporter(String table, Function<Batch, Batch.Result> server) {
+        if (!COLUMNS.containsKey(table)) {
+            throw new IllegalArgumentException("Unknown form table " + table);
+        }
+        this.table = table;
+        this.server = server;
+    }
+
+    Report importFile(File file) throws IOException {
+        String name = file.getName().toLowerCase();
+        try {
+            if (name.endsWith(".xlsx")) {
+                readWorkbook(file);
+            } else if (name.endsWith(".csv")) {
+                readCsv(file);
+            } else {
+                throw new IOException("Only .xlsx and .csv files can be imported");
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause(); // Raised from inside the sheet parser callbacks
+        }
+        if (columns == null) {
+            throw new IOException("The file is empty");
+        }
+        flush();
+        return report;
+    }
+
+    // Streams the sheet named like the table's export sheet, or the first sheet if there is none
+    private void readWorkbook(File file) throws IOException {
+        try (OPCPackage pkg = OPCPackage.open(file, PackageAccess.READ)) {
+            XSSFReader reader = new XSSFReader(pkg);
+            int sheetIndex = 0;
+            XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) reader.getSheetsData();
+            for (int i = 0; sheets.hasNext(); i++) {
+                sheets.next().close(); // Only the name is wanted, which is known once the sheet is reached
+                String sheetName = sheets.getSheetName();
+                if (sheetName.equalsIgnoreCase(FormExporter.SHEET_NAMES.get(table)) || sheetName.equalsIgnoreCase(table)) {
+                    sheetIndex = i;
+                }
+            }
+
+            ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+            StylesTable styles = reader.getStylesTable();
+            sheets = (XSSFReader.SheetIterator) reader.getSheetsData();
+            for (int i = 0; sheets.hasNext(); i++) {
+                try (InputStream sheet = sheets.next()) {
+                    if (i == sheetIndex) {
+                        XMLReader parser = XMLHelper.newXMLReader();
+                        parser.setContentHandler(new XSSFSheetXMLHandler(styles, null, strings, new SheetRows(), new DataFormatter(), false));
+                        parser.parse(new InputSource(sheet));
+                        return;
+                    }
+                }
+            }
+        } catch (OpenXML4JException | SAXException | ParserConfigurationException e) {
+            throw new IOException("Could not read " + file.getName() + ": " + e.getMessage(), e);
+        }
+    }
+
+    // Cells arrive one by one; empty cells are skipped by the parser, so place them by their reference
+    private class SheetRows implements XSSFSheetXMLHandler.SheetContentsHandler {
+        private final List<String> cells = new ArrayList<>();
+        private int nextColumn;
+
+        @Override
+        public void startRow(int rowNum) {
+            cells.clear();
+            nextColumn = 0;
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            int column = cellReference != null ? new CellReference(cellReference).getCol() : nextColumn;
+            while (cells.size() < column) {
+                cells.add("");
+            }
+            cells.add(formattedValue);
+            nextColumn = column + 1;
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            row(rowNum + 1, cells);
+        }
+    }
+
+    // RFC 4180 style: quoted fields may hold delimiters, line breaks and doubled quotes. Files saved by
+    // Excel in locales that use a decimal comma are separated by semicolons, so the header decides.
+    // The header line is read once and kept, then parsed again as the first record; a mark would be
+    // lost on a header longer than its read-ahead limit.
+    private void readCsv(File file) throws IOException {
+        try (BufferedReader lines = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            StringBuilder firstLine = new StringBuilder();
+            int c = lines.read();
+            if (c == '\uFEFF') {
+                c = lines.read();
+            }
+            for (; c != -1; c = lines.read()) {
+                firstLine.append((char) c);
+                if (c == '\r' || c == '\n') {
+                    break;
+                }
+            }
+            char delimiter = count(firstLine, ';') > count(firstLine, ',') ? ';' : ',';
+            PushbackReader in = new PushbackReader(lines, Math.max(1, firstLine.length()));
+            in.unread(firstLine.toString().toCharArray());
+
+            List<String> record = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            int rowNumber = 0;
+            while ((c = in.read()) != -1) {
+                if (quoted) {
+                    if (c == '"') {
+                        int next = in.read();
+                        if (next == '"') {
+                            field.append('"');
+                        } else {
+                            unread(in, next);
+                            quoted = false;
+                        }
+                    } else {
+                        field.append((char) c);
+                    }
+                } else if (c == '"' && field.length() == 0) {
+                    quoted = true;
+                } else if (c == delimiter) {
+                    record.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\r' || c == '\n') {
+                    if (c == '\r') {
+                        int next = in.read();
+                        if (next != '\n') {
+                            unread(in, next);
+                        }
+                    }
+                    record.add(field.toString());
+                    field.setLength(0);
+                    row(++rowNumber, record);
+                    record.clear();
+                } else {
+                    field.append((char) c);
+                }
+            }
+            if (field.length() > 0 || !record.isEmpty()) {
+                record.add(field.toString());
+                row(++rowNumber, record);
+            }
+        }
+    }
+
+    private static void unread(PushbackReader in, int c) throws IOException {
+        if (c != -1) {
+            in.unread(c);
+        }
+    }
+
+    private static int count(CharSequence text, char c) {
+        int count = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == c) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void row(int rowNumber, List<String> cells) {
+        if (columns == null) {
+            readHeader(cells);
+            return;
+        }
+        boolean blank = true;
+        for (String cell : cells) {
+            if (!cell.trim().isEmpty()) {
+                blank = false;
+                break;
+            }
+        }
+        if (blank) {
+            return;
+        }
+
+        Object[] values = new Object[columns.length];
+        String studentID = "";
+        for (int i = 0; i < columns.length; i++) {
+            String value = positions[i] < cells.size() ? cells.get(positions[i]).trim() : "";
+            values[i] = value;
+            if (columns[i].equals("studentID")) {
+                studentID = value;
+            }
+        }
+        String reason = validate(values);
+        if (reason != null) {
+            report.reject(rowNumber, studentID, reason);
+            return;
+        }
+        StorageCodec.Encoded encoded = StorageCodec.encode(table, columns, values);
+        if (insertSql == null) {
+            // The stored columns depend only on the file's columns, so one statement serves every row
+            insertSql = "INSERT INTO " + table + " (" + String.join(", ", encoded.columns) + ") VALUES (" +
+                    String.join(", ", java.util.Collections.nCopies(encoded.columns.length, "?")) + ")";
+        }
+        pending.add(insertSql, encoded.values);
+        pendingRows.add(rowNumber);
+        pendingIds.add(studentID);
+        if (pending.size() >= BATCH_SIZE) {
+            flush();
+        }
+    }
+
+    private void readHeader(List<String> cells) {
+        List<String> found = new ArrayList<>();
+        List<Integer> foundAt = new ArrayList<>();
+        for (String column : COLUMNS.get(table)) {
+            for (int i = 0; i < cells.size(); i++) {
+                if (cells.get(i).trim().equalsIgnoreCase(column)) {
+                    found.add(column);
+                    foundAt.add(i);
+                    break;
+                }
+            }
+        }
+        for (String required : REQUIRED.get(table)) {
+            if (!found.contains(required)) {
+                throw new UncheckedIOException(new IOException("The first row has no \"" + required + "\" column"));
+            }
+        }
+        columns = found.toArray(new String[0]);
+        positions = foundAt.stream().mapToInt(Integer::intValue).toArray();
+        pending = new Batch(false);
+    }
+
+    // Same checks as the entry forms (Main.isNumeric and Main.isValidDateRange, which cannot be called
+    // without bringing up the window); returns why the row is refused, or null if it can be inserted
+    private String validate(Object[] values) {
+        for (String required : REQUIRED.get(table)) {
+            if (value(values, required).isEmpty()) {
+                return "The " + required + " field is empty";
+            }
+        }
+        if (!value(values, "studentID").matches("\\d+")) {
+            return "Student ID must be a number";
+        }
+        long[] days = table.equals("InternshipAcceptance") ? StorageCodec.parseDateRange(value(values, "dates")) : null;
+        if (table.equals("InternshipAcceptance") && (days == null || days[0] > days[1])) {
+            return "Internship dates must be in the format dd.MM.yy-dd.MM.yy with the start before the end";
+        }
+        return null;
+    }
+
+    private String value(Object[] values, String column) {
+        for (int i = 0; i < columns.length; i++) {
+            if (columns[i].equals(column)) {
+                return (String) values[i];
+            }
+        }
+        return "";
+    }
+
+    private void flush() {
+        if (pending == null || pending.size() == 0) {
+            return;
+        }
+        List<QueryResult> results = server.apply(pending).getResults();
+        for (int i = 0; i < results.size(); i++) {
+            QueryResult result = results.get(i);
+            if (!result.isError()) {
+                report.imported++;
+                SQLiteClient.forgetDossier(pendingIds.get(i));
+            } else if (result.getError().contains("UNIQUE constraint failed")) {
+                report.reject(pendingRows.get(i), pendingIds.get(i), "A record with this Student ID already exists");
+            } else {
+                report.reject(pendingRows.get(i), pendingIds.get(i), result.getError());
+            }
+        }
+        pending = new Batch(false);
+        pendingRows.clear();
+        pendingIds.clear();
+    }
+
+    static class Report {
+        private int imported;
+        // Rows refused by validation come before those refused by the server in the same batch
+        private final TreeMap<Integer, String> rejects = new TreeMap<>();
+
+        void reject(int row, String studentID, String reason) {
+            rejects.put(row, "Row " + row + (studentID.isEmpty() ? "" : " (Student ID " + studentID + ")") + ": " + reason);
+        }
+
+        int getImported() {
+            return imported;
+        }
+
+        // In file order
+        List<String> getRejects() {
+            return new ArrayList<>(rejects.values());
+        }
+    }
+}
@@ -0,0 +1,116 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Ranked full-text search over the long free-text answers. FormTextSearch is an FTS5 index holding one
+// row per place evaluation and one per intern evaluation, kept in step with both tables by triggers.
+// Its rowid is the form's id, negated for InternEvaluation so the two never collide.
+//
+// Searches are built here from what the user typed rather than passing it to MATCH as it is, so FTS5
+// query syntax in the input cannot cause an error: every word is matched as a prefix ("safe" finds
+// "safety"), words in double quotes as a phrase, and all of them must appear. Accents are ignored.
+final class FormSearch {
+    static final int MAX_RESULTS = 200;
+
+    // Marks the matched words in a snippet; the UI turns them into highlighting
+    static final char MATCH_START = '\u0002';
+    static final char MATCH_END = '\u0003';
+
+    static final String[] PLACE_EVALUATION_COLUMNS = {"comments", "reasonForChoice", "analysisMethodsLearned",
+            "knowledgeLacks", "positiveAspects", "negativeAspects"};
+    static final String EVALUATION_COLUMN = "evaluation";
+
+    // Best matches first. Snippets are kept on one line so they also survive the text protocol.
+    static final String SQL = "SELECT formTable, studentID, name, institutionName, " +
+            "replace(replace(" + answerSnippet() + ", char(13), ' '), char(10), ' ') AS snippet " +
+            "FROM FormTextSearch WHERE FormTextSearch MATCH ? ORDER BY rank LIMIT ?";
+
+    private static final Pattern PHRASE_OR_WORD = Pattern.compile("\"([^\"]*)\"?|[\\p{L}\\p{N}]+");
+    private static final Pattern WORD = Pattern.compile("[\\p{L}\\p{N}]+");
+
+    private FormSearch() {
+    }
+
+    static String[] schema() {
+        List<String> sql = new ArrayList<>();
+        String textColumns = String.join(", ", PLACE_EVALUATION_COLUMNS) + ", " + EVALUATION_COLUMN;
+        sql.add("CREATE VIRTUAL TABLE FormTextSearch USING fts5(formTable UNINDEXED, studentID UNINDEXED, name UNINDEXED, " +
+                "institutionName, " + textColumns + ", tokenize = 'unicode61 remove_diacritics 2')");
+
+        String placeColumns = "formTable, studentID, name, institutionName, " + String.join(", ", PLACE_EVALUATION_COLUMNS);
+        String placeValues = "'InternshipPlaceEvaluation', NEW.studentID, NEW.name, NEW.institutionName, NEW." +
+                String.join(", NEW.", PLACE_EVALUATION_COLUMNS);
+        sql.add("CREATE TRIGGER place_evaluation_search_insert AFTER INSERT ON InternshipPlaceEvaluation FOR EACH ROW BEGIN " +
+                "INSERT INTO FormTextSearch (rowid, " + placeColumns + ") VALUES (NEW.id, " + placeValues + "); END");
+        sql.add("CREATE TRIGGER place_evaluation_search_delete AFTER DELETE ON InternshipPlaceEvaluation FOR EACH ROW BEGIN " +
+                "DELETE FROM FormTextSearch WHERE rowid = OLD.id; END");
+        sql.add("CREATE TRIGGER place_evaluation_search_update AFTER UPDATE OF studentID, name, institutionName, " +
+                String.join(", ", PLACE_EVALUATION_COLUMNS) + " ON InternshipPlaceEvaluation FOR EACH ROW BEGIN " +
+                "DELETE FROM FormTextSearch WHERE rowid = OLD.id; " +
+                "INSERT INTO FormTextSearch (rowid, " + placeColumns + ") VALUES (NEW.id, " + placeValues + "); END");
+
+        String evaluationColumns = "formTable, studentID, name, " + EVALUATION_COLUMN;
+        String evaluationValues = "'InternEvaluation', NEW.studentID, NEW.name, NEW." + EVALUATION_COLUMN;
+        sql.add("CREATE TRIGGER evaluation_search_insert AFTER INSERT ON InternEvaluation FOR EACH ROW BEGIN " +
+                "INSERT INTO FormTextSearch (rowid, " + evaluationColumns + ") VALUES (-NEW.id, " + evaluationValues + "); END");
+        sql.add("CREATE TRIGGER evaluation_search_delete AFTER DELETE ON InternEvaluation FOR EACH ROW BEGIN " +
+                "DELETE FROM FormTextSearch WHERE rowid = -OLD.id; END");
+        sql.add("CREATE TRIGGER evaluation_search_update AFTER UPDATE OF studentID, name, " + EVALUATION_COLUMN +
+                " ON InternEvaluation FOR EACH ROW BEGIN " +
+                "DELETE FROM FormTextSearch WHERE rowid = -OLD.id; " +
+                "INSERT INTO FormTextSearch (rowid, " + evaluationColumns + ") VALUES (-NEW.id, " + evaluationValues + "); END");
+
+        sql.add("INSERT INTO FormTextSearch (rowid, " + placeColumns + ") SELECT id, 'InternshipPlaceEvaluation', studentID, name, " +
+                "institutionName, " + String.join(", ", PLACE_EVALUATION_COLUMNS) + " FROM InternshipPlaceEvaluation");
+        sql.add("INSERT INTO FormTextSearch (rowid, " + evaluationColumns + ") SELECT -id, 'InternEvaluation', studentID, name, " +
+                EVALUATION_COLUMN + " FROM InternEvaluation");
+        return sql.toArray(new String[0]);
+    }
+
+    // A snippet from the first answer with a match in it, so a search narrowed to an institution does not
+    // show the institution name instead; the name is shown only when the search was for nothing else
+    private static String answerSnippet() {
+        StringBuilder sql = new StringBuilder("CASE");
+        int firstAnswerColumn = 4; // After formTable, studentID, name and institutionName
+        for (int i = 0; i <= PLACE_EVALUATION_COLUMNS.length; i++) {
+            String snippet = "snippet(FormTextSearch, " + (firstAnswerColumn + i) + ", char(2), char(3), '…', 16)";
+            sql.append(" WHEN instr(").append(snippet).append(", char(2)) > 0 THEN ").append(snippet);
+        }
+        return sql.append(" ELSE snippet(FormTextSearch, -1, char(2), char(3), '…', 16) END").toString();
+    }
+
+    // The MATCH expression for words to find in the answers, optionally only at institutions whose name
+    // starts with institution; null if neither has anything to search for
+    static String matchExpression(String text, String institution) {
+        List<String> terms = new ArrayList<>();
+        Matcher matcher = PHRASE_OR_WORD.matcher(text != null ? text : "");
+        while (matcher.find()) {
+            String phrase = matcher.group(1) != null ? words(matcher.group(1)) : matcher.group();
+            if (!phrase.isEmpty()) {
+                terms.add("\"" + phrase + "\"" + (matcher.group(1) != null ? "" : "*"));
+            }
+        }
+        String institutionPhrase = words(institution != null ? institution : "");
+
+        List<String> parts = new ArrayList<>();
+        if (!terms.isEmpty()) {
+            parts.add("{" + String.join(" ", PLACE_EVALUATION_COLUMNS) + " " + EVALUATION_COLUMN + "} : (" +
+                    String.join(" AND ", terms) + ")");
+        }
+        if (!institutionPhrase.isEmpty()) {
+            parts.add("institutionName : \"" + institutionPhrase + "\"*");
+        }
+        return parts.isEmpty() ? null : String.join(" AND ", parts);
+    }
+
+    // The words of text separated by single spaces, which is all that goes inside an FTS5 string
+    private static String words(String text) {
+        List<String> words = new ArrayList<>();
+        Matcher matcher = WORD.matcher(text);
+        while (matcher.find()) {
+            words.add(matcher.group());
+        }
+        return String.join(" ", words);
+    }
+}
@@ -0,0 +1,195 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Per-institution, per-term rating summaries kept current by triggers, so the Statistics tab never reads
+// InternshipPlaceEvaluation. Answers not stored as numbers (see StorageCodec) are left out of the averages.
+final class InstitutionStatistics {
+    // Likert questions and salary, by column, with the text shown in the Statistics tab
+    static final Map<String, String> QUESTIONS = questions();
+
+    private static final String[] TERM_NAMES = {"Spring", "Summer", "Fall"};
+
+    private InstitutionStatistics() {
+    }
+
+    private static Map<String, String> questions() {
+        Map<String, String> questions = new LinkedHashMap<>();
+        questions.put("salary", "Salary paid");
+        questions.put("transportation", "Transportation provided");
+        questions.put("meals", "Meals provided");
+        questions.put("practiceTheory", "Practiced theoretical knowledge");
+        questions.put("foreignLanguage", "Used foreign languages");
+        questions.put("responsibilities", "Foreign language helped with responsibilities");
+        questions.put("workingSpace", "Individual working place");
+        questions.put("factoryConditions", "Factory/workshop conditions");
+        questions.put("recommendation", "Would suggest to friends");
+        questions.put("futureWork", "Would work there after graduation");
+        return Collections.unmodifiableMap(questions);
+    }
+
+    // Summary tables, their triggers and the initial fill from the evaluations already stored
+    static String[] schema() {
+        List<String> sql = new ArrayList<>();
+        StringBuilder scoreColumns = new StringBuilder();
+        for (String score : StorageCodec.SCORE_COLUMNS) {
+            scoreColumns.append(score).append("Sum INTEGER NOT NULL DEFAULT 0, ")
+                    .append(score).append("Count INTEGER NOT NULL DEFAULT 0, ");
+        }
+        sql.add("CREATE TABLE InstitutionTermStats (" +
+                "institutionName TEXT NOT NULL, term TEXT NOT NULL, evaluations INTEGER NOT NULL DEFAULT 0, " +
+                scoreColumns + "PRIMARY KEY (institutionName, term)) WITHOUT ROWID");
+        sql.add("CREATE TABLE InstitutionAnswerStats (" +
+                "institutionName TEXT NOT NULL, term TEXT NOT NULL, question TEXT NOT NULL, answer INTEGER NOT NULL, " +
+                "responses INTEGER NOT NULL, PRIMARY KEY (institutionName, term, question, answer)) WITHOUT ROWID");
+        sql.add("CREATE INDEX idx_institution_term_stats_term ON InstitutionTermStats (term)");
+
+        String changedColumns = "institutionName, studentID, " + String.join(", ", QUESTIONS.keySet()) + ", " +
+                String.join(", ", StorageCodec.SCORE_COLUMNS);
+        sql.add(trigger("place_evaluation_stats_insert", "AFTER INSERT ON InternshipPlaceEvaluation",
+                contribution(1, "e.id = NEW.id")));
+        sql.add(trigger("place_evaluation_stats_delete", "BEFORE DELETE ON InternshipPlaceEvaluation",
+                contribution(-1, "e.id = OLD.id")));
+        sql.add(trigger("place_evaluation_stats_update_old", "BEFORE UPDATE OF " + changedColumns + " ON InternshipPlaceEvaluation",
+                contribution(-1, "e.id = OLD.id")));
+        sql.add(trigger("place_evaluation_stats_update_new", "AFTER UPDATE OF " + changedColumns + " ON InternshipPlaceEvaluation",
+                contribution(1, "e.id = NEW.id")));
+
+        // The term is looked up when each statement runs, so the BEFORE trigger removes an evaluation from
+        // its old term and the AFTER trigger adds it to the new one
+        String moved = "e.studentID IN (OLD.studentID, NEW.studentID)";
+        sql.add(trigger("acceptance_stats_insert_old", "BEFORE INSERT ON InternshipAcceptance",
+                contribution(-1, "e.studentID = NEW.studentID")));
+        sql.add(trigger("acceptance_stats_insert_new", "AFTER INSERT ON InternshipAcceptance",
+                contribution(1, "e.studentID = NEW.studentID")));
+        sql.add(trigger("acceptance_stats_delete_old", "BEFORE DELETE ON InternshipAcceptance",
+                contribution(-1, "e.studentID = OLD.studentID")));
+        sql.add(trigger("acceptance_stats_delete_new", "AFTER DELETE ON InternshipAcceptance",
+                contribution(1, "e.studentID = OLD.studentID")));
+        sql.add(trigger("acceptance_stats_update_old", "BEFORE UPDATE OF studentID, startDay ON InternshipAcceptance",
+                contribution(-1, moved)));
+        sql.add(trigger("acceptance_stats_update_new", "AFTER UPDATE OF studentID, startDay ON InternshipAcceptance",
+                contribution(1, moved)));
+
+        sql.addAll(contribution(1, "1"));
+        return sql.toArray(new String[0]);
+    }
+
+    private static String trigger(String name, String event, List<String> statements) {
+        return "CREATE TRIGGER " + name + " " + event + " FOR EACH ROW BEGIN " + String.join("; ", statements) + "; END";
+    }
+
+    // Adds (sign 1) or takes away (sign -1) what the evaluations matching where contribute to the summaries
+    private static List<String> contribution(int sign, String where) {
+        String factor = sign < 0 ? "-" : "";
+        StringBuilder columns = new StringBuilder("SELECT COALESCE(e.institutionName, '') AS institutionName, ")
+                .append(termOf("e.studentID")).append(" AS term");
+        for (String question : QUESTIONS.keySet()) {
+            columns.append(", e.").append(question);
+        }
+        for (String score : StorageCodec.SCORE_COLUMNS) {
+            columns.append(", e.").append(score);
+        }
+        String rows = "(" + columns + " FROM InternshipPlaceEvaluation e WHERE " + where + ")";
+
+        StringBuilder insert = new StringBuilder("INSERT INTO InstitutionTermStats (institutionName, term, evaluations");
+        StringBuilder select = new StringBuilder(" SELECT institutionName, term, ").append(factor).append("COUNT(*)");
+        StringBuilder update = new StringBuilder(" ON CONFLICT (institutionName, term) DO UPDATE SET evaluations = evaluations + excluded.evaluations");
+        for (String score : StorageCodec.SCORE_COLUMNS) {
+            String isNumber = "typeof(" + score + ") = 'integer'";
+            insert.append(", ").append(score).append("Sum, ").append(score).append("Count");
+            select.append(", ").append(factor).append("COALESCE(SUM(CASE WHEN ").append(isNumber).append(" THEN ").append(score).append(" END), 0)")
+                    .append(", ").append(factor).append("COUNT(CASE WHEN ").append(isNumber).append(" THEN 1 END)");
+            update.append(", ").append(score).append("Sum = ").append(score).append("Sum + excluded.").append(score).append("Sum")
+                    .append(", ").append(score).append("Count = ").append(score).append("Count + excluded.").append(score).append("Count");
+        }
+        // WHERE true keeps SQLite from reading ON CONFLICT as part of the FROM clause
+        select.append(" FROM ").append(rows).append(" WHERE true GROUP BY institutionName, term");
+
+        StringBuilder answer = new StringBuilder("CASE q.column1");
+        StringBuilder questions = new StringBuilder();
+        for (String question : QUESTIONS.keySet()) {
+            answer.append(" WHEN '").append(question).append("' THEN r.").append(question);
+            questions.append(questions.length() == 0 ? "" : ", ").append("('").append(question).append("')");
+        }
+        answer.append(" END");
+
+        List<String> statements = new ArrayList<>();
+        statements.add(insert + ")" + select + update);
+        statements.add("INSERT INTO InstitutionAnswerStats (institutionName, term, question, answer, responses) " +
+                "SELECT institutionName, term, question, answer, " + factor + "COUNT(*) FROM (" +
+                "SELECT r.institutionName, r.term, q.column1 AS question, " + answer + " AS answer " +
+                "FROM " + rows + " AS r, (VALUES " + questions + ") AS q) " +
+                "WHERE typeof(answer) = 'integer' GROUP BY institutionName, term, question, answer " +
+                "ON CONFLICT (institutionName, term, question, answer) DO UPDATE SET responses = responses + excluded.responses");
+        if (sign < 0) {
+            statements.add("DELETE FROM InstitutionTermStats WHERE evaluations <= 0");
+            statements.add("DELETE FROM InstitutionAnswerStats WHERE responses <= 0");
+        }
+        return statements;
+    }
+
+    // "YYYY-n" from the start day of the student's acceptance form, or "" if there is none
+    private static String termOf(String studentID) {
+        String date = "a.startDay * 86400, 'unixepoch'";
+        return "COALESCE((SELECT strftime('%Y', " + date + ") || '-' || " +
+                "CASE WHEN CAST(strftime('%m', " + date + ") AS INTEGER) <= 5 THEN 1 " +
+                "WHEN CAST(strftime('%m', " + date + ") AS INTEGER) <= 8 THEN 2 ELSE 3 END " +
+                "FROM InternshipAcceptance a WHERE a.studentID = " + studentID + " AND typeof(a.startDay) = 'integer'), '')";
+    }
+
+    static String termLabel(String term) {
+        if (term == null || term.isEmpty()) {
+            return "No internship dates";
+        }
+        String[] parts = term.split("-");
+        int index = parts.length == 2 && parts[1].matches("[1-3]") ? Integer.parseInt(parts[1]) - 1 : -1;
+        return index >= 0 ? parts[0] + " " + TERM_NAMES[index] : term;
+    }
+
+    static String institutionLabel(String institutionName) {
+        return institutionName == null || institutionName.isEmpty() ? "(No institution)" : institutionName;
+    }
+
+    // Average of each score and of all four together for every institution, best first; term null means all terms
+    static QueryResult ranking(String term) {
+        StringBuilder sql = new StringBuilder("SELECT institutionName, SUM(evaluations) AS evaluations");
+        List<String> sums = new ArrayList<>();
+        List<String> counts = new ArrayList<>();
+        for (String score : StorageCodec.SCORE_COLUMNS) {
+            sql.append(", ").append(average("SUM(" + score + "Sum)", "SUM(" + score + "Count)")).append(" AS ").append(score);
+            sums.add("SUM(" + score + "Sum)");
+            counts.add("SUM(" + score + "Count)");
+        }
+        sql.append(", ").append(average(String.join(" + ", sums), String.join(" + ", counts))).append(" AS overall")
+                .append(" FROM InstitutionTermStats").append(term != null ? " WHERE term = ?" : "")
+                .append(" GROUP BY institutionName ORDER BY overall DESC NULLS LAST, evaluations DESC, institutionName");
+        return term != null ? SQLiteClient.execute(sql.toString(), term) : SQLiteClient.execute(sql.toString());
+    }
+
+    // Evaluations, institutions and overall average per term, latest first
+    static QueryResult terms() {
+        List<String> sums = new ArrayList<>();
+        List<String> counts = new ArrayList<>();
+        for (String score : StorageCodec.SCORE_COLUMNS) {
+            sums.add("SUM(" + score + "Sum)");
+            counts.add("SUM(" + score + "Count)");
+        }
+        return SQLiteClient.execute("SELECT term, SUM(evaluations) AS evaluations, COUNT(*) AS institutions, " +
+                average(String.join(" + ", sums), String.join(" + ", counts)) + " AS overall " +
+                "FROM InstitutionTermStats GROUP BY term ORDER BY term DESC");
+    }
+
+    // Responses per question and answer code for one institution; term null means all terms
+    static QueryResult answers(String institutionName, String term) {
+        String sql = "SELECT question, answer, SUM(responses) AS responses FROM InstitutionAnswerStats " +
+                "WHERE institutionName = ?" + (term != null ? " AND term = ?" : "") + " GROUP BY question, answer";
+        return term != null ? SQLiteClient.execute(sql, institutionName, term) : SQLiteClient.execute(sql, institutionName);
+    }
+
+    private static String average(String sum, String count) {
+        return "ROUND(CAST(" + sum + " AS REAL) / NULLIF(" + count + ", 0), 2)";
+    }
+}
@@ -0,0 +1,122 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Counts of latencies in microseconds, precise to about 3%, for percentiles without keeping every
+// sample. Values below 64 µs have a bucket each; above that every power of two is split into 32
+// buckets, so about a thousand longs cover everything up to days. Safe to record into from any number
+// of threads at once.
+final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int LINEAR_BUCKETS = 2 * SUB_BUCKETS;
+    private static final int MAX_EXPONENT = 40; // 2^40 µs is about 12 days; longer values go in the last bucket
+    private static final int BUCKETS = LINEAR_BUCKETS + (MAX_EXPONENT - SUB_BUCKET_BITS - 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder total = new LongAdder();
+    private final LongAdder sumMicros = new LongAdder();
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    void recordNanos(long nanos) {
+        recordMicros(nanos / 1000);
+    }
+
+    void recordMicros(long micros) {
+        micros = Math.max(0, micros);
+        counts.incrementAndGet(bucket(micros));
+        total.increment();
+        sumMicros.add(micros);
+        maxMicros.accumulateAndGet(micros, Math::max);
+    }
+
+    long count() {
+        return total.sum();
+    }
+
+    long maxMicros() {
+        return maxMicros.get();
+    }
+
+    double meanMicros() {
+        long count = count();
+        return count == 0 ? 0 : (double) sumMicros.sum() / count;
+    }
+
+    // The latency that the given percentage of samples (e.g. 99.9) did not exceed, or 0 if there are none
+    long percentileMicros(double percentile) {
+        long count = 0;
+        long[] snapshot = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            count += snapshot[i];
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(count * percentile / 100.0));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(highestValue(i), maxMicros());
+            }
+        }
+        return maxMicros();
+    }
+
+    // Adds every sample of other to this histogram
+    void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            long count = other.counts.get(i);
+            if (count != 0) {
+                counts.addAndGet(i, count);
+            }
+        }
+        total.add(other.total.sum());
+        sumMicros.add(other.sumMicros.sum());
+        maxMicros.accumulateAndGet(other.maxMicros(), Math::max);
+    }
+
+    // e.g. "p50 1.20 ms, p99 8.40 ms, p99.9 31.05 ms, max 152 ms"
+    String summary() {
+        return "p50 " + format(percentileMicros(50)) + ", p99 " + format(percentileMicros(99)) +
+                ", p99.9 " + format(percentileMicros(99.9)) + ", max " + format(maxMicros());
+    }
+
+    static String format(long micros) {
+        if (micros < 1000) {
+            return micros + " µs";
+        }
+        double millis = micros / 1000.0;
+        if (millis < 100) {
+            return String.format("%.2f ms", millis);
+        }
+        if (millis < 10_000) {
+            return String.format("%.0f ms", millis);
+        }
+        return String.format("%.1f s", millis / 1000);
+    }
+
+    private static int bucket(long micros) {
+        if (micros < LINEAR_BUCKETS) {
+            return (int) micros;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        if (exponent >= MAX_EXPONENT) {
+            return BUCKETS - 1;
+        }
+        int shift = exponent - SUB_BUCKET_BITS;
+        return LINEAR_BUCKETS + (shift - 1) * SUB_BUCKETS + (int) (micros >> shift) - SUB_BUCKETS;
+    }
+
+    // The largest value that falls in the bucket
+    private static long highestValue(int bucket) {
+        if (bucket < LINEAR_BUCKETS) {
+            return bucket;
+        }
+        int shift = (bucket - LINEAR_BUCKETS) / SUB_BUCKETS + 1;
+        long subBucket = (bucket - LINEAR_BUCKETS) % SUB_BUCKETS + SUB_BUCKETS;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,265 @@
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+// Clients from before schema version 3 speak only the text protocol and send the form values as shown,
+// as literals in their INSERT and UPDATE statements. The server encodes those values (see StorageCodec)
+// before running the statement, and decodes the rows those clients read.
+final class LegacyFormValues {
+    private static final String[] ENCODED_TABLES = {"InternshipAcceptance", "InternshipPlaceEvaluation"};
+
+    private LegacyFormValues() {
+    }
+
+    // A statement to run in place of the one received, with its values as parameters
+    static final class Statement {
+        final String sql;
+        final Object[] params;
+
+        Statement(String sql, Object[] params) {
+            this.sql = sql;
+            this.params = params;
+        }
+    }
+
+    // The statement with its form values encoded, or null if it is not a single-row INSERT ... VALUES or
+    // an UPDATE ... SET of literals on one of the encoded tables, which then runs as it was sent
+    static Statement translate(String sql) {
+        List<Token> tokens = tokenize(sql);
+        if (tokens == null || tokens.size() < 4) {
+            return null;
+        }
+        Parser parser = new Parser(tokens);
+        if (parser.keyword("INSERT") && parser.keyword("INTO")) {
+            return translateInsert(parser);
+        }
+        parser = new Parser(tokens);
+        if (parser.keyword("UPDATE")) {
+            return translateUpdate(sql, parser);
+        }
+        return null;
+    }
+
+    // INSERT INTO table (column, ...) VALUES (literal, ...)
+    private static Statement translateInsert(Parser parser) {
+        String table = encodedTable(parser.identifier());
+        if (table == null || !parser.symbol("(")) {
+            return null;
+        }
+        List<String> columns = new ArrayList<>();
+        do {
+            String column = parser.identifier();
+            if (column == null) {
+                return null;
+            }
+            columns.add(column);
+        } while (parser.symbol(","));
+        if (!parser.symbol(")") || !parser.keyword("VALUES") || !parser.symbol("(")) {
+            return null;
+        }
+        List<Object> values = new ArrayList<>();
+        do {
+            if (!parser.literal()) {
+                return null;
+            }
+            values.add(parser.value);
+        } while (parser.symbol(","));
+        if (!parser.symbol(")") || !parser.atEnd() || values.size() != columns.size()) {
+            return null;
+        }
+        StorageCodec.Encoded encoded = StorageCodec.encode(table, columns.toArray(new String[0]), values.toArray());
+        return new Statement("INSERT INTO " + table + " (" + String.join(", ", encoded.columns) + ") VALUES (?" +
+                ", ?".repeat(encoded.columns.length - 1) + ")", encoded.values);
+    }
+
+    // UPDATE table SET column = literal, ... [WHERE ...]; the WHERE clause is kept as it was sent
+    private static Statement translateUpdate(String sql, Parser parser) {
+        String table = encodedTable(parser.identifier());
+        if (table == null || !parser.keyword("SET")) {
+            return null;
+        }
+        List<String> columns = new ArrayList<>();
+        List<Object> values = new ArrayList<>();
+        do {
+            String column = parser.identifier();
+            if (column == null || !parser.symbol("=") || !parser.literal()) {
+                return null;
+            }
+            columns.add(column);
+            values.add(parser.value);
+        } while (parser.symbol(","));
+        String where = "";
+        if (!parser.atEnd()) {
+            int start = parser.offset();
+            if (!parser.keyword("WHERE")) {
+                return null;
+            }
+            where = " " + sql.substring(start).trim();
+        }
+        StorageCodec.Encoded encoded = StorageCodec.encode(table, columns.toArray(new String[0]), values.toArray());
+        return new Statement("UPDATE " + table + " SET " + String.join(" = ?, ", encoded.columns) + " = ?" + where,
+                encoded.values);
+    }
+
+    private static String encodedTable(String name) {
+        for (String table : ENCODED_TABLES) {
+            if (table.equalsIgnoreCase(name)) {
+                return table;
+            }
+        }
+        return null;
+    }
+
+    // Decoder for a text protocol result whose columns all come from one of the encoded tables, or null
+    // if the result needs no decoding. Computed columns, such as COUNT(*), have no table.
+    static StorageCodec.Decoder decoderFor(ResultSetMetaData metaData) throws SQLException {
+        String table = null;
+        String[] columns = new String[metaData.getColumnCount()];
+        for (int i = 1; i <= columns.length; i++) {
+            columns[i - 1] = metaData.getColumnName(i);
+            String columnTable = metaData.getTableName(i);
+            if (columnTable == null || columnTable.isEmpty()) {
+                continue;
+            }
+            if (table != null && !table.equalsIgnoreCase(columnTable)) {
+                return null;
+            }
+            table = columnTable;
+        }
+        String encoded = table != null ? encodedTable(table) : null;
+        return encoded != null ? StorageCodec.decoder(encoded, columns) : null;
+    }
+
+    private enum Kind { WORD, STRING, NUMBER, SYMBOL }
+
+    private static final class Token {
+        final Kind kind;
+        final String text; // Identifiers unquoted, strings unescaped
+        final int offset;
+
+        Token(Kind kind, String text, int offset) {
+            this.kind = kind;
+            this.text = text;
+            this.offset = offset;
+        }
+    }
+
+    // Null if a quote is not closed
+    private static List<Token> tokenize(String sql) {
+        List<Token> tokens = new ArrayList<>();
+        int i = 0;
+        while (i < sql.length()) {
+            char c = sql.charAt(i);
+            int start = i;
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '\'' || c == '"' || c == '`' || c == '[') {
+                char close = c == '[' ? ']' : c;
+                StringBuilder text = new StringBuilder();
+                for (i++; ; i++) {
+                    if (i >= sql.length()) {
+                        return null;
+                    }
+                    if (sql.charAt(i) == close) {
+                        if (close != ']' && i + 1 < sql.length() && sql.charAt(i + 1) == close) {
+                            i++; // Doubled quote
+                        } else {
+                            break;
+                        }
+                    }
+                    text.append(sql.charAt(i));
+                }
+                i++;
+                tokens.add(new Token(c == '\'' ? Kind.STRING : Kind.WORD, text.toString(), start));
+            } else if (Character.isLetter(c) || c == '_') {
+                while (i < sql.length() && (Character.isLetterOrDigit(sql.charAt(i)) || sql.charAt(i) == '_')) {
+                    i++;
+                }
+                tokens.add(new Token(Kind.WORD, sql.substring(start, i), start));
+            } else if (Character.isDigit(c) || (c == '-' && i + 1 < sql.length() && Character.isDigit(sql.charAt(i + 1)))) {
+                i++;
+                while (i < sql.length() && (Character.isDigit(sql.charAt(i)) || sql.charAt(i) == '.')) {
+                    i++;
+                }
+                tokens.add(new Token(Kind.NUMBER, sql.substring(start, i), start));
+            } else {
+                i++;
+                tokens.add(new Token(Kind.SYMBOL, String.valueOf(c), start));
+            }
+        }
+        return tokens;
+    }
+
+    private static final class Parser {
+        private final List<Token> tokens;
+        private int next;
+        Object value; // Set by literal()
+
+        Parser(List<Token> tokens) {
+            this.tokens = tokens;
+        }
+
+        boolean keyword(String word) {
+            Token token = peek();
+            if (token != null && token.kind == Kind.WORD && token.text.equalsIgnoreCase(word)) {
+                next++;
+                return true;
+            }
+            return false;
+        }
+
+        boolean symbol(String symbol) {
+            Token token = peek();
+            if (token != null && token.kind == Kind.SYMBOL && token.text.equals(symbol)) {
+                next++;
+                return true;
+            }
+            return false;
+        }
+
+        String identifier() {
+            Token token = peek();
+            if (token == null || token.kind != Kind.WORD) {
+                return null;
+            }
+            next++;
+            return token.text;
+        }
+
+        boolean literal() {
+            Token token = peek();
+            if (token == null) {
+                return false;
+            }
+            if (token.kind == Kind.STRING) {
+                value = token.text;
+            } else if (token.kind == Kind.NUMBER) {
+                try {
+                    value = token.text.contains(".") ? (Object) Double.parseDouble(token.text) : (Object) Long.parseLong(token.text);
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+            } else if (token.kind == Kind.WORD && token.text.equalsIgnoreCase("NULL")) {
+                value = null;
+            } else {
+                return false;
+            }
+            next++;
+            return true;
+        }
+
+        // A trailing semicolon is allowed
+        boolean atEnd() {
+            return next == tokens.size() || (next == tokens.size() - 1 && symbol(";"));
+        }
+
+        int offset() {
+            return tokens.get(next).offset;
+        }
+
+        private Token peek() {
+            return next < tokens.size() ? tokens.get(next) : null;
+        }
+    }
+}
@@ -1,173 +1,46 @@
 import javax.swing.table.DefaultTableModel;
 import javax.swing.*;
+import javax.swing.filechooser.FileNameExtensionFilter;
+import javax.swing.text.JTextComponent;
 import java.awt.*;
 import java.awt.Color;
 import java.awt.Font;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.event.InputEvent;
+import java.awt.event.KeyEvent;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.sql.*;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.io.*;
 import java.net.*;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import org.apache.poi.ss.usermodel.*;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 
-class SQLiteServer {
-    private static final String DATABASE_URL = "jdbc:sqlite:identifier.db";
-    private static final int PORT = 12345; // Port number for the server
-
-    public static void main(String[] args) {
-        setupDatabase();
-        try (ServerSocket serverSocket = new ServerSocket(PORT)) {
-            System.out.println("Server started on port " + PORT);
-
-            while (true) {
-                Socket clientSocket = serverSocket.accept();
-                System.out.println("Client connected: " + clientSocket.getInetAddress());
-
-                new Thread(() -> handleClient(clientSocket)).start();
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-    }
-
-    private static void handleClient(Socket clientSocket) {
-        try (
-                InputStream input = clientSocket.getInputStream();
-                OutputStream output = clientSocket.getOutputStream();
-                BufferedReader reader = new BufferedReader(new InputStreamReader(input));
-                PrintWriter writer = new PrintWriter(output, true);
-                Connection conn = DriverManager.getConnection(DATABASE_URL)
-        ) {
-            String query;
-            while ((query = reader.readLine()) != null) {
-                try (PreparedStatement stmt = conn.prepareStatement(query)) {
-                    if (stmt.execute()) {
-                        ResultSet rs = stmt.getResultSet();
-                        ResultSetMetaData metaData = rs.getMetaData();
-                        int columnCount = metaData.getColumnCount();
-
-                        // Send column headers
-                        StringBuilder header = new StringBuilder();
-                        for (int i = 1; i <= columnCount; i++) {
-                            header.append(metaData.getColumnName(i));
-                            if (i < columnCount) {
-                                header.append("\t");
-                            }
-                        }
-                        writer.println(header.toString());
-
-                        // Send all rows with all columns
-                        while (rs.next()) {
-                            StringBuilder row = new StringBuilder();
-                            for (int i = 1; i <= columnCount; i++) {
-                                String value = rs.getString(i);
-                                // Replace nulls with empty strings to avoid "null" in the table
-                                row.append(value != null ? value : "");
-                                if (i < columnCount) {
-                                    row.append("\t");
-                                }
-                            }
-                            writer.println(row.toString());
-                        }
-                        writer.println("END");
-                    } else {
-                        writer.println("Update Count: " + stmt.getUpdateCount());
-                        writer.println("END"); // **Added "END" signal for non-SELECT queries**
-                    }
-                } catch (SQLException e) {
-                    writer.println("ERROR: " + e.getMessage());
-                    writer.println("END"); // **Ensure "END" is sent even on errors**
-                }
-            }
-        } catch (IOException | SQLException e) {
-            e.printStackTrace();
-        }
-    }
-
-    private static void setupDatabase() {
-        try (Connection conn = DriverManager.getConnection(DATABASE_URL)) {
-            String createAcceptanceTable = "CREATE TABLE IF NOT EXISTS InternshipAcceptance (" +
-                    "id INTEGER PRIMARY KEY AUTOINCREMENT, name TEXT, studentID TEXT UNIQUE, faculty TEXT, dates TEXT, " +
-                    "institutionName TEXT, institutionAddress TEXT, institutionPhone TEXT, responsibleName TEXT)";
-            String createEvaluationTable = "CREATE TABLE IF NOT EXISTS InternEvaluation (" +
-                    "id INTEGER PRIMARY KEY AUTOINCREMENT, name TEXT, studentID TEXT UNIQUE, evaluationDate TEXT, responsibleName TEXT, evaluation TEXT)";
-            String createPlaceEvaluationTable = "CREATE TABLE IF NOT EXISTS InternshipPlaceEvaluation (" +
-                    "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
-                    "name TEXT, " +
-                    "studentID TEXT UNIQUE, " +
-                    "institutionName TEXT, " +
-                    "duration TEXT, " +
-                    "salary TEXT, " +
-                    "transportation TEXT, " +
-                    "meals TEXT, " +
-                    "practiceTheory TEXT, " +
-                    "foreignLanguage TEXT, " +
-                    "responsibilities TEXT, " +
-                    "workingSpace TEXT, " +
-                    "factoryConditions TEXT, " +
-                    "recommendation TEXT, " +
-                    "futureWork TEXT, " +
-                    "processScore TEXT, " +
-                    "decisionMaking TEXT, " +
-                    "expectations TEXT, " +
-                    "researchDevelopment TEXT, " +
-                    "comments TEXT, " +
-                    "reasonForChoice TEXT, " +
-                    "analysisMethodsLearned TEXT, " +
-                    "courseAssociation TEXT, " +
-                    "workAssociation TEXT, " +
-                    "knowledgeLacks TEXT, " +
-                    "positiveAspects TEXT, " +
-                    "negativeAspects TEXT)";
-            String createInstructorsTable = "CREATE TABLE IF NOT EXISTS instructors (" +
-                    "instructorId INTEGER PRIMARY KEY, password TEXT)";
-            String createUser = "INSERT INTO instructors (instructorId, password) SELECT 123, '123' WHERE NOT EXISTS (SELECT 1 FROM instructors WHERE instructorId = 123)";
-            conn.createStatement().execute(createAcceptanceTable);
-            conn.createStatement().execute(createEvaluationTable);
-            conn.createStatement().execute(createPlaceEvaluationTable);
-            conn.createStatement().execute(createInstructorsTable);
-            conn.createStatement().execute(createUser);
-            System.out.println("Database setup complete.");
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-    }
-}
-
-
-class SQLiteClient {
-    private static final String SERVER_ADDRESS = "localhost"; // Replace with server's IP address
-    private static final int SERVER_PORT = 12345; // Port number of the server
-
-    public static String sendQuery(String query) {
-        try (Socket socket = new Socket(SERVER_ADDRESS, SERVER_PORT);
-             PrintWriter writer = new PrintWriter(socket.getOutputStream(), true);
-             BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream()))
-        ) {
-            writer.println(query);
-            StringBuilder result = new StringBuilder();
-            String response;
-            while ((response = reader.readLine()) != null && !response.equals("END")) {
-                result.append(response).append("\n");
-            }
-            return result.toString().trim(); // Trim to remove the trailing newline
-        } catch (IOException e) {
-            e.printStackTrace();
-            return "ERROR: " + e.getMessage();
-        }
-    }
-}
-
 class EditableTableModel extends DefaultTableModel {
     public EditableTableModel(Object[][] data, Object[] columnNames) {
         super(data, columnNames);
@@ -185,6 +58,7 @@ class EditableTableModel extends DefaultTableModel {
 
 public class Main {
     //private static final String DATABASE_URL = "jdbc:sqlite:identifier.db";
+    // Longer background jobs such as imports and statistics; single calls to the server use SQLiteClient's async methods
     private static final ExecutorService executorService = Executors.newFixedThreadPool(4);
     private static boolean allFieldsFilled;
     static JFrame frame = new JFrame("Internship Management System");
@@ -260,45 +134,41 @@ public class Main {
 
             int instructorId = Integer.parseInt(instructorIdText);
 
-            executorService.execute(() -> {
-                boolean authenticated = authenticate(instructorId, password);
-                SwingUtilities.invokeLater(() -> {
-                    if (authenticated) {
-                        loginFrame.dispose();
-                        showMainApplication();
-                    } else {
-                        statusLabel.setText("Invalid Instructor ID or Password.");
-                    }
-                });
-            });
+            authenticate(instructorId, password).whenComplete((authenticated, error) -> SwingUtilities.invokeLater(() -> {
+                if (error != null) {
+                    showErrorDialog("Error during authentication.", asyncFailure(error));
+                } else if (authenticated) {
+                    loginFrame.dispose();
+                    showMainApplication();
+                } else {
+                    statusLabel.setText("Invalid Instructor ID or Password.");
+                }
+            }));
         });
 
         loginFrame.setVisible(true);
     }
 
-    private static boolean authenticate(int instructorId, String password) {
-        // Sanitize inputs to prevent SQL injection
-        String sanitizedPassword = password.replace("'", "''"); // Escape single quotes
-
-        String query = "SELECT COUNT(*) FROM instructors WHERE instructorId = " + instructorId +
-                " AND password = '" + sanitizedPassword + "'";
+    private static CompletableFuture<Boolean> authenticate(int instructorId, String password) {
+        // Credentials are bound as parameters, never spliced into the SQL
+        String query = "SELECT COUNT(*) FROM instructors WHERE instructorId = ? AND password = ?";
 
-        try {
-            String result = SQLiteClient.sendQuery(query);
-           
-
-            if (result != null && !result.isEmpty()) {
-                String[] lines = result.split("\n");
-                if (lines.length >= 2) {
-                    // The second line contains the count
-                    return lines[1].trim().equals("1");
-                }
+        return SQLiteClient.executeAsync(query, instructorId, password).thenApply(result -> {
+            if (result.hasRows() && result.rowCount() > 0) {
+                // The only column holds the count
+                return result.rowAsStrings(0)[0].trim().equals("1");
             }
             return false;
-        } catch (Exception e) {
-            showErrorDialog("Error during authentication.", e);
-            return false;
+        });
+    }
+
+    // What an asynchronous call failed with, without the CompletionException around it
+    private static Exception asyncFailure(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof TimeoutException) {
+            return new TimeoutException("The server did not answer in time.");
         }
+        return cause instanceof Exception ? (Exception) cause : new Exception(cause);
     }
 
     private static void showMainApplication() {
@@ -310,6 +180,26 @@ public class Main {
         tabbedPane.addTab("Internship Acceptance Form", createAcceptanceFormPanel());
         tabbedPane.addTab("Intern Evaluation Form", createEvaluationFormPanel());
         tabbedPane.addTab("Internship Place Evaluation Form", createPlaceEvaluationFormPanel());
+        tabbedPane.addTab("Browse", createBrowsePanel());
+        tabbedPane.addTab("Search Answers", createAnswerSearchPanel());
+        tabbedPane.addTab("Statistics", createStatisticsPanel());
+
+        // Ctrl+Shift+D shows the Diagnostics tab, which is not meant for everyday use, and hides it again
+        JPanel diagnosticsPanel = createDiagnosticsPanel();
+        frame.getRootPane().getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW).put(
+                KeyStroke.getKeyStroke(KeyEvent.VK_D, InputEvent.CTRL_DOWN_MASK | InputEvent.SHIFT_DOWN_MASK), "diagnostics");
+        frame.getRootPane().getActionMap().put("diagnostics", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                int index = tabbedPane.indexOfComponent(diagnosticsPanel);
+                if (index >= 0) {
+                    tabbedPane.removeTabAt(index);
+                } else {
+                    tabbedPane.addTab("Diagnostics", diagnosticsPanel);
+                    tabbedPane.setSelectedComponent(diagnosticsPanel);
+                }
+            }
+        });
 
         frame.add(tabbedPane, BorderLayout.CENTER);
         frame.setVisible(true);
@@ -348,9 +238,9 @@ public class Main {
                 return;
             }
 
-            executorService.execute(() -> saveAcceptanceForm(
+            saveAcceptanceForm(
                     nameSurname, studentId, faculty, internshipDates, institutionName, institutionAddress, institutionPhone, responsibleName
-            ));
+            );
         });
     }
 
@@ -376,9 +266,9 @@ public class Main {
                 return;
             }
 
-            executorService.execute(() -> saveEvaluationForm(
+            saveEvaluationForm(
                     nameSurname, studentId, evaluationDate, responsibleName, overallEvaluation
-            ));
+            );
         });
     }
 
@@ -543,6 +433,7 @@ public class Main {
         JButton searchButton = new JButton("Search/Edit");
         JButton logoutButton = new JButton("Logout");
         JButton exportAllFormsButton = new JButton("Export All Forms");
+        JButton importButton = new JButton("Import Forms");
         
         logoutButton.setBackground(Color.RED);
         logoutButton.setForeground(Color.WHITE);
@@ -586,7 +477,7 @@ public class Main {
                 return;
             }
 
-            executorService.execute(() -> savePlaceEvaluationForm(formData));
+            savePlaceEvaluationForm(formData);
         });
 
         deleteButton.addActionListener(e -> {
@@ -596,7 +487,7 @@ public class Main {
                     showInfoDialog("Student ID must be a number.");
                     return;
                 }
-                executorService.execute(() -> deleteFromDatabase("InternshipPlaceEvaluation", inputId.trim()));
+                deleteFromDatabase("InternshipPlaceEvaluation", inputId.trim());
             }
         });
 
@@ -607,7 +498,7 @@ public class Main {
                     showInfoDialog("Student ID must be a number.");
                     return;
                 }
-                executorService.execute(() -> searchInDatabase(studentID.trim()));
+                searchInDatabase(studentID.trim());
             }
         });
 
@@ -623,8 +514,11 @@ public class Main {
             exportAllFormsToExcel();
         });
 
+        importButton.addActionListener(e -> importForms("InternshipPlaceEvaluation"));
+
         // Add buttons to panel in correct order
         buttonsPanel.add(exportAllFormsButton);
+        buttonsPanel.add(importButton);
         buttonsPanel.add(submitButton);
         buttonsPanel.add(deleteButton);
         buttonsPanel.add(searchButton);
@@ -655,6 +549,391 @@ public class Main {
         return true;
     }
 
+    // Every record of each form table, one tab per table; a row opens in the Search/Edit dialog on double-click
+    private static JComponent createBrowsePanel() {
+        JTabbedPane tablesPane = new JTabbedPane();
+        for (Map.Entry<String, String> table : FormExporter.SHEET_NAMES.entrySet()) {
+            RecordBrowserModel model = new RecordBrowserModel(table.getKey(),
+                    error -> showErrorDialog("Error loading records: " + error, null));
+            JTable recordTable = new JTable(model);
+            recordTable.setAutoResizeMode(JTable.AUTO_RESIZE_OFF);
+            recordTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+            recordTable.addMouseListener(new MouseAdapter() {
+                @Override
+                public void mouseClicked(MouseEvent e) {
+                    int row = recordTable.rowAtPoint(e.getPoint());
+                    String studentID = row >= 0 ? model.getStudentID(row) : null;
+                    if (e.getClickCount() == 2 && studentID != null) {
+                        searchInDatabase(studentID);
+                    }
+                }
+            });
+
+            // Kept current with the changes other clients make, so Refresh is only needed after a failure
+            SQLiteClient.addChangeListener(new ChangeSubscription.Listener() {
+                @Override
+                public void changed(RecordChange change) {
+                    SwingUtilities.invokeLater(() -> model.applyChange(change));
+                }
+
+                @Override
+                public void subscribed() {
+                    SwingUtilities.invokeLater(model::refresh);
+                }
+            });
+
+            JLabel countLabel = new JLabel();
+            model.addTableModelListener(e -> countLabel.setText(model.getTotalRows() + " records"));
+            JButton refreshButton = new JButton("Refresh");
+            refreshButton.addActionListener(e -> model.reload());
+            JPanel controlsPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+            controlsPanel.add(refreshButton);
+            controlsPanel.add(countLabel);
+
+            JPanel panel = new JPanel(new BorderLayout());
+            panel.add(controlsPanel, BorderLayout.NORTH);
+            panel.add(new JScrollPane(recordTable), BorderLayout.CENTER);
+            // Loaded the first time the tab is shown and after that only on Refresh or a change, keeping the scroll position
+            panel.addComponentListener(new ComponentAdapter() {
+                private boolean loaded;
+
+                @Override
+                public void componentShown(ComponentEvent e) {
+                    if (!loaded) {
+                        loaded = true;
+                        model.reload();
+                    }
+                }
+            });
+            tablesPane.addTab(table.getValue(), panel);
+        }
+        return tablesPane;
+    }
+
+    // Full-text search over the free-text answers of the evaluation forms, best match first with the
+    // matching words highlighted; a result opens in the Search/Edit dialog on double-click
+    private static JPanel createAnswerSearchPanel() {
+        JPanel panel = new JPanel(new BorderLayout(10, 10));
+        panel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+
+        JTextField wordsField = new JTextField(30);
+        JTextField institutionField = new JTextField(15);
+        JButton searchButton = new JButton("Search");
+        JLabel statusLabel = new JLabel(" ");
+        JPanel controlsPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        controlsPanel.add(new JLabel("Words:"));
+        controlsPanel.add(wordsField);
+        controlsPanel.add(new JLabel("Institution:"));
+        controlsPanel.add(institutionField);
+        controlsPanel.add(searchButton);
+
+        DefaultTableModel resultsModel = readOnlyTableModel("Student ID", "Name", "Institution", "Form", "Match");
+        JTable resultsTable = new JTable(resultsModel);
+        resultsTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        resultsTable.getColumnModel().getColumn(4).setPreferredWidth(450);
+        resultsTable.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int row = resultsTable.rowAtPoint(e.getPoint());
+                if (e.getClickCount() == 2 && row >= 0) {
+                    String studentID = String.valueOf(resultsModel.getValueAt(row, 0));
+                    searchInDatabase(studentID);
+                }
+            }
+        });
+
+        panel.add(controlsPanel, BorderLayout.NORTH);
+        panel.add(new JScrollPane(resultsTable), BorderLayout.CENTER);
+        panel.add(statusLabel, BorderLayout.SOUTH);
+
+        ActionListener search = e -> {
+            String words = wordsField.getText().trim();
+            String institution = institutionField.getText().trim();
+            if (FormSearch.matchExpression(words, institution) == null) {
+                showInfoDialog("Enter a word or an institution to search for.");
+                return;
+            }
+            searchButton.setEnabled(false);
+            statusLabel.setText("Searching...");
+            SQLiteClient.searchAsync(words, institution, FormSearch.MAX_RESULTS).whenComplete((result, error) -> {
+                long renderStart = System.nanoTime();
+                SwingUtilities.invokeLater(() -> {
+                    searchButton.setEnabled(true);
+                    resultsModel.setRowCount(0);
+                    if (error != null) {
+                        statusLabel.setText(" ");
+                        showErrorDialog("Error occurred while searching.", asyncFailure(error));
+                        return;
+                    }
+                    if (result.isError()) {
+                        statusLabel.setText(" ");
+                        showErrorDialog("Error occurred while searching: " + result.getError(), null);
+                        return;
+                    }
+                    for (Object[] row : result.getRows()) {
+                        resultsModel.addRow(new Object[]{row[1], row[2], row[3],
+                                FormExporter.SHEET_NAMES.getOrDefault(String.valueOf(row[0]), String.valueOf(row[0])),
+                                highlightSnippet(row[4] != null ? row[4].toString() : "")});
+                    }
+                    statusLabel.setText(result.rowCount() == 0 ? "No matches"
+                            : result.rowCount() >= FormSearch.MAX_RESULTS ? "Showing the best " + result.rowCount() + " matches"
+                            : result.rowCount() + (result.rowCount() == 1 ? " match" : " matches"));
+                    ClientTimings.rendered("Search", words, renderStart);
+                });
+            });
+        };
+        searchButton.addActionListener(search);
+        wordsField.addActionListener(search);
+        institutionField.addActionListener(search);
+        return panel;
+    }
+
+    // The answers are user input, so they are escaped before the match markers become HTML
+    private static String highlightSnippet(String snippet) {
+        String escaped = snippet.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+        return "<html>" + escaped.replace(String.valueOf(FormSearch.MATCH_START), "<b><font color='#b00000'>")
+                .replace(String.valueOf(FormSearch.MATCH_END), "</font></b>") + "</html>";
+    }
+
+    // Institutions ranked by their average scores, with the answers given about the selected one. Everything
+    // is read from the summary tables the server keeps up to date, so it is reloaded whenever the tab is shown.
+    private static JPanel createStatisticsPanel() {
+        JPanel panel = new JPanel(new BorderLayout(10, 10));
+        panel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+
+        JComboBox<String> termCombo = new JComboBox<>(new String[]{"All terms"});
+        List<String> termKeys = new ArrayList<>(Collections.singletonList(null)); // Term of each combo item
+        JButton refreshButton = new JButton("Refresh");
+        JPanel controlsPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        controlsPanel.add(new JLabel("Term:"));
+        controlsPanel.add(termCombo);
+        controlsPanel.add(refreshButton);
+
+        DefaultTableModel rankingModel = readOnlyTableModel("Institution", "Evaluations", "Process", "Decision Making",
+                "Expectations", "Research & Development", "Overall");
+        DefaultTableModel termModel = readOnlyTableModel("Term", "Evaluations", "Institutions", "Overall");
+        DefaultTableModel answerModel = readOnlyTableModel("Question", "Answer", "Responses", "Share");
+        JTable rankingTable = new JTable(rankingModel);
+        rankingTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        JLabel answersLabel = new JLabel("Select an institution to see its answers");
+        List<String> institutions = new ArrayList<>(); // Institution of each ranking row
+
+        JPanel answersPanel = new JPanel(new BorderLayout(5, 5));
+        answersPanel.add(answersLabel, BorderLayout.NORTH);
+        answersPanel.add(new JScrollPane(new JTable(answerModel)), BorderLayout.CENTER);
+        JSplitPane detailsPane = new JSplitPane(JSplitPane.HORIZONTAL_SPLIT, new JScrollPane(new JTable(termModel)), answersPanel);
+        detailsPane.setResizeWeight(0.4);
+        JSplitPane splitPane = new JSplitPane(JSplitPane.VERTICAL_SPLIT, new JScrollPane(rankingTable), detailsPane);
+        splitPane.setResizeWeight(0.5);
+
+        panel.add(controlsPanel, BorderLayout.NORTH);
+        panel.add(splitPane, BorderLayout.CENTER);
+
+        boolean[] updatingTerms = new boolean[1];
+        Runnable refresh = () -> {
+            String term = termKeys.get(Math.max(termCombo.getSelectedIndex(), 0));
+            executorService.execute(() -> {
+                QueryResult terms = InstitutionStatistics.terms();
+                QueryResult ranking = InstitutionStatistics.ranking(term);
+                if (terms.isError() || ranking.isError()) {
+                    showErrorDialog("Error loading statistics: " + (terms.isError() ? terms.getError() : ranking.getError()), null);
+                    return;
+                }
+                SwingUtilities.invokeLater(() -> {
+                    updatingTerms[0] = true;
+                    termCombo.removeAllItems();
+                    termKeys.subList(1, termKeys.size()).clear();
+                    termCombo.addItem("All terms");
+                    termModel.setRowCount(0);
+                    for (Object[] row : terms.getRows()) {
+                        String key = row[0] != null ? row[0].toString() : "";
+                        termKeys.add(key);
+                        termCombo.addItem(InstitutionStatistics.termLabel(key));
+                        termModel.addRow(new Object[]{InstitutionStatistics.termLabel(key), row[1], row[2], orDash(row[3])});
+                    }
+                    termCombo.setSelectedIndex(Math.max(termKeys.indexOf(term), 0));
+                    updatingTerms[0] = false;
+
+                    rankingModel.setRowCount(0);
+                    institutions.clear();
+                    answerModel.setRowCount(0);
+                    answersLabel.setText("Select an institution to see its answers");
+                    for (Object[] row : ranking.getRows()) {
+                        String institution = row[0] != null ? row[0].toString() : "";
+                        institutions.add(institution);
+                        Object[] values = new Object[row.length];
+                        values[0] = InstitutionStatistics.institutionLabel(institution);
+                        for (int i = 1; i < row.length; i++) {
+                            values[i] = orDash(row[i]);
+                        }
+                        rankingModel.addRow(values);
+                    }
+                });
+            });
+        };
+
+        rankingTable.getSelectionModel().addListSelectionListener(e -> {
+            int selected = rankingTable.getSelectedRow();
+            if (e.getValueIsAdjusting() || selected < 0 || selected >= institutions.size()) {
+                return;
+            }
+            String institution = institutions.get(selected);
+            String term = termKeys.get(Math.max(termCombo.getSelectedIndex(), 0));
+            executorService.execute(() -> {
+                QueryResult answers = InstitutionStatistics.answers(institution, term);
+                if (answers.isError()) {
+                    showErrorDialog("Error loading statistics: " + answers.getError(), null);
+                    return;
+                }
+                SwingUtilities.invokeLater(() -> {
+                    answersLabel.setText("Answers about " + InstitutionStatistics.institutionLabel(institution) +
+                            (term != null ? " in " + InstitutionStatistics.termLabel(term) : ""));
+                    showAnswerDistribution(answerModel, answers);
+                });
+            });
+        });
+        termCombo.addActionListener(e -> {
+            if (!updatingTerms[0]) {
+                refresh.run();
+            }
+        });
+        refreshButton.addActionListener(e -> refresh.run());
+        panel.addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentShown(ComponentEvent e) {
+                refresh.run();
+            }
+        });
+        return panel;
+    }
+
+    // Where this client's time goes: each phase of the calls to the server over the last few minutes,
+    // the recent slow operations, and how much work is waiting for a thread. Refreshed every second
+    // while the tab is shown.
+    private static JPanel createDiagnosticsPanel() {
+        JPanel panel = new JPanel(new BorderLayout(10, 10));
+        panel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+
+        JLabel queueLabel = new JLabel(" ");
+        DefaultTableModel phasesModel = readOnlyTableModel("Phase", "Samples", "p50", "p99", "p99.9", "Max");
+        JTable phasesTable = new JTable(phasesModel);
+        JScrollPane phasesScroll = new JScrollPane(phasesTable);
+        phasesScroll.setBorder(BorderFactory.createTitledBorder("Last " + ClientTimings.WINDOW_MINUTES + " minutes"));
+        phasesScroll.setPreferredSize(new Dimension(0, 170));
+
+        String[] slowColumns = {"Time", "Operation", "Detail", "Total"};
+        List<String> columns = new ArrayList<>(Arrays.asList(slowColumns));
+        for (ClientTimings.Phase phase : ClientTimings.Phase.values()) {
+            columns.add(phase.label);
+        }
+        columns.add("Result");
+        DefaultTableModel slowModel = readOnlyTableModel(columns.toArray(new String[0]));
+        JTable slowTable = new JTable(slowModel);
+        slowTable.getColumnModel().getColumn(2).setPreferredWidth(300);
+        JScrollPane slowScroll = new JScrollPane(slowTable);
+        slowScroll.setBorder(BorderFactory.createTitledBorder("Recent operations slower than " + ClientTimings.slowMillis() + " ms"));
+
+        JPanel tablesPanel = new JPanel(new BorderLayout(10, 10));
+        tablesPanel.add(phasesScroll, BorderLayout.NORTH);
+        tablesPanel.add(slowScroll, BorderLayout.CENTER);
+        panel.add(queueLabel, BorderLayout.NORTH);
+        panel.add(tablesPanel, BorderLayout.CENTER);
+
+        SimpleDateFormat timeFormat = new SimpleDateFormat("HH:mm:ss");
+        ThreadPoolExecutor jobs = (ThreadPoolExecutor) executorService;
+        Runnable refresh = () -> {
+            queueLabel.setText("Background jobs: " + jobs.getActiveCount() + " running, " + jobs.getQueue().size() + " queued"
+                    + "    Server calls: " + SQLiteClient.callsInFlight() + " in flight, " + SQLiteClient.callsWaiting() + " waiting");
+
+            phasesModel.setRowCount(0);
+            for (ClientTimings.Phase phase : ClientTimings.Phase.values()) {
+                addPercentileRow(phasesModel, phase.label, ClientTimings.phase(phase));
+            }
+            addPercentileRow(phasesModel, "Whole operation", ClientTimings.totals());
+
+            slowModel.setRowCount(0);
+            for (ClientTimings.Operation operation : ClientTimings.recentSlowOperations()) {
+                Object[] row = new Object[columns.size()];
+                row[0] = timeFormat.format(new Date(operation.finishedAtMillis));
+                row[1] = operation.name;
+                row[2] = operation.detail;
+                row[3] = LatencyHistogram.format(TimeUnit.NANOSECONDS.toMicros(operation.totalNanos));
+                for (ClientTimings.Phase phase : ClientTimings.Phase.values()) {
+                    long nanos = operation.phaseNanos[phase.ordinal()];
+                    row[slowColumns.length + phase.ordinal()] = nanos == 0 ? "-" : LatencyHistogram.format(TimeUnit.NANOSECONDS.toMicros(nanos));
+                }
+                row[row.length - 1] = operation.succeeded ? "OK" : "Failed";
+                slowModel.addRow(row);
+            }
+        };
+        javax.swing.Timer refreshTimer = new javax.swing.Timer(1000, e -> {
+            if (panel.isShowing()) {
+                refresh.run();
+            } else {
+                ((javax.swing.Timer) e.getSource()).stop();
+            }
+        });
+        panel.addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentShown(ComponentEvent e) {
+                refresh.run();
+                refreshTimer.start();
+            }
+
+            @Override
+            public void componentHidden(ComponentEvent e) {
+                refreshTimer.stop();
+            }
+        });
+        return panel;
+    }
+
+    private static void addPercentileRow(DefaultTableModel model, String label, LatencyHistogram histogram) {
+        if (histogram.count() == 0) {
+            model.addRow(new Object[]{label, 0, "-", "-", "-", "-"});
+            return;
+        }
+        model.addRow(new Object[]{label, histogram.count(),
+                LatencyHistogram.format(histogram.percentileMicros(50)),
+                LatencyHistogram.format(histogram.percentileMicros(99)),
+                LatencyHistogram.format(histogram.percentileMicros(99.9)),
+                LatencyHistogram.format(histogram.maxMicros())});
+    }
+
+    // One row per question and possible answer, including answers nobody gave
+    private static void showAnswerDistribution(DefaultTableModel model, QueryResult answers) {
+        Map<String, Long> responses = new HashMap<>();
+        for (Object[] row : answers.getRows()) {
+            responses.put(row[0] + "/" + row[1], Long.parseLong(String.valueOf(row[2])));
+        }
+        model.setRowCount(0);
+        for (Map.Entry<String, String> question : InstitutionStatistics.QUESTIONS.entrySet()) {
+            String[] labels = question.getKey().equals("salary") ? StorageCodec.SALARY_LABELS : StorageCodec.LIKERT_LABELS;
+            long total = 0;
+            for (int code = 0; code < labels.length; code++) {
+                total += responses.getOrDefault(question.getKey() + "/" + code, 0L);
+            }
+            for (int code = 0; code < labels.length; code++) {
+                long count = responses.getOrDefault(question.getKey() + "/" + code, 0L);
+                String share = total > 0 ? Math.round(100.0 * count / total) + "%" : "-";
+                model.addRow(new Object[]{code == 0 ? question.getValue() : "", labels[code], count, share});
+            }
+        }
+    }
+
+    private static DefaultTableModel readOnlyTableModel(String... columns) {
+        return new DefaultTableModel(columns, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+    }
+
+    private static Object orDash(Object value) {
+        return value == null || value.toString().isEmpty() ? "-" : value;
+    }
+
     private static JPanel createFormPanel(String[] labels, String tableName, FormSubmitListener submitListener) {
         JPanel formPanel = new JPanel();
         formPanel.setLayout(new BorderLayout());
@@ -759,6 +1038,9 @@ public class Main {
             exportAllFormsToExcel();
         });
 
+        JButton importButton = new JButton("Import Forms");
+        importButton.addActionListener(e -> importForms(tableName));
+
         JButton deleteButton = new JButton("Delete Record");
         deleteButton.addActionListener(e -> {
             String inputId = JOptionPane.showInputDialog(null, "Enter the Student ID of the record to delete:");
@@ -767,7 +1049,7 @@ public class Main {
                     showInfoDialog("Student ID must be a number.");
                     return;
                 }
-                executorService.execute(() -> deleteFromDatabase(tableName, inputId.trim()));
+                deleteFromDatabase(tableName, inputId.trim());
             }
         });
 
@@ -791,11 +1073,12 @@ public class Main {
                     showInfoDialog("Student ID must be a number.");
                     return;
                 }
-                executorService.execute(() -> searchInDatabase(studentID.trim()));
+                searchInDatabase(studentID.trim());
             }
         });
 
         buttonsPanel.add(exportAllFormsButton);
+        buttonsPanel.add(importButton);
         buttonsPanel.add(submitButton);
         buttonsPanel.add(deleteButton);
         buttonsPanel.add(searchButton);
@@ -810,163 +1093,74 @@ public class Main {
     private static void saveAcceptanceForm(String name, String studentID, String faculty, String dates,
                                            String institutionName, String institutionAddress,
                                            String institutionPhone, String responsibleName) {
-        String insertQuery = String.format(
-                "INSERT INTO InternshipAcceptance (name, studentID, faculty, dates, institutionName, institutionAddress, institutionPhone, responsibleName) " +
-                        "VALUES ('%s', '%s', '%s', '%s', '%s', '%s', '%s', '%s')",
-                name.replace("'", "''"), // Escape single quotes
-                studentID.replace("'", "''"),
-                faculty.replace("'", "''"),
-                dates.replace("'", "''"),
-                institutionName.replace("'", "''"),
-                institutionAddress.replace("'", "''"),
-                institutionPhone.replace("'", "''"),
-                responsibleName.replace("'", "''")
-        );
-
-        try {
-            String result = SQLiteClient.sendQuery(insertQuery);
-           
+        String[] columns = {"name", "studentID", "faculty", "dates", "institutionName", "institutionAddress",
+                "institutionPhone", "responsibleName"};
 
-            if (result.contains("UNIQUE constraint failed")) {
-                SwingUtilities.invokeLater(() -> {
-                    showInfoDialog("A record with this Student ID already exists. Please use the Search/Edit feature to modify the existing record.");
-                });
-            } else if (result.toLowerCase().contains("error")) {
-                SwingUtilities.invokeLater(() -> {
-                    showErrorDialog("Error occurred while saving the record. " + result, null);
-                });
-            } else if (result.startsWith("Update Count:")) {
-                // Optionally, parse the update count
-                String[] parts = result.split(":");
-                if (parts.length == 2) {
-                    String countStr = parts[1].trim();
-                    if (countStr.equals("1")) {
-                        SwingUtilities.invokeLater(() -> {
-                            showInfoDialog("Record saved successfully.");
-                        });
-                    } else {
-                        SwingUtilities.invokeLater(() -> {
-                            showInfoDialog("Record saved. Rows affected: " + countStr);
-                        });
-                    }
-                } else {
-                    // Fallback in case of unexpected format
-                    SwingUtilities.invokeLater(() -> {
-                        showInfoDialog("Record saved successfully.");
-                    });
-                }
-            } else {
-                SwingUtilities.invokeLater(() -> {
-                    showInfoDialog("Record saved successfully.");
-                });
-            }
-        } catch (Exception e) {
-            showErrorDialog("Error occurred while communicating with the server.", e);
-        }
+        insertForm("InternshipAcceptance", columns, name, studentID, faculty, dates,
+                institutionName, institutionAddress, institutionPhone, responsibleName).whenComplete(Main::reportSave);
     }
 
     private static void saveEvaluationForm(String name, String studentID, String evaluationDate,
                                            String responsibleName, String evaluation) {
-        String insertQuery = String.format(
-                "INSERT INTO InternEvaluation (name, studentID, evaluationDate, responsibleName, evaluation) " +
-                        "VALUES ('%s', '%s', '%s', '%s', '%s')",
-                name.replace("'", "''"), // Escape single quotes
-                studentID.replace("'", "''"),
-                evaluationDate.replace("'", "''"),
-                responsibleName.replace("'", "''"),
-                evaluation.replace("'", "''")
-        );
+        String[] columns = {"name", "studentID", "evaluationDate", "responsibleName", "evaluation"};
 
-        try {
-            String result = SQLiteClient.sendQuery(insertQuery);
-        
+        insertForm("InternEvaluation", columns, name, studentID, evaluationDate, responsibleName, evaluation)
+                .whenComplete(Main::reportSave);
+    }
 
-            if (result.contains("UNIQUE constraint failed")) {
-                SwingUtilities.invokeLater(() -> {
-                    showInfoDialog("A record with this Student ID already exists. Please use the Search/Edit feature to modify the existing record.");
-                });
-            } else if (result.toLowerCase().contains("error")) {
-                SwingUtilities.invokeLater(() -> {
-                    showErrorDialog("Error occurred while saving the record. " + result, null);
-                });
-            } else if (result.startsWith("Update Count:")) {
-                String[] parts = result.split(":");
-                if (parts.length == 2) {
-                    String countStr = parts[1].trim();
-                    if (countStr.equals("1")) {
-                        SwingUtilities.invokeLater(() -> {
-                            showInfoDialog("Record saved successfully.");
-                        });
-                    } else {
-                        SwingUtilities.invokeLater(() -> {
-                            showInfoDialog("Record saved. Rows affected: " + countStr);
-                        });
-                    }
-                } else {
-                    SwingUtilities.invokeLater(() -> {
-                        showInfoDialog("Record saved successfully.");
-                    });
-                }
-            } else {
-                SwingUtilities.invokeLater(() -> {
-                    showInfoDialog("Record saved successfully.");
-                });
-            }
-        } catch (Exception e) {
-            showErrorDialog("Error occurred while communicating with the server.", e);
+    private static void savePlaceEvaluationForm(String[] values) {
+        String[] columns = {"name", "studentID", "institutionName", "duration",
+                "salary", "transportation", "meals", "practiceTheory", "foreignLanguage", "responsibilities",
+                "workingSpace", "factoryConditions", "recommendation", "futureWork", "processScore",
+                "decisionMaking", "expectations", "researchDevelopment", "comments", "reasonForChoice",
+                "analysisMethodsLearned", "courseAssociation", "workAssociation", "knowledgeLacks",
+                "positiveAspects", "negativeAspects"};
+
+        insertForm("InternshipPlaceEvaluation", columns, (Object[]) values).whenComplete(Main::reportSave);
+    }
+
+    // Tells the user how saving a new form went
+    private static void reportSave(QueryResult result, Throwable error) {
+        if (error != null) {
+            showErrorDialog("Error occurred while communicating with the server.", asyncFailure(error));
+        } else if (result.isError() && result.getError().contains("UNIQUE constraint failed")) {
+            showInfoDialog("A record with this Student ID already exists. Please use the Search/Edit feature to modify the existing record.");
+        } else if (result.isError()) {
+            showErrorDialog("Error occurred while saving the record. " + result.toText(), null);
+        } else if (result.getUpdateCount() == 1 || result.getUpdateCount() < 0) {
+            showInfoDialog("Record saved successfully.");
+        } else {
+            showInfoDialog("Record saved. Rows affected: " + result.getUpdateCount());
         }
     }
 
-    private static void savePlaceEvaluationForm(String[] values) {
-        StringBuilder queryBuilder = new StringBuilder();
-        queryBuilder.append("INSERT INTO InternshipPlaceEvaluation (name, studentID, institutionName, duration, ");
-        queryBuilder.append("salary, transportation, meals, practiceTheory, foreignLanguage, responsibilities, ");
-        queryBuilder.append("workingSpace, factoryConditions, recommendation, futureWork, processScore, ");
-        queryBuilder.append("decisionMaking, expectations, researchDevelopment, comments, reasonForChoice, ");
-        queryBuilder.append("analysisMethodsLearned, courseAssociation, workAssociation, knowledgeLacks, ");
-        queryBuilder.append("positiveAspects, negativeAspects) VALUES ('");
-        
-        // Escape all values and join them
-        String escapedValues = String.join("', '", 
-            java.util.Arrays.stream(values)
-                .map(v -> v.replace("'", "''"))
-                .toArray(String[]::new));
-        
-        queryBuilder.append(escapedValues).append("')");
-         try {
-            String result = SQLiteClient.sendQuery(queryBuilder.toString());
-             if (result.contains("UNIQUE constraint failed")) {
-                SwingUtilities.invokeLater(() -> {
-                    showInfoDialog("A record with this Student ID already exists. Please use the Search/Edit feature to modify the existing record.");
-                });
-            } else if (result.toLowerCase().contains("error")) {
-                SwingUtilities.invokeLater(() -> {
-                    showErrorDialog("Error occurred while saving the record. " + result, null);
-                });
+    private static void searchInDatabase(String studentID) {
+        // Fetch the student's record from every table in one request
+        SQLiteClient.fetchDossierAsync(studentID).whenComplete((dossier, error) -> {
+            if (error != null) {
+                showErrorDialog("Error occurred while searching.", asyncFailure(error));
             } else {
-                SwingUtilities.invokeLater(() -> {
-                    showInfoDialog("Record saved successfully.");
-                });
+                showSearchResults(studentID, dossier);
             }
-        } catch (Exception e) {
-            showErrorDialog("Error occurred while communicating with the server.", e);
-        } 
+        });
     }
 
-    private static void searchInDatabase(String studentID) {
+    private static void showSearchResults(String studentID, Map<String, QueryResult> dossier) {
+        // Decoding, waiting for the event thread and building the dialog; the dialog is modal, so
+        // the time is taken just before it is shown
+        long renderStart = System.nanoTime();
         try {
             // Initialize a map to hold table names and their corresponding query results
-            Map<String, String> tableResults = new HashMap<>();
-
-            // List of tables to search
-            String[] tables = {"InternshipAcceptance", "InternEvaluation", "InternshipPlaceEvaluation"};
+            Map<String, QueryResult> tableResults = new LinkedHashMap<>();
 
-            // Query each table for the given studentID
-            for (String table : tables) {
-                String query = "SELECT * FROM " + table + " WHERE studentID = '" + studentID.replace("'", "''") + "'";
-                String result = SQLiteClient.sendQuery(query);
-                if (result != null && result.contains("\n")) { // A successful query returns data separated by newlines
-                    tableResults.put(table, result);
+            for (Map.Entry<String, QueryResult> entry : dossier.entrySet()) {
+                QueryResult result = StorageCodec.decode(entry.getKey(), entry.getValue());
+                if (result.isError()) {
+                    showErrorDialog("Error occurred while searching: " + result.getError(), null);
+                    return;
+                }
+                if (result.rowCount() > 0) {
+                    tableResults.put(entry.getKey(), result);
                 }
             }
 
@@ -979,6 +1173,7 @@ public class Main {
                     JLabel noDataLabel = new JLabel("No records found for this Student ID", SwingConstants.CENTER);
                     dialog.add(noDataLabel, BorderLayout.CENTER);
                     dialog.setLocationRelativeTo(frame);
+                    ClientTimings.rendered("Dossier", "student " + studentID, renderStart);
                     dialog.setVisible(true);
                 });
                 return;
@@ -992,33 +1187,37 @@ public class Main {
                 JTabbedPane tabbedPane = new JTabbedPane();
 
                 // Iterate through the results and add tabs accordingly
-                for (Map.Entry<String, String> entry : tableResults.entrySet()) {
-                    String tableName = entry.getKey();
-                    String queryResult = entry.getValue();
-
-                    // Parse the data
-                    String[] rows = queryResult.split("\n");
-                    if (rows.length < 2) {
-                        continue; // Skip if there's no data
+                for (Map.Entry<String, QueryResult> entry : tableResults.entrySet()) {
+                    tabbedPane.addTab(formTitle(entry.getKey()), createSearchTab(entry.getKey(), entry.getValue()));
+                }
+
+                // Forms changed by another client meanwhile are reloaded, unless they are being edited here
+                JLabel changedLabel = new JLabel();
+                changedLabel.setForeground(new Color(0xb00000));
+                changedLabel.setBorder(BorderFactory.createEmptyBorder(5, 10, 0, 10));
+                changedLabel.setVisible(false);
+                ChangeSubscription.Listener changeListener = change -> {
+                    if (!studentID.equals(change.studentID)) {
+                        return;
                     }
-                    String[] headers = rows[0].split("\t");
-                    String[] data = rows[1].split("\t");
-
-                    // Determine which panel to create based on the table name
-                    switch (tableName) {
-                        case "InternshipAcceptance":
-                            tabbedPane.addTab("Internship Acceptance", createAcceptanceSearchPanel(headers, data));
-                            break;
-                        case "InternEvaluation":
-                            tabbedPane.addTab("Intern Evaluation", createEvaluationSearchPanel(headers, data));
-                            break;
-                        case "InternshipPlaceEvaluation":
-                            tabbedPane.addTab("Internship Place Evaluation", new JScrollPane(createPlaceEvaluationSearchPanel(headers, data)));
-                            break;
-                        default:
-                            tabbedPane.addTab(tableName, new JPanel());
+                    SQLiteClient.forgetDossier(studentID);
+                    SQLiteClient.fetchDossierAsync(studentID).thenAccept(current -> {
+                        QueryResult result = current.get(change.table);
+                        if (result == null || result.isError()) {
+                            return;
+                        }
+                        QueryResult decoded = StorageCodec.decode(change.table, result);
+                        SwingUtilities.invokeLater(() -> showChangedForm(tabbedPane, changedLabel, change.table, decoded));
+                    });
+                };
+                SQLiteClient.addChangeListener(changeListener);
+                dialog.setDefaultCloseOperation(JDialog.DISPOSE_ON_CLOSE);
+                dialog.addWindowListener(new WindowAdapter() {
+                    @Override
+                    public void windowClosed(WindowEvent e) {
+                        SQLiteClient.removeChangeListener(changeListener);
                     }
-                }
+                });
 
                 // Buttons Panel
                 JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.CENTER, 10, 10));
@@ -1026,41 +1225,43 @@ public class Main {
                 updateButton.addActionListener(e -> {
                     // Retrieve the selected tab
                     int selectedIndex = tabbedPane.getSelectedIndex();
+                    if (selectedIndex < 0) {
+                        return;
+                    }
                     String selectedTab = tabbedPane.getTitleAt(selectedIndex);
-                    Component selectedComponent = tabbedPane.getComponentAt(selectedIndex);
-
-                    JPanel selectedPanel;
-
-                    // Check if the selected component is a JScrollPane
-                    if (selectedComponent instanceof JScrollPane) {
-                        JScrollPane scrollPane = (JScrollPane) selectedComponent;
-                        selectedPanel = (JPanel) scrollPane.getViewport().getView();
-                    } else if (selectedComponent instanceof JPanel) {
-                        selectedPanel = (JPanel) selectedComponent;
-                    } else {
+                    JPanel selectedPanel = searchTabPanel(tabbedPane.getComponentAt(selectedIndex));
+                    if (selectedPanel == null) {
                         showErrorDialog("Unexpected component type in tabbed pane.", null);
                         return;
                     }
 
                     try {
+                        CompletableFuture<Boolean> saved;
                         switch (selectedTab) {
                             case "Internship Acceptance":
-                                Object[] acceptanceFields = (Object[]) selectedPanel.getClientProperty("fields");
-                                updateAcceptanceRecord(acceptanceFields, studentID);
+                                saved = updateAcceptanceRecord(selectedPanel, studentID);
                                 break;
                             case "Intern Evaluation":
-                                Object[] evaluationFields = (Object[]) selectedPanel.getClientProperty("fields");
-                                updateEvaluationRecord(evaluationFields, studentID);
+                                saved = updateEvaluationRecord(selectedPanel, studentID);
                                 break;
                             case "Internship Place Evaluation":
-                                Object[] placeFields = (Object[]) selectedPanel.getClientProperty("fields");
-                                updatePlaceEvaluationRecord(placeFields, studentID);
+                                saved = updatePlaceEvaluationRecord(selectedPanel, studentID);
                                 break;
                             default:
                                 // Handle other tabs if any
                                 showInfoDialog("No update functionality implemented for this tab.");
+                                saved = CompletableFuture.completedFuture(true);
                         }
-                        dialog.dispose();
+                        updateButton.setEnabled(false);
+                        saved.whenComplete((done, error) -> SwingUtilities.invokeLater(() -> {
+                            updateButton.setEnabled(true);
+                            if (error != null) {
+                                showErrorDialog("Error occurred while updating the record.", asyncFailure(error));
+                            } else if (done) {
+                                dialog.dispose();
+                            }
+                            // Otherwise it stays open, e.g. after a conflict the user backed out of, so their edits are not lost
+                        }));
                     } catch (Exception ex) {
                         showErrorDialog("Error occurred while updating the record.", ex);
                     }
@@ -1074,10 +1275,12 @@ public class Main {
                 buttonPanel.add(updateButton);
                 buttonPanel.add(exportButton);
 
+                dialog.add(changedLabel, BorderLayout.NORTH);
                 dialog.add(tabbedPane, BorderLayout.CENTER);
                 dialog.add(buttonPanel, BorderLayout.SOUTH);
 
                 dialog.setLocationRelativeTo(frame);
+                ClientTimings.rendered("Dossier", "student " + studentID, renderStart);
                 dialog.setVisible(true);
             });
 
@@ -1086,6 +1289,113 @@ public class Main {
         }
     }
 
+    private static String formTitle(String tableName) {
+        switch (tableName) {
+            case "InternshipAcceptance":
+                return "Internship Acceptance";
+            case "InternEvaluation":
+                return "Intern Evaluation";
+            case "InternshipPlaceEvaluation":
+                return "Internship Place Evaluation";
+            default:
+                return tableName;
+        }
+    }
+
+    // The editable form for a search result tab. The panel remembers the record's version and the values
+    // it was filled with, so a change by another client can tell whether it has been edited since.
+    private static Component createSearchTab(String tableName, QueryResult queryResult) {
+        // Values arrive already split into columns, so tabs and newlines inside them survive
+        String[] headers = queryResult.getColumns();
+        String[] data = queryResult.rowAsStrings(0);
+
+        // Determine which panel to create based on the table name
+        JPanel panel;
+        switch (tableName) {
+            case "InternshipAcceptance":
+                panel = createAcceptanceSearchPanel(headers, data);
+                break;
+            case "InternEvaluation":
+                panel = createEvaluationSearchPanel(headers, data);
+                break;
+            case "InternshipPlaceEvaluation":
+                panel = createPlaceEvaluationSearchPanel(headers, data);
+                break;
+            default:
+                return new JPanel();
+        }
+        String version = findValueByHeader(headers, data, "version");
+        panel.putClientProperty("version", version.isEmpty() ? 0L : Long.parseLong(version));
+        panel.putClientProperty("loaded", fieldValues((Object[]) panel.getClientProperty("fields")));
+        return tableName.equals("InternshipPlaceEvaluation") ? new JScrollPane(panel) : panel;
+    }
+
+    // The form panel inside a search result tab, or null if the tab holds something else
+    private static JPanel searchTabPanel(Component tab) {
+        // Check if the selected component is a JScrollPane
+        if (tab instanceof JScrollPane) {
+            Component view = ((JScrollPane) tab).getViewport().getView();
+            return view instanceof JPanel ? (JPanel) view : null;
+        }
+        return tab instanceof JPanel ? (JPanel) tab : null;
+    }
+
+    // What each field of a search form currently shows, in field order
+    private static List<String> fieldValues(Object[] fields) {
+        List<String> values = new ArrayList<>();
+        if (fields == null) {
+            return values;
+        }
+        for (Object field : fields) {
+            Object component = ((Object[]) field)[1];
+            if (component instanceof JScrollPane) {
+                component = ((JScrollPane) component).getViewport().getView();
+            }
+            if (component instanceof JTextComponent) {
+                values.add(((JTextComponent) component).getText());
+            } else if (component instanceof JComboBox) {
+                values.add(String.valueOf(((JComboBox<?>) component).getSelectedItem()));
+            } else if (component instanceof JSpinner) {
+                values.add(String.valueOf(((JSpinner) component).getValue()));
+            } else {
+                values.add(String.valueOf(component));
+            }
+        }
+        return values;
+    }
+
+    // Shows the student's form as another client left it: reloaded in place if nobody has edited it
+    // here, otherwise left as it is with a warning above the tabs
+    private static void showChangedForm(JTabbedPane tabbedPane, JLabel changedLabel, String tableName, QueryResult result) {
+        String title = formTitle(tableName);
+        int index = tabbedPane.indexOfTab(title);
+        String message;
+        if (result.rowCount() == 0) {
+            if (index < 0) {
+                return;
+            }
+            tabbedPane.removeTabAt(index);
+            message = title + " was deleted by another user.";
+        } else if (index < 0) {
+            tabbedPane.addTab(title, createSearchTab(tableName, result));
+            message = title + " was added by another user.";
+        } else {
+            JPanel panel = searchTabPanel(tabbedPane.getComponentAt(index));
+            String version = findValueByHeader(result.getColumns(), result.rowAsStrings(0), "version");
+            if (panel == null || version.isEmpty() || Long.parseLong(version) <= (Long) panel.getClientProperty("version")) {
+                return; // Already showing this version
+            }
+            if (fieldValues((Object[]) panel.getClientProperty("fields")).equals(panel.getClientProperty("loaded"))) {
+                tabbedPane.setComponentAt(index, createSearchTab(tableName, result));
+                message = title + " was changed by another user and has been reloaded.";
+            } else {
+                message = title + " was changed by another user while you were editing it. Updating saves only the fields you changed and asks about any they changed too.";
+            }
+        }
+        changedLabel.setText(message);
+        changedLabel.setVisible(true);
+    }
+
     private static JPanel createAcceptanceSearchPanel(String[] headers, String[] data) {
         JPanel formPanel = new JPanel(new GridBagLayout());
         GridBagConstraints gbc = new GridBagConstraints();
@@ -1283,6 +1593,146 @@ public class Main {
         return formPanel;
     }
 
+    // "?, ?, ..." for an INSERT with count columns
+    private static String placeholders(int count) {
+        return String.join(", ", java.util.Collections.nCopies(count, "?"));
+    }
+
+    // Form values are converted to their stored form first, so the columns written can differ from the form's
+    private static CompletableFuture<QueryResult> insertForm(String table, String[] columns, Object... values) {
+        StorageCodec.Encoded row = StorageCodec.encode(table, columns, values);
+        int studentIDColumn = Arrays.asList(columns).indexOf("studentID");
+        Object studentID = studentIDColumn >= 0 ? values[studentIDColumn] : null;
+        return SQLiteClient.executeAsync("INSERT INTO " + table + " (" + String.join(", ", row.columns) + ") " +
+                "VALUES (" + placeholders(row.columns.length) + ")", row.values).whenComplete((result, error) -> {
+            if (studentID != null) {
+                SQLiteClient.forgetDossier(studentID.toString());
+            }
+        });
+    }
+
+    // Only written if the record is still at the version the form was filled from
+    private static CompletableFuture<RecordUpdate.Result> updateForm(String table, String studentID, long version, String[] columns, Object... values) {
+        StorageCodec.Encoded row = StorageCodec.encode(table, columns, values);
+        return SQLiteClient.updateIfVersionAsync(new RecordUpdate(table, studentID, version, row.columns, row.values));
+    }
+
+    // Saves the fields of a search result form edited since it was loaded; the others are left as stored.
+    // If another user changed the record meanwhile, they are asked which of their edits that clash with
+    // the other user's to keep, and those are saved over the newer version. Completes on the EDT with
+    // true once it is saved.
+    private static CompletableFuture<Boolean> saveSearchForm(JPanel panel, String table, String studentID, String[] columns, Object... values) {
+        @SuppressWarnings("unchecked")
+        List<String> loaded = (List<String>) panel.getClientProperty("loaded");
+        List<Integer> edited = new ArrayList<>();
+        for (int i = 0; i < columns.length; i++) {
+            if (loaded == null || i >= loaded.size() || !String.valueOf(values[i]).equals(loaded.get(i))) {
+                edited.add(i);
+            }
+        }
+        if (edited.isEmpty()) {
+            showInfoDialog("Nothing was changed.");
+            return CompletableFuture.completedFuture(true);
+        }
+        return saveEditedFields(panel, table, studentID, columns, values, loaded, edited, (Long) panel.getClientProperty("version"));
+    }
+
+    private static CompletableFuture<Boolean> saveEditedFields(JPanel panel, String table, String studentID, String[] columns,
+                                                               Object[] values, List<String> loaded, List<Integer> edited, long version) {
+        // In form order, so the same set of fields always makes the same statement
+        String[] editedColumns = new String[edited.size()];
+        Object[] editedValues = new Object[edited.size()];
+        for (int i = 0; i < edited.size(); i++) {
+            editedColumns[i] = columns[edited.get(i)];
+            editedValues[i] = values[edited.get(i)];
+        }
+        return updateForm(table, studentID, version, editedColumns, editedValues).thenComposeAsync(result -> {
+            switch (result.getStatus()) {
+                case UPDATED:
+                    panel.putClientProperty("version", result.getVersion());
+                    panel.putClientProperty("loaded", fieldValues((Object[]) panel.getClientProperty("fields")));
+                    showInfoDialog("Record updated successfully.");
+                    return CompletableFuture.completedFuture(true);
+                case DELETED:
+                    showInfoDialog(formTitle(table) + " was deleted by another user, so it was not updated.");
+                    return CompletableFuture.completedFuture(false);
+                case ERROR:
+                    showErrorDialog("Error occurred while updating the record. " + result.getError(), null);
+                    return CompletableFuture.completedFuture(false);
+                default:
+                    QueryResult current = StorageCodec.decode(table, result.getCurrent());
+                    List<Integer> keep = mergeConflict(table, columns, values, loaded, edited, current);
+                    if (keep == null) {
+                        return CompletableFuture.completedFuture(false);
+                    }
+                    if (keep.isEmpty()) {
+                        return CompletableFuture.completedFuture(true); // Everything is as the other user left it
+                    }
+                    return saveEditedFields(panel, table, studentID, columns, values, loaded, keep, result.getVersion());
+            }
+        }, SwingUtilities::invokeLater);
+    }
+
+    // Lists the edited fields that the other user has also changed to something else, and returns the
+    // edited fields still to be saved: those the user chose to keep and those not in dispute. Returns null
+    // if they cancel.
+    private static List<Integer> mergeConflict(String table, String[] columns, Object[] values, List<String> loaded,
+                                               List<Integer> edited, QueryResult current) {
+        List<Integer> keep = new ArrayList<>();
+        List<Integer> differing = new ArrayList<>();
+        DefaultTableModel model = new DefaultTableModel(new String[]{"Field", "Yours", "Theirs", "Keep yours"}, 0) {
+            @Override
+            public Class<?> getColumnClass(int column) {
+                return column == 3 ? Boolean.class : String.class;
+            }
+
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return column == 3;
+            }
+        };
+        for (int i : edited) {
+            String yours = String.valueOf(values[i]);
+            String theirs = current.getString(0, columns[i]);
+            if (theirs == null) {
+                theirs = "";
+            }
+            if (yours.equals(theirs)) {
+                continue; // They made the same change
+            }
+            keep.add(i);
+            if (loaded != null && i < loaded.size() && theirs.equals(loaded.get(i))) {
+                continue; // They did not touch it
+            }
+            differing.add(i);
+            model.addRow(new Object[]{columns[i], yours, theirs, true});
+        }
+        if (differing.isEmpty()) {
+            return keep;
+        }
+
+        JTable fieldTable = new JTable(model);
+        fieldTable.setPreferredScrollableViewportSize(new Dimension(600, Math.min(differing.size(), 12) * fieldTable.getRowHeight()));
+        JPanel panel = new JPanel(new BorderLayout(0, 10));
+        panel.add(new JLabel("<html>" + formTitle(table) + " was changed by another user since you opened it.<br>" +
+                "Choose which of your changes to keep; everything else is saved as they left it.</html>"), BorderLayout.NORTH);
+        panel.add(new JScrollPane(fieldTable), BorderLayout.CENTER);
+        int choice = JOptionPane.showConfirmDialog(frame, panel, "Record Changed by Another User",
+                JOptionPane.OK_CANCEL_OPTION, JOptionPane.WARNING_MESSAGE);
+        if (choice != JOptionPane.OK_OPTION) {
+            return null;
+        }
+        if (fieldTable.isEditing()) {
+            fieldTable.getCellEditor().stopCellEditing();
+        }
+        for (int row = 0; row < differing.size(); row++) {
+            if (!(Boolean) model.getValueAt(row, 3)) {
+                keep.remove(differing.get(row));
+            }
+        }
+        return keep;
+    }
+
     private static String findValueByHeader(String[] headers, String[] data, String headerName) {
         for (int i = 0; i < headers.length; i++) {
             if (headers[i].equalsIgnoreCase(headerName)) {
@@ -1299,22 +1749,29 @@ public class Main {
             return;
         }
 
-        String query = String.format("DELETE FROM  " + tableName + " WHERE studentID = '%s'",
-                studentID.replace("'", "''")
-        );
+        String query = "DELETE FROM " + tableName + " WHERE studentID = ?";
 
-        String result = SQLiteClient.sendQuery(query);
-        int rowsAffected = Integer.parseInt(result.split(" ")[2]);
+        SQLiteClient.executeAsync(query, studentID).whenComplete((result, error) -> {
+            SQLiteClient.forgetDossier(studentID);
+            if (error != null) {
+                showErrorDialog("Error occurred while deleting the record.", asyncFailure(error));
+                return;
+            }
+            if (result.isError()) {
+                showErrorDialog("Error occurred while deleting the record. " + result.toText(), null);
+                return;
+            }
 
-        if (rowsAffected > 0){
-            SwingUtilities.invokeLater(() -> {
-                JOptionPane.showMessageDialog(null, "Record deleted successfully.");
-            });
-        } else {
-            SwingUtilities.invokeLater(() -> {
-                JOptionPane.showMessageDialog(null, "Record not found.");
-            });
-        }
+            if (result.getUpdateCount() > 0){
+                SwingUtilities.invokeLater(() -> {
+                    JOptionPane.showMessageDialog(null, "Record deleted successfully.");
+                });
+            } else {
+                SwingUtilities.invokeLater(() -> {
+                    JOptionPane.showMessageDialog(null, "Record not found.");
+                });
+            }
+        });
     }
 
     @FunctionalInterface
@@ -1324,11 +1781,11 @@ public class Main {
 
     // Utility Methods for Validation and Error Handling
 
-    private static boolean isNumeric(String str) {
+    static boolean isNumeric(String str) {
         return str.matches("\\d+");
     }
 
-    private static boolean isValidDateRange(String dateRange) {
+    static boolean isValidDateRange(String dateRange) {
         if (dateRange == null || !dateRange.contains("-")) {
             return false;
         }
@@ -1377,7 +1834,8 @@ public class Main {
         });
     }
 
-    private static void updateAcceptanceRecord(Object[] fields, String studentID) {
+    private static CompletableFuture<Boolean> updateAcceptanceRecord(JPanel panel, String studentID) {
+        Object[] fields = (Object[]) panel.getClientProperty("fields");
         // Fix array indexing - fields array contains pairs of [label, component]
         JTextField nameField = (JTextField) ((Object[])fields[0])[1];
         JTextField facultyField = (JTextField) ((Object[])fields[1])[1];
@@ -1396,83 +1854,51 @@ public class Main {
             institutionPhoneField.getText().trim().isEmpty() ||
             responsibleNameField.getText().trim().isEmpty()) {
             showInfoDialog("All fields except Student ID must be filled.");
-            return;
+            return CompletableFuture.completedFuture(false);
         }
 
-        String updateQuery = String.format(
-            "UPDATE InternshipAcceptance SET " +
-            "name = '%s', " +
-            "faculty = '%s', " +
-            "dates = '%s', " +
-            "institutionName = '%s', " +
-            "institutionAddress = '%s', " +
-            "institutionPhone = '%s', " +
-            "responsibleName = '%s' " +
-            "WHERE studentID = '%s'",
-            nameField.getText().replace("'", "''"),
-            facultyField.getText().replace("'", "''"),
-            datesField.getText().replace("'", "''"),
-            institutionNameField.getText().replace("'", "''"),
-            institutionAddressField.getText().replace("'", "''"),
-            institutionPhoneField.getText().replace("'", "''"),
-            responsibleNameField.getText().replace("'", "''"),
-            studentID.replace("'", "''")
-        );
+        String[] columns = {"name", "faculty", "dates", "institutionName", "institutionAddress",
+                "institutionPhone", "responsibleName"};
 
         try {
-            String result = SQLiteClient.sendQuery(updateQuery);
-            if (result.startsWith("Update Count:")) {
-                SwingUtilities.invokeLater(() -> {
-                    showInfoDialog("Record updated successfully.");
-                });
-            } else {
-                SwingUtilities.invokeLater(() -> {
-                    showInfoDialog("Record updated.");
-                });
-            }
+            return saveSearchForm(panel, "InternshipAcceptance", studentID, columns,
+                    nameField.getText(),
+                    facultyField.getText(),
+                    datesField.getText(),
+                    institutionNameField.getText(),
+                    institutionAddressField.getText(),
+                    institutionPhoneField.getText(),
+                    responsibleNameField.getText());
         } catch (Exception e) {
             showErrorDialog("Error occurred while updating the record.", e);
+            return CompletableFuture.completedFuture(false);
         }
     }
 
-    private static void updateEvaluationRecord(Object[] fields, String studentID) {
+    private static CompletableFuture<Boolean> updateEvaluationRecord(JPanel panel, String studentID) {
+        Object[] fields = (Object[]) panel.getClientProperty("fields");
         // Fix array indexing - fields array contains pairs of [label, component]
         JTextField nameField = (JTextField) ((Object[])fields[0])[1];
         JTextField evaluationDateField = (JTextField) ((Object[])fields[1])[1];
         JTextField responsibleNameField = (JTextField) ((Object[])fields[2])[1];
         JTextField evaluationField = (JTextField) ((Object[])fields[3])[1];
 
-        String updateQuery = String.format(
-            "UPDATE InternEvaluation SET " +
-            "name = '%s', " +
-            "evaluationDate = '%s', " +
-            "responsibleName = '%s', " +
-            "evaluation = '%s' " +
-            "WHERE studentID = '%s'",
-            nameField.getText().replace("'", "''"),
-            evaluationDateField.getText().replace("'", "''"),
-            responsibleNameField.getText().replace("'", "''"),
-            evaluationField.getText().replace("'", "''"),
-            studentID.replace("'", "''")
-        );
+        String[] columns = {"name", "evaluationDate", "responsibleName", "evaluation"};
 
         try {
-            String result = SQLiteClient.sendQuery(updateQuery);
-            if (result.startsWith("Update Count:")) {
-                SwingUtilities.invokeLater(() -> {
-                    showInfoDialog("Record updated successfully.");
-                });
-            } else {
-                SwingUtilities.invokeLater(() -> {
-                    showInfoDialog("Record updated.");
-                });
-            }
+            return saveSearchForm(panel, "InternEvaluation", studentID, columns,
+                    nameField.getText(),
+                    evaluationDateField.getText(),
+                    responsibleNameField.getText(),
+                    evaluationField.getText());
         } catch (Exception e) {
             showErrorDialog("Error occurred while updating the record.", e);
+            return CompletableFuture.completedFuture(false);
         }
     }
 
-    private static void updatePlaceEvaluationRecord(Object[] fields, String studentID) {
+    private static CompletableFuture<Boolean> updatePlaceEvaluationRecord(JPanel panel, String studentID) {
+        Object[] fields = (Object[]) panel.getClientProperty("fields");
         // Extract fields - each field is in a pair [label, component]
         JTextField nameField = (JTextField) ((Object[])fields[0])[1];
         JTextField institutionNameField = (JTextField) ((Object[])fields[1])[1];
@@ -1520,99 +1946,58 @@ public class Main {
             recommendationField.getText().trim().isEmpty() ||
             futureWorkField.getText().trim().isEmpty()) {
             showInfoDialog("All fields except Student ID must be filled.");
-            return;
+            return CompletableFuture.completedFuture(false);
         }
 
-        String updateQuery = String.format(
-            "UPDATE InternshipPlaceEvaluation SET " +
-            "name = '%s', " +
-            "institutionName = '%s', " +
-            "duration = '%s', " +
-            "salary = '%s', " +
-            "transportation = '%s', " +
-            "meals = '%s', " +
-            "practiceTheory = '%s', " +
-            "foreignLanguage = '%s', " +
-            "responsibilities = '%s', " +
-            "workingSpace = '%s', " +
-            "factoryConditions = '%s', " +
-            "recommendation = '%s', " +
-            "futureWork = '%s', " +
-            "processScore = '%s', " +
-            "decisionMaking = '%s', " +
-            "expectations = '%s', " +
-            "researchDevelopment = '%s', " +
-            "comments = '%s', " +
-            "reasonForChoice = '%s', " +
-            "analysisMethodsLearned = '%s', " +
-            "courseAssociation = '%s', " +
-            "workAssociation = '%s', " +
-            "knowledgeLacks = '%s', " +
-            "positiveAspects = '%s', " +
-            "negativeAspects = '%s' " +
-            "WHERE studentID = '%s'",
-            nameField.getText().replace("'", "''"),
-            institutionNameField.getText().replace("'", "''"),
-            durationField.getText().replace("'", "''"),
-            salaryCombo.getSelectedItem().toString().replace("'", "''"),
-            transportationCombo.getSelectedItem().toString().replace("'", "''"),
-            mealsCombo.getSelectedItem().toString().replace("'", "''"),
-            practiceTheoryCombo.getSelectedItem().toString().replace("'", "''"),
-            foreignLanguageCombo.getSelectedItem().toString().replace("'", "''"),
-            responsibilitiesField.getText().replace("'", "''"),
-            workingSpaceField.getText().replace("'", "''"),
-            factoryConditionsField.getText().replace("'", "''"),
-            recommendationField.getText().replace("'", "''"),
-            futureWorkField.getText().replace("'", "''"),
-            processScoreSpinner.getValue().toString().replace("'", "''"),
-            decisionMakingSpinner.getValue().toString().replace("'", "''"),
-            expectationsSpinner.getValue().toString().replace("'", "''"),
-            researchDevelopmentSpinner.getValue().toString().replace("'", "''"),
-            commentsArea.getText().replace("'", "''"),
-            reasonForChoiceArea.getText().replace("'", "''"),
-            analysisMethodsLearnedArea.getText().replace("'", "''"),
-            courseAssociationArea.getText().replace("'", "''"),
-            workAssociationArea.getText().replace("'", "''"),
-            knowledgeLacksArea.getText().replace("'", "''"),
-            positiveAspectsArea.getText().replace("'", "''"),
-            negativeAspectsArea.getText().replace("'", "''"),
-            studentID.replace("'", "''")
-        );
+        String[] columns = {"name", "institutionName", "duration",
+                "salary", "transportation", "meals", "practiceTheory", "foreignLanguage", "responsibilities",
+                "workingSpace", "factoryConditions", "recommendation", "futureWork", "processScore",
+                "decisionMaking", "expectations", "researchDevelopment", "comments", "reasonForChoice",
+                "analysisMethodsLearned", "courseAssociation", "workAssociation", "knowledgeLacks",
+                "positiveAspects", "negativeAspects"};
 
         try {
-            String result = SQLiteClient.sendQuery(updateQuery);
-            if (result.startsWith("Update Count:")) {
-                SwingUtilities.invokeLater(() -> {
-                    showInfoDialog("Record updated successfully.");
-                });
-            } else {
-                SwingUtilities.invokeLater(() -> {
-                    showInfoDialog("Record updated.");
-                });
-            }
+            return saveSearchForm(panel, "InternshipPlaceEvaluation", studentID, columns,
+                    nameField.getText(),
+                    institutionNameField.getText(),
+                    durationField.getText(),
+                    salaryCombo.getSelectedItem().toString(),
+                    transportationCombo.getSelectedItem().toString(),
+                    mealsCombo.getSelectedItem().toString(),
+                    practiceTheoryCombo.getSelectedItem().toString(),
+                    foreignLanguageCombo.getSelectedItem().toString(),
+                    responsibilitiesField.getText(),
+                    workingSpaceField.getText(),
+                    factoryConditionsField.getText(),
+                    recommendationField.getText(),
+                    futureWorkField.getText(),
+                    processScoreSpinner.getValue().toString(),
+                    decisionMakingSpinner.getValue().toString(),
+                    expectationsSpinner.getValue().toString(),
+                    researchDevelopmentSpinner.getValue().toString(),
+                    commentsArea.getText(),
+                    reasonForChoiceArea.getText(),
+                    analysisMethodsLearnedArea.getText(),
+                    courseAssociationArea.getText(),
+                    workAssociationArea.getText(),
+                    knowledgeLacksArea.getText(),
+                    positiveAspectsArea.getText(),
+                    negativeAspectsArea.getText());
         } catch (Exception e) {
             showErrorDialog("Error occurred while updating the record.", e);
+            return CompletableFuture.completedFuture(false);
         }
     }
 
-    private static void exportRecordToExcel(Map<String, String> tableResults, String studentID) {
+    private static void exportRecordToExcel(Map<String, QueryResult> tableResults, String studentID) {
         Workbook workbook = new XSSFWorkbook();
         try {
-            for (Map.Entry<String, String> entry : tableResults.entrySet()) {
+            for (Map.Entry<String, QueryResult> entry : tableResults.entrySet()) {
                 String tableName = entry.getKey();
-                String data = entry.getValue();
+                QueryResult data = entry.getValue();
 
                 Sheet sheet = workbook.createSheet(tableName);
-
-                String[] rows = data.split("\n");
-                for (int i = 0; i < rows.length; i++) {
-                    Row row = sheet.createRow(i);
-                    String[] cells = rows[i].split("\t");
-                    for (int j = 0; j < cells.length; j++) {
-                        Cell cell = row.createCell(j);
-                        cell.setCellValue(cells[j]);
-                    }
-                }
+                writeSheet(sheet, data.getColumns(), data.getRows().iterator());
             }
 
             // **Save the Excel file**
@@ -1639,59 +2024,139 @@ public class Main {
         }
     }
 
+    // Runs in the background with a progress dialog; the tables are streamed into the workbook, not loaded first
     private static void exportAllFormsToExcel() {
-        Workbook workbook = new XSSFWorkbook();
-        try {
-            // Define tables and their corresponding sheet names
-            Map<String, String> tables = new HashMap<>();
-            tables.put("InternshipAcceptance", "Internship Acceptance");
-            tables.put("InternEvaluation", "Intern Evaluation");
-            tables.put("InternshipPlaceEvaluation", "Internship Place Evaluation");
-
-            // Iterate through each table and populate sheets
-            for (Map.Entry<String, String> entry : tables.entrySet()) {
-                String tableName = entry.getKey();
-                String sheetName = entry.getValue();
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setDialogTitle("Save All Forms Excel File");
+        fileChooser.setSelectedFile(new File("AllFormsExport.xlsx"));
+        if (fileChooser.showSaveDialog(frame) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        File fileToSave = fileChooser.getSelectedFile();
 
-                String query = "SELECT * FROM " + tableName;
-                String queryResult = SQLiteClient.sendQuery(query);
+        JDialog progressDialog = new JDialog(frame, "Exporting All Forms", false);
+        progressDialog.setDefaultCloseOperation(JDialog.DO_NOTHING_ON_CLOSE);
+        JProgressBar progressBar = new JProgressBar(0, 100);
+        progressBar.setIndeterminate(true);
+        progressBar.setStringPainted(true);
+        JLabel statusLabel = new JLabel("Counting records...");
+        JButton cancelButton = new JButton("Cancel");
 
-                if (queryResult != null && !queryResult.isEmpty()) {
-                    Sheet sheet = workbook.createSheet(sheetName);
-                    String[] rows = queryResult.split("\n");
+        SwingWorker<Boolean, long[]> worker = new SwingWorker<Boolean, long[]>() {
+            @Override
+            protected Boolean doInBackground() throws Exception {
+                long total = FormExporter.countRows();
+                publish(new long[]{0, total});
+                return FormExporter.export(fileToSave, total, (written, all) -> publish(new long[]{written, all}), this::isCancelled);
+            }
 
-                    for (int i = 0; i < rows.length; i++) {
-                        Row row = sheet.createRow(i);
-                        String[] cells = rows[i].split("\t");
-                        for (int j = 0; j < cells.length; j++) {
-                            Cell cell = row.createCell(j);
-                            cell.setCellValue(cells[j]);
-                        }
-                    }
+            @Override
+            protected void process(List<long[]> updates) {
+                long[] latest = updates.get(updates.size() - 1);
+                long written = latest[0];
+                long total = latest[1];
+                if (total > 0) {
+                    progressBar.setIndeterminate(false);
+                    progressBar.setValue((int) Math.min(100, written * 100 / total));
+                    statusLabel.setText(written + " of " + total + " records written");
+                } else {
+                    statusLabel.setText(written + " records written");
                 }
             }
 
-            // **Save the Excel file**
-            JFileChooser fileChooser = new JFileChooser();
-            fileChooser.setDialogTitle("Save All Forms Excel File");
-            fileChooser.setSelectedFile(new File("AllFormsExport.xlsx"));
-            int userSelection = fileChooser.showSaveDialog(frame);
-
-            if (userSelection == JFileChooser.APPROVE_OPTION) {
-                File fileToSave = fileChooser.getSelectedFile();
-                try (FileOutputStream fileOut = new FileOutputStream(fileToSave)) {
-                    workbook.write(fileOut);
-                    showInfoDialog("All forms exported successfully to " + fileToSave.getAbsolutePath());
+            @Override
+            protected void done() {
+                progressDialog.dispose();
+                if (isCancelled()) {
+                    showInfoDialog("Export cancelled.");
+                    return;
+                }
+                try {
+                    if (get()) {
+                        showInfoDialog("All forms exported successfully to " + fileToSave.getAbsolutePath());
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    showErrorDialog("Error occurred while exporting all forms to Excel.",
+                            cause instanceof Exception ? (Exception) cause : e);
                 }
             }
-        } catch (IOException ex) {
-            showErrorDialog("Error occurred while exporting all forms to Excel.", ex);
-        } finally {
+        };
+        cancelButton.addActionListener(e -> {
+            cancelButton.setEnabled(false);
+            statusLabel.setText("Cancelling...");
+            worker.cancel(false);
+        });
+
+        JPanel panel = new JPanel(new BorderLayout(10, 10));
+        panel.setBorder(BorderFactory.createEmptyBorder(15, 15, 15, 15));
+        panel.add(statusLabel, BorderLayout.NORTH);
+        panel.add(progressBar, BorderLayout.CENTER);
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        buttonPanel.add(cancelButton);
+        panel.add(buttonPanel, BorderLayout.SOUTH);
+        progressDialog.add(panel);
+        progressDialog.setSize(400, 150);
+        progressDialog.setLocationRelativeTo(frame);
+        progressDialog.setVisible(true);
+
+        worker.execute();
+    }
+
+    // Bulk entry from a spreadsheet or CSV file; rows that cannot be saved are listed afterwards
+    private static void importForms(String tableName) {
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setDialogTitle("Import Forms");
+        fileChooser.setFileFilter(new FileNameExtensionFilter("Excel or CSV files (*.xlsx, *.csv)", "xlsx", "csv"));
+        if (fileChooser.showOpenDialog(frame) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        File file = fileChooser.getSelectedFile();
+
+        executorService.execute(() -> {
             try {
-                workbook.close();
+                FormImporter.Report report = new FormImporter(tableName).importFile(file);
+                SwingUtilities.invokeLater(() -> showImportReport(file, report));
             } catch (IOException e) {
-                e.printStackTrace();
+                showErrorDialog("Error occurred while importing " + file.getName() + ".", e);
             }
+        });
+    }
+
+    private static void showImportReport(File file, FormImporter.Report report) {
+        List<String> rejects = report.getRejects();
+        String summary = report.getImported() + " record(s) imported from " + file.getName() + ".";
+        if (rejects.isEmpty()) {
+            JOptionPane.showMessageDialog(frame, summary, "Import Complete", JOptionPane.INFORMATION_MESSAGE);
+            return;
         }
+
+        JTextArea rejectList = new JTextArea(String.join("\n", rejects));
+        rejectList.setEditable(false);
+        JScrollPane scrollPane = new JScrollPane(rejectList);
+        scrollPane.setPreferredSize(new Dimension(600, 300));
+
+        JPanel panel = new JPanel(new BorderLayout(5, 5));
+        panel.add(new JLabel(summary + " " + rejects.size() + " row(s) were not imported:"), BorderLayout.NORTH);
+        panel.add(scrollPane, BorderLayout.CENTER);
+        JOptionPane.showMessageDialog(frame, panel, "Import Complete", JOptionPane.WARNING_MESSAGE);
     }
-}
\ No newline at end of file
+
+    // Header row followed by one row per record; numbers are written as numeric cells
+    private static void writeSheet(Sheet sheet, String[] columns, Iterator<Object[]> rows) {
+        Row header = sheet.createRow(0);
+        for (int j = 0; j < columns.length; j++) {
+            header.createCell(j).setCellValue(columns[j]);
+        }
+        int rowIndex = 1;
+        while (rows.hasNext()) {
+            Row row = sheet.createRow(rowIndex++);
+            Object[] values = rows.next();
+            for (int j = 0; j < values.length; j++) {
+                FormExporter.setCellValue(row.createCell(j), values[j]);
+            }
+        }
+    }
+}
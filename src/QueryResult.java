@@ -0,0 +1,107 @@
+import java.util.Collections;
+import java.util.List;
+
+// Parsed reply to one statement: either a result set, an update count or an error
+class QueryResult {
+    private final String[] columns;
+    private final List<Object[]> rows;
+    private final int updateCount;
+    private final String error;
+    private final int errorCode;
+
+    private QueryResult(String[] columns, List<Object[]> rows, int updateCount, String error, int errorCode) {
+        this.columns = columns;
+        this.rows = rows;
+        this.updateCount = updateCount;
+        this.error = error;
+        this.errorCode = errorCode;
+    }
+
+    static QueryResult ofRows(String[] columns, List<Object[]> rows) {
+        return new QueryResult(columns, rows, -1, null, 0);
+    }
+
+    static QueryResult ofUpdateCount(int updateCount) {
+        return new QueryResult(new String[0], Collections.emptyList(), updateCount, null, 0);
+    }
+
+    static QueryResult ofError(String error, int errorCode) {
+        return new QueryResult(new String[0], Collections.emptyList(), -1, error, errorCode);
+    }
+
+    boolean isError() {
+        return error != null;
+    }
+
+    String getError() {
+        return error;
+    }
+
+    int getErrorCode() {
+        return errorCode;
+    }
+
+    boolean hasRows() {
+        return error == null && updateCount < 0;
+    }
+
+    int getUpdateCount() {
+        return updateCount;
+    }
+
+    String[] getColumns() {
+        return columns;
+    }
+
+    List<Object[]> getRows() {
+        return rows;
+    }
+
+    int rowCount() {
+        return rows.size();
+    }
+
+    int columnIndex(String column) {
+        for (int i = 0; i < columns.length; i++) {
+            if (columns[i].equalsIgnoreCase(column)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    Object getValue(int row, String column) {
+        int index = columnIndex(column);
+        return index >= 0 ? rows.get(row)[index] : null;
+    }
+
+    String getString(int row, String column) {
+        Object value = getValue(row, column);
+        return value != null ? value.toString() : "";
+    }
+
+    // Row values as display strings, with nulls shown as empty
+    String[] rowAsStrings(int row) {
+        Object[] values = rows.get(row);
+        String[] strings = new String[values.length];
+        for (int i = 0; i < values.length; i++) {
+            strings[i] = values[i] != null ? values[i].toString() : "";
+        }
+        return strings;
+    }
+
+    // Renders the reply the way the text protocol sends it, for callers that still parse strings
+    String toText() {
+        if (error != null) {
+            return "ERROR: " + error;
+        }
+        if (updateCount >= 0) {
+            return "Update Count: " + updateCount;
+        }
+        StringBuilder text = new StringBuilder(String.join("\t", columns));
+        for (int i = 0; i < rows.size(); i++) {
+            text.append('\n').append(String.join("\t", rowAsStrings(i)));
+        }
+        return text.toString();
+    }
+}
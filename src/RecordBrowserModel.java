@@ -0,0 +1,279 @@
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+// Rows of a form table for the Browse tab, fetched a page at a time with keyset pagination on id and at
+// most MAX_PAGES kept. Everything but the fetches on the loader thread runs on the event dispatch thread.
+class RecordBrowserModel extends AbstractTableModel {
+    private static final long serialVersionUID = 1L;
+    static final int PAGE_SIZE = 200;
+    private static final int MAX_PAGES = 12;
+    private static final int REFRESH_DELAY_MILLIS = 300;
+
+    private final String table;
+    private final transient Consumer<String> onError;
+    private final transient ExecutorService loader = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "record-browser");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final transient Map<Integer, Object[][]> pages = new LinkedHashMap<Integer, Object[][]>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Object[][]> eldest) {
+            return size() > MAX_PAGES;
+        }
+    };
+    // First and last id of every page read since the last reload; kept after the page itself is dropped
+    private final transient Map<Integer, long[]> bounds = new HashMap<>();
+    private final transient Set<Integer> loading = new HashSet<>();
+
+    private transient StorageCodec.Decoder decoder;
+    private String[] columns = new String[0];
+    private int idColumn = -1;
+    private int rowCount;
+    private int generation; // Replies to fetches made before the last reload are dropped
+    private volatile int shownPage;
+    private final Timer refreshTimer = new Timer(REFRESH_DELAY_MILLIS, e -> refresh());
+
+    RecordBrowserModel(String table, Consumer<String> onError) {
+        this.table = table;
+        this.onError = onError;
+        refreshTimer.setRepeats(false);
+    }
+
+    // Counts the rows again and starts over from the first page
+    void reload() {
+        int reloadGeneration = ++generation;
+        loader.execute(() -> {
+            QueryResult count = SQLiteClient.execute("SELECT COUNT(*) FROM " + table);
+            QueryResult first = SQLiteClient.execute("SELECT * FROM " + table + " ORDER BY id LIMIT " + PAGE_SIZE);
+            if (count.isError() || first.isError()) {
+                onError.accept(count.isError() ? count.getError() : first.getError());
+                return;
+            }
+            SwingUtilities.invokeLater(() -> {
+                if (reloadGeneration != generation) {
+                    return;
+                }
+                pages.clear();
+                bounds.clear();
+                loading.clear();
+                decoder = StorageCodec.decoder(table, first.getColumns());
+                columns = decoder.columns();
+                idColumn = first.columnIndex("id");
+                rowCount = count.rowCount() > 0 ? Integer.parseInt(String.valueOf(count.getRows().get(0)[0])) : 0;
+                store(0, first.getRows());
+                fireTableStructureChanged();
+            });
+        });
+    }
+
+    // Counts the rows again and drops the loaded pages, keeping the columns and the scroll position;
+    // the rows in view are read again as the table asks for them
+    void refresh() {
+        if (decoder == null) {
+            return;
+        }
+        int refreshGeneration = ++generation;
+        loader.execute(() -> {
+            QueryResult count = SQLiteClient.execute("SELECT COUNT(*) FROM " + table);
+            if (count.isError()) {
+                onError.accept(count.getError());
+                return;
+            }
+            SwingUtilities.invokeLater(() -> {
+                if (refreshGeneration != generation) {
+                    return;
+                }
+                pages.clear();
+                bounds.clear();
+                loading.clear();
+                rowCount = count.rowCount() > 0 ? Integer.parseInt(String.valueOf(count.getRows().get(0)[0])) : 0;
+                fireTableDataChanged();
+            });
+        });
+    }
+
+    // Brings the rows up to date with a change to a record of any form table
+    void applyChange(RecordChange change) {
+        if (decoder == null || !change.table.equals(table)) {
+            return;
+        }
+        if (!change.operation.equals(RecordChange.UPDATE)) {
+            refreshTimer.restart();
+            return;
+        }
+        int studentIDColumn = indexOf("studentID");
+        int versionColumn = indexOf("version");
+        int idColumnShown = indexOf("id");
+        if (studentIDColumn < 0 || idColumnShown < 0) {
+            return;
+        }
+        for (Map.Entry<Integer, Object[][]> page : pages.entrySet()) {
+            Object[][] rows = page.getValue();
+            for (int i = 0; i < rows.length; i++) {
+                if (!change.studentID.equals(String.valueOf(rows[i][studentIDColumn]))) {
+                    continue;
+                }
+                if (versionColumn >= 0 && asLong(rows[i][versionColumn]) >= change.version) {
+                    return; // Already read after the change
+                }
+                refreshRow(page.getKey() * PAGE_SIZE + i, asLong(rows[i][idColumnShown]));
+                return;
+            }
+        }
+    }
+
+    private void refreshRow(int row, long id) {
+        int fetchGeneration = generation;
+        loader.execute(() -> {
+            QueryResult result = SQLiteClient.execute("SELECT * FROM " + table + " WHERE id = ?", id);
+            SwingUtilities.invokeLater(() -> {
+                Object[][] rows = pages.get(row / PAGE_SIZE);
+                int index = row % PAGE_SIZE;
+                if (fetchGeneration != generation || rows == null || index >= rows.length
+                        || asLong(rows[index][indexOf("id")]) != id || result.isError() || result.rowCount() == 0) {
+                    return;
+                }
+                rows[index] = decoder.decode(result.getRows().get(0));
+                fireTableRowsUpdated(row, row);
+            });
+        });
+    }
+
+    int getTotalRows() {
+        return rowCount;
+    }
+
+    // Student ID of a row that has been loaded, or null
+    String getStudentID(int row) {
+        Object[][] page = pages.get(row / PAGE_SIZE);
+        int column = indexOf("studentID");
+        if (page == null || column < 0 || row % PAGE_SIZE >= page.length) {
+            return null;
+        }
+        Object value = page[row % PAGE_SIZE][column];
+        return value != null ? value.toString() : null;
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return columns[column];
+    }
+
+    // Cells of a page that has not arrived yet are blank until it does
+    @Override
+    public Object getValueAt(int row, int column) {
+        int page = row / PAGE_SIZE;
+        shownPage = page;
+        Object[][] rows = pages.get(page);
+        if (rows == null) {
+            fetch(page);
+            return null;
+        }
+        if ((page + 1) * PAGE_SIZE < rowCount && !pages.containsKey(page + 1)) {
+            fetch(page + 1);
+        }
+        int index = row % PAGE_SIZE;
+        return index < rows.length ? rows[index][column] : null;
+    }
+
+    private void fetch(int page) {
+        if (decoder == null || !loading.add(page)) {
+            return;
+        }
+        long[] before = bounds.get(page - 1);
+        long[] after = bounds.get(page + 1);
+        int fetchGeneration = generation;
+        loader.execute(() -> {
+            // Pages asked for while scrolling quickly past them are no longer needed by the time their turn comes
+            if (Math.abs(page - shownPage) > MAX_PAGES / 2) {
+                SwingUtilities.invokeLater(() -> loading.remove(page));
+                return;
+            }
+            QueryResult result;
+            boolean descending = false;
+            if (before != null) {
+                result = SQLiteClient.execute("SELECT * FROM " + table + " WHERE id > ? ORDER BY id LIMIT " + PAGE_SIZE, before[1]);
+            } else if (after != null) {
+                result = SQLiteClient.execute("SELECT * FROM " + table + " WHERE id < ? ORDER BY id DESC LIMIT " + PAGE_SIZE, after[0]);
+                descending = true;
+            } else {
+                result = SQLiteClient.execute("SELECT * FROM " + table + " ORDER BY id LIMIT " + PAGE_SIZE + " OFFSET " + page * PAGE_SIZE);
+            }
+            boolean reversed = descending;
+            SwingUtilities.invokeLater(() -> {
+                if (fetchGeneration != generation) {
+                    return;
+                }
+                loading.remove(page);
+                if (result.isError()) {
+                    onError.accept(result.getError());
+                    return;
+                }
+                List<Object[]> rows = result.getRows();
+                if (reversed) {
+                    rows = new ArrayList<>(rows);
+                    Collections.reverse(rows);
+                }
+                store(page, rows);
+                int first = page * PAGE_SIZE;
+                int last = Math.min(rowCount, first + PAGE_SIZE) - 1;
+                if (first <= last) {
+                    fireTableRowsUpdated(first, last);
+                }
+            });
+        });
+    }
+
+    private void store(int page, List<Object[]> rows) {
+        Object[][] decoded = new Object[rows.size()][];
+        for (int i = 0; i < decoded.length; i++) {
+            decoded[i] = decoder.decode(rows.get(i));
+        }
+        if (!rows.isEmpty() && idColumn >= 0) {
+            bounds.put(page, new long[]{id(rows.get(0)), id(rows.get(rows.size() - 1))});
+        }
+        pages.put(page, decoded);
+    }
+
+    private long id(Object[] row) {
+        return asLong(row[idColumn]);
+    }
+
+    // Numbers are Longs on the binary protocol and digit strings on the text protocol
+    private static long asLong(Object value) {
+        return Long.parseLong(String.valueOf(value));
+    }
+
+    private int indexOf(String column) {
+        for (int i = 0; i < columns.length; i++) {
+            if (columns[i].equalsIgnoreCase(column)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,27 @@
+// One insert, update or delete of a form record, as logged in ChangeLog and pushed to subscribed
+// clients. ids increase with every change the server commits; version is the record's version
+// column after the change (before it, for a delete).
+final class RecordChange {
+    static final String INSERT = "INSERT";
+    static final String UPDATE = "UPDATE";
+    static final String DELETE = "DELETE";
+
+    final long id;
+    final String table;
+    final String studentID;
+    final String operation;
+    final long version;
+
+    RecordChange(long id, String table, String studentID, String operation, long version) {
+        this.id = id;
+        this.table = table;
+        this.studentID = studentID;
+        this.operation = operation;
+        this.version = version;
+    }
+
+    @Override
+    public String toString() {
+        return operation + " " + table + " " + studentID + " v" + version + " (#" + id + ")";
+    }
+}
@@ -0,0 +1,69 @@
+// An update of one student's form that only goes through if nobody has changed the record since it was
+// read, i.e. it is still at the version the form was filled from. Otherwise nothing is written and the
+// result holds the record as it is now, so the user can decide what to keep. Sent with
+// SQLiteClient.updateIfVersion; values are in their stored form (see StorageCodec).
+final class RecordUpdate {
+    final String table;
+    final String studentID;
+    final long expectedVersion;
+    final String[] columns;
+    final Object[] values;
+
+    RecordUpdate(String table, String studentID, long expectedVersion, String[] columns, Object[] values) {
+        this.table = table;
+        this.studentID = studentID;
+        this.expectedVersion = expectedVersion;
+        this.columns = columns;
+        this.values = values;
+    }
+
+    static final class Result {
+        enum Status { UPDATED, CONFLICT, DELETED, ERROR }
+
+        private final Status status;
+        private final long version;
+        private final QueryResult current;
+        private final String error;
+
+        private Result(Status status, long version, QueryResult current, String error) {
+            this.status = status;
+            this.version = version;
+            this.current = current;
+            this.error = error;
+        }
+
+        static Result updated(long version) {
+            return new Result(Status.UPDATED, version, null, null);
+        }
+
+        static Result conflict(QueryResult current, long version) {
+            return new Result(Status.CONFLICT, version, current, null);
+        }
+
+        static Result deleted() {
+            return new Result(Status.DELETED, 0, null, null);
+        }
+
+        static Result error(String error) {
+            return new Result(Status.ERROR, 0, null, error);
+        }
+
+        Status getStatus() {
+            return status;
+        }
+
+        // The record's version after the update, or its current version after a conflict
+        long getVersion() {
+            return version;
+        }
+
+        // The record as another client left it, one row as stored; only after a conflict
+        QueryResult getCurrent() {
+            return current;
+        }
+
+        String getError() {
+            return error;
+        }
+    }
+}
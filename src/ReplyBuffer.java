@@ -0,0 +1,113 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+// Where the reply to a read is written while it holds one of the few reader connections. The reply is
+// kept in memory and only sent with finish(), after the connection went back to the pool, so a client
+// slow to take its rows does not keep the reader from everyone else. A reply larger than the buffer
+// is streamed to the socket instead, and the client is disconnected, which frees the reader, if a write
+// to the socket makes no progress for stallMillis; a client reading slowly but steadily is not.
+final class ReplyBuffer extends OutputStream {
+    // Streamed replies are written in pieces of this size, so one large write that is making progress
+    // is not mistaken for a stall
+    private static final int STREAM_CHUNK = 8192;
+
+    private static final ScheduledExecutorService deadlines = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "reply-deadlines");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final Socket socket;
+    private final OutputStream output;
+    private final int capacity;
+    private final long stallNanos;
+    private final ByteArrayOutputStream buffered = new ByteArrayOutputStream(512);
+    private boolean streaming;
+    private volatile long lastProgress; // System.nanoTime() of the last write to the socket that returned
+    private volatile boolean finished;
+    private volatile ScheduledFuture<?> stallCheck;
+
+    ReplyBuffer(Socket socket, OutputStream output, int capacity, long stallMillis) {
+        this.socket = socket;
+        this.output = output;
+        this.capacity = capacity;
+        this.stallNanos = TimeUnit.MILLISECONDS.toNanos(stallMillis);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (!streaming && buffered.size() + len > capacity) {
+            streaming = true;
+            lastProgress = System.nanoTime();
+            stallCheck = deadlines.schedule(this::checkStalled, stallNanos, TimeUnit.NANOSECONDS);
+            byte[] start = buffered.toByteArray();
+            buffered.reset();
+            stream(start, 0, start.length);
+        }
+        if (streaming) {
+            stream(b, off, len);
+        } else {
+            buffered.write(b, off, len);
+        }
+    }
+
+    private void stream(byte[] b, int off, int len) throws IOException {
+        for (int end = off + len; off < end; off += STREAM_CHUNK) {
+            output.write(b, off, Math.min(STREAM_CHUNK, end - off));
+            lastProgress = System.nanoTime();
+        }
+    }
+
+    // Sends what is still buffered; call once the reader connection has been released
+    void finish() throws IOException {
+        stopStallCheck();
+        buffered.writeTo(output);
+        buffered.reset();
+    }
+
+    // Drops what is still buffered, such as the first rows of a read that failed part way
+    void discard() {
+        stopStallCheck();
+        buffered.reset();
+    }
+
+    private void stopStallCheck() {
+        finished = true;
+        ScheduledFuture<?> check = stallCheck;
+        if (check != null) {
+            check.cancel(false);
+        }
+    }
+
+    // Runs on the deadlines thread; checks again later while the socket keeps taking the reply
+    private void checkStalled() {
+        if (finished) {
+            return;
+        }
+        long idle = System.nanoTime() - lastProgress;
+        if (idle < stallNanos) {
+            stallCheck = deadlines.schedule(this::checkStalled, stallNanos - idle, TimeUnit.NANOSECONDS);
+        } else {
+            disconnect();
+        }
+    }
+
+    private void disconnect() {
+        System.out.println("Closing client too slow to take its reply: " + socket.getRemoteSocketAddress());
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+        }
+    }
+}
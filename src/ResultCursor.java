@@ -0,0 +1,207 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+// Rows of one result read off the socket as the caller asks for them, so a large result is never
+// held in memory at once. The cursor owns its pooled connection until the last row is read or it
+// is closed; closing early drops the socket rather than draining the rest of the result.
+class ResultCursor implements Iterator<Object[]>, AutoCloseable {
+    private final ClientConnectionPool.PooledConnection conn;
+    private final int requestId;
+    private final Consumer<Boolean> onComplete; // Told whether the connection can be reused
+
+    private String[] columns = new String[0];
+    private Object[] nextRow;
+    private boolean finished;
+    private int updateCount = -1;
+    private String error;
+    private int errorCode;
+
+    // Sends the query and reads the column header (or the error / update count) up front
+    ResultCursor(ClientConnectionPool.PooledConnection conn, String query, Object[] params, Consumer<Boolean> onComplete) throws IOException {
+        this.conn = conn;
+        this.onComplete = onComplete;
+        try {
+            this.requestId = conn.send(query, params);
+        } catch (IOException e) {
+            finished = true;
+            onComplete.accept(false);
+            throw e;
+        }
+        advance();
+    }
+
+    // Reads the reply to a request that was already sent, such as one of several pipelined requests
+    ResultCursor(ClientConnectionPool.PooledConnection conn, int requestId, Consumer<Boolean> onComplete) throws IOException {
+        this.conn = conn;
+        this.onComplete = onComplete;
+        this.requestId = requestId;
+        advance();
+    }
+
+    String[] getColumns() {
+        return columns;
+    }
+
+    boolean isError() {
+        return error != null;
+    }
+
+    // Set once the server reports a failure, which can also happen part way through the rows
+    String getError() {
+        return error;
+    }
+
+    int getErrorCode() {
+        return errorCode;
+    }
+
+    int getUpdateCount() {
+        return updateCount;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return nextRow != null;
+    }
+
+    @Override
+    public Object[] next() {
+        if (nextRow == null) {
+            throw new NoSuchElementException();
+        }
+        Object[] row = nextRow;
+        try {
+            advance();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return row;
+    }
+
+    // Reads the remaining rows into a QueryResult
+    QueryResult toResult() {
+        List<Object[]> rows = new ArrayList<>();
+        while (hasNext()) {
+            rows.add(next());
+        }
+        if (error != null) {
+            return QueryResult.ofError(error, errorCode);
+        }
+        if (updateCount >= 0) {
+            return QueryResult.ofUpdateCount(updateCount);
+        }
+        return QueryResult.ofRows(columns, rows);
+    }
+
+    private void advance() throws IOException {
+        nextRow = null;
+        if (finished) {
+            return;
+        }
+        try {
+            if (conn.binary) {
+                advanceBinary();
+            } else {
+                advanceText();
+            }
+        } catch (IOException | RuntimeException e) {
+            finished = true;
+            onComplete.accept(false);
+            throw e;
+        }
+        if (finished) {
+            onComplete.accept(true);
+        }
+    }
+
+    private void advanceBinary() throws IOException {
+        WireProtocol.FrameReader frames = conn.frameReader;
+        while (frames.next()) {
+            if (frames.requestId() != requestId) {
+                frames.skipPayload();
+                continue;
+            }
+            switch (frames.type()) {
+                case WireProtocol.COLUMNS:
+                    columns = frames.readColumns();
+                    break;
+                case WireProtocol.ROW:
+                    nextRow = frames.readRow();
+                    return;
+                case WireProtocol.END_RESULT:
+                    finished = true;
+                    return;
+                case WireProtocol.UPDATE_COUNT:
+                    updateCount = frames.in().readInt();
+                    finished = true;
+                    return;
+                case WireProtocol.ERROR:
+                    errorCode = frames.in().readInt();
+                    error = WireProtocol.readString(frames.in());
+                    finished = true;
+                    return;
+                default:
+                    frames.skipPayload();
+            }
+        }
+        throw new EOFException("Server closed the connection");
+    }
+
+    // Text replies: a header line, tab-separated rows, then "END"; or a single status line. Only the
+    // first line can be a status, as a row may well start with "ERROR" or "Update Count:" too.
+    private void advanceText() throws IOException {
+        String line;
+        while ((line = WireProtocol.readLine(conn.input)) != null) {
+            if (line.equals("END")) {
+                finished = true;
+                return;
+            }
+            boolean first = columns.length == 0;
+            if (first && line.startsWith("ERROR")) {
+                error = line.startsWith("ERROR: ") ? line.substring(7) : line;
+                skipToEnd();
+                return;
+            } else if (first && line.startsWith("Update Count:")) {
+                try {
+                    updateCount = Integer.parseInt(line.substring(13).trim());
+                } catch (NumberFormatException e) {
+                    updateCount = 0;
+                }
+                skipToEnd();
+                return;
+            } else if (first) {
+                columns = line.split("\t", -1);
+            } else {
+                nextRow = line.split("\t", -1);
+                return;
+            }
+        }
+        throw new EOFException("Server closed the connection");
+    }
+
+    private void skipToEnd() throws IOException {
+        String line;
+        while ((line = WireProtocol.readLine(conn.input)) != null && !line.equals("END")) {
+            // Discard anything after a status line
+        }
+        if (line == null) {
+            throw new EOFException("Server closed the connection");
+        }
+        finished = true;
+    }
+
+    @Override
+    public void close() {
+        if (!finished) {
+            finished = true;
+            nextRow = null;
+            onComplete.accept(false);
+        }
+    }
+}
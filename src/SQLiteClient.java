@@ -0,0 +1,433 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+class SQLiteClient {
+    private static final String SERVER_ADDRESS = System.getProperty("client.host", "localhost"); // Replace with server's IP address
+    private static final int SERVER_PORT = Integer.getInteger("client.port", 12345); // Port number of the server
+    private static final int POOL_SIZE = 8; // Max sockets kept open to the server
+    private static final long IDLE_TIMEOUT_MILLIS = 5 * 60 * 1000; // Close sockets unused for this long
+    private static final long VALIDATE_AFTER_MILLIS = 30 * 1000; // Ping sockets idle longer than this before reuse
+    private static final long BORROW_TIMEOUT_MILLIS = 10 * 1000;
+    private static final int PIPELINE_WINDOW = 64; // Requests written ahead of the replies read back
+    private static final int MAX_IN_FLIGHT = Integer.getInteger("client.maxInFlight", 32); // Async calls talking to the server at once
+    private static final long REQUEST_TIMEOUT_MILLIS = Long.getLong("client.requestTimeoutMillis", 30_000);
+
+    // Set -Dclient.protocol=text to talk to the server with the legacy tab-separated protocol
+    private static final boolean PREFER_BINARY = !"text".equalsIgnoreCase(System.getProperty("client.protocol"));
+
+    private static final ClientConnectionPool pool = new ClientConnectionPool(
+            SERVER_ADDRESS, SERVER_PORT, POOL_SIZE, IDLE_TIMEOUT_MILLIS, VALIDATE_AFTER_MILLIS, BORROW_TIMEOUT_MILLIS, PREFER_BINARY);
+
+    private static final Semaphore inFlight = new Semaphore(MAX_IN_FLIGHT, true);
+    private static final ExecutorService asyncCalls = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("client-call-", 0).factory());
+
+    // Dossiers are cached only while the server is telling us about changes, which needs the binary protocol
+    private static final int DOSSIER_CACHE_SIZE = 64;
+    private static final long DOSSIER_CACHE_TTL_MILLIS = 5 * 60 * 1000;
+    private static final ChangeSubscription changes = new ChangeSubscription(SERVER_ADDRESS, SERVER_PORT);
+    private static final DossierCache dossiers = new DossierCache(DOSSIER_CACHE_SIZE, DOSSIER_CACHE_TTL_MILLIS);
+
+    // Legacy string form of the reply: tab-separated header and rows, "Update Count: n" or "ERROR: ..."
+    public static String sendQuery(String query) {
+        return execute(query).toText();
+    }
+
+    // Runs a statement and reads its whole reply. Values for ? placeholders are sent separately from
+    // the SQL, so they need no escaping and the server can reuse the compiled statement.
+    public static QueryResult execute(String query, Object... params) {
+        ClientTimings.Timer timer = ClientTimings.start("Query", query);
+        try (ResultCursor cursor = openCursor(query, params, timer, true)) {
+            QueryResult result = cursor.toResult();
+            timer.finish(!result.isError());
+            return result;
+        } catch (IOException | UncheckedIOException e) {
+            timer.finish(false);
+            e.printStackTrace();
+            return QueryResult.ofError(e.getMessage(), 0);
+        }
+    }
+
+    // Asynchronous forms of execute, fetchDossier, search and updateIfVersion, for callers that must not hold a thread while the server
+    // answers. Each call gets a virtual thread of its own; at most MAX_IN_FLIGHT are talking to the server
+    // at a time and the rest wait their turn. A call not answered within REQUEST_TIMEOUT_MILLIS, waiting
+    // included, fails with a TimeoutException.
+    //
+    // Cancelling the future, or timing out, interrupts the call. Blocked on the socket that closes the
+    // connection, so nothing is left half read; a write already sent may still have been committed.
+    public static CompletableFuture<QueryResult> executeAsync(String query, Object... params) {
+        return async(() -> execute(query, params));
+    }
+
+    public static CompletableFuture<Map<String, QueryResult>> fetchDossierAsync(String studentID) {
+        return async(() -> fetchDossier(studentID));
+    }
+
+    public static CompletableFuture<QueryResult> searchAsync(String words, String institution, int limit) {
+        return async(() -> search(words, institution, limit));
+    }
+
+    public static CompletableFuture<RecordUpdate.Result> updateIfVersionAsync(RecordUpdate update) {
+        return async(() -> updateIfVersion(update));
+    }
+
+    // Async calls talking to the server now, and those waiting for their turn
+    static int callsInFlight() {
+        return MAX_IN_FLIGHT - inFlight.availablePermits();
+    }
+
+    static int callsWaiting() {
+        return inFlight.getQueueLength();
+    }
+
+    static <T> CompletableFuture<T> async(Supplier<T> call) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        Future<?> task = asyncCalls.submit(() -> {
+            try {
+                inFlight.acquire();
+            } catch (InterruptedException e) {
+                return; // Cancelled or timed out while waiting
+            }
+            try {
+                future.complete(call.get());
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            } finally {
+                inFlight.release();
+            }
+        });
+        future.orTimeout(REQUEST_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        future.whenComplete((result, error) -> {
+            if (error != null) {
+                task.cancel(true);
+            }
+        });
+        return future;
+    }
+
+    // All forms of one student keyed by table, in one round trip on the binary protocol. A table with no
+    // record for the student maps to an empty result; a failure is a single error result. Students
+    // fetched recently are answered from DossierCache without asking the server.
+    public static Map<String, QueryResult> fetchDossier(String studentID) {
+        addChangeListener(dossiers);
+        Map<String, QueryResult> cached = dossiers.get(studentID);
+        if (cached != null) {
+            return cached;
+        }
+        long epoch = dossiers.epoch();
+        ClientTimings.Timer timer = ClientTimings.start("Dossier", "student " + studentID);
+        try {
+            Map<String, QueryResult> results = fetchDossier(studentID, timer, true);
+            timer.finish(results.values().stream().noneMatch(QueryResult::isError));
+            return dossiers.put(studentID, results, epoch);
+        } catch (IOException e) {
+            timer.finish(false);
+            e.printStackTrace();
+            return Collections.singletonMap("", QueryResult.ofError(e.getMessage(), 0));
+        }
+    }
+
+    // Tells listener about every form record another client (or this one) inserts, updates or deletes,
+    // on the subscription thread. Nothing is reported when talking to the server with the text protocol.
+    public static void addChangeListener(ChangeSubscription.Listener listener) {
+        if (PREFER_BINARY) {
+            changes.addListener(listener);
+        }
+    }
+
+    public static void removeChangeListener(ChangeSubscription.Listener listener) {
+        changes.removeListener(listener);
+    }
+
+    // Drops the cached dossier after this client changed one of the student's forms. The server's change
+    // notification would do the same, but may arrive after the next fetch.
+    public static void forgetDossier(String studentID) {
+        dossiers.invalidate(studentID);
+    }
+
+    private static Map<String, QueryResult> fetchDossier(String studentID, ClientTimings.Timer timer, boolean retryOnStale) throws IOException {
+        ClientConnectionPool.PooledConnection conn = pool.borrow();
+        timer.connected();
+        if (!conn.binary) {
+            pool.release(conn);
+            // Older servers: one query per table
+            Map<String, QueryResult> results = new LinkedHashMap<>();
+            for (String table : SQLiteServer.DOSSIER_TABLES) {
+                QueryResult result = execute("SELECT * FROM " + table + " WHERE studentID = ?", studentID);
+                if (result.isError()) {
+                    return Collections.singletonMap(table, result);
+                }
+                results.put(table, result);
+            }
+            return results;
+        }
+        try {
+            Map<String, QueryResult> results = conn.fetchDossier(studentID);
+            timer.received(conn);
+            pool.release(conn);
+            return results;
+        } catch (IOException | RuntimeException e) {
+            pool.invalidate(conn);
+            if (e instanceof IOException && retryOnStale && conn.reused) {
+                return fetchDossier(studentID, timer, false);
+            }
+            throw e;
+        }
+    }
+
+    // Writes the form unless someone else changed the record since it was read at update.expectedVersion.
+    // An older server gets the same conditional UPDATE as plain SQL, and the record is read back
+    // separately after a conflict.
+    public static RecordUpdate.Result updateIfVersion(RecordUpdate update) {
+        RecordUpdate.Result result;
+        ClientTimings.Timer timer = ClientTimings.start("Update", update.table + " of student " + update.studentID);
+        try {
+            result = updateIfVersion(update, timer, true);
+        } catch (IOException e) {
+            e.printStackTrace();
+            result = RecordUpdate.Result.error(e.getMessage());
+        }
+        timer.finish(result.getStatus() != RecordUpdate.Result.Status.ERROR);
+        forgetDossier(update.studentID);
+        return result;
+    }
+
+    private static RecordUpdate.Result updateIfVersion(RecordUpdate update, ClientTimings.Timer timer, boolean retryOnStale) throws IOException {
+        ClientConnectionPool.PooledConnection conn = pool.borrow();
+        timer.connected();
+        if (!conn.binary) {
+            pool.release(conn);
+            if (!Arrays.asList(SQLiteServer.DOSSIER_TABLES).contains(update.table)) {
+                return RecordUpdate.Result.error("Unknown form table " + update.table);
+            }
+            StringBuilder sql = new StringBuilder("UPDATE ").append(update.table).append(" SET ");
+            for (String column : update.columns) {
+                if (column.equalsIgnoreCase("id") || column.equalsIgnoreCase("studentID") || column.equalsIgnoreCase("version")) {
+                    return RecordUpdate.Result.error("Column " + column + " of " + update.table + " cannot be updated");
+                }
+                sql.append(column).append(" = ?, ");
+            }
+            sql.append("version = version + 1 WHERE studentID = ? AND version = ?");
+            Object[] params = Arrays.copyOf(update.values, update.values.length + 2);
+            params[update.values.length] = update.studentID;
+            params[update.values.length + 1] = update.expectedVersion;
+            QueryResult updated = execute(sql.toString(), params);
+            if (updated.isError()) {
+                return RecordUpdate.Result.error(updated.getError());
+            }
+            if (updated.getUpdateCount() > 0) {
+                return RecordUpdate.Result.updated(update.expectedVersion + 1);
+            }
+            QueryResult current = execute("SELECT * FROM " + update.table + " WHERE studentID = ?", update.studentID);
+            if (current.isError()) {
+                return RecordUpdate.Result.error(current.getError());
+            }
+            if (current.rowCount() == 0) {
+                return RecordUpdate.Result.deleted();
+            }
+            return RecordUpdate.Result.conflict(current, Long.parseLong(current.getString(0, "version")));
+        }
+        try {
+            RecordUpdate.Result result = conn.updateIfVersion(update);
+            timer.received(conn);
+            pool.release(conn);
+            return result;
+        } catch (IOException | RuntimeException e) {
+            pool.invalidate(conn);
+            // Once the request is out the update may have committed, and sending it again would find
+            // the record at the next version and report the user's own write as a conflict
+            if (e instanceof IOException && retryOnStale && conn.reused && !conn.requestWritten()) {
+                return updateIfVersion(update, timer, false);
+            }
+            throw e;
+        }
+    }
+
+    // Forms whose free-text answers contain all the words, best match first, with a snippet of each.
+    // The server builds the full-text query; an older server is sent the same query as plain SQL.
+    public static QueryResult search(String words, String institution, int limit) {
+        ClientTimings.Timer timer = ClientTimings.start("Search", words);
+        try {
+            QueryResult result = search(words, institution, limit, timer, true);
+            timer.finish(!result.isError());
+            return result;
+        } catch (IOException e) {
+            timer.finish(false);
+            e.printStackTrace();
+            return QueryResult.ofError(e.getMessage(), 0);
+        }
+    }
+
+    private static QueryResult search(String words, String institution, int limit, ClientTimings.Timer timer,
+                                      boolean retryOnStale) throws IOException {
+        ClientConnectionPool.PooledConnection conn = pool.borrow();
+        timer.connected();
+        if (!conn.binary) {
+            pool.release(conn);
+            String match = FormSearch.matchExpression(words, institution);
+            if (match == null) {
+                return QueryResult.ofError("Enter a word or an institution to search for", 0);
+            }
+            return execute(FormSearch.SQL, match, Math.min(limit, FormSearch.MAX_RESULTS));
+        }
+        try {
+            QueryResult result = conn.readResult(conn.sendSearch(words, institution, limit));
+            timer.received(conn);
+            pool.release(conn);
+            return result;
+        } catch (IOException | RuntimeException e) {
+            pool.invalidate(conn);
+            if (e instanceof IOException && retryOnStale && conn.reused) {
+                return search(words, institution, limit, timer, false);
+            }
+            throw e;
+        }
+    }
+
+    // Sends the statements back to back on one connection without waiting for each reply, then
+    // matches the replies up in order. Each statement commits on its own, as with execute().
+    public static List<QueryResult> pipeline(List<Batch.Statement> statements) {
+        List<QueryResult> results = new ArrayList<>(statements.size());
+        try {
+            pipeline(statements, results, true);
+        } catch (IOException | UncheckedIOException e) {
+            e.printStackTrace();
+            while (results.size() < statements.size()) {
+                results.add(QueryResult.ofError(e.getMessage(), 0));
+            }
+        }
+        return results;
+    }
+
+    private static void pipeline(List<Batch.Statement> statements, List<QueryResult> results, boolean retryOnStale) throws IOException {
+        ClientConnectionPool.PooledConnection conn = pool.borrow();
+        try {
+            // Bounded so neither side blocks writing while the other is not reading
+            Deque<Integer> inFlight = new ArrayDeque<>();
+            int sent = 0;
+            while (results.size() < statements.size()) {
+                while (sent < statements.size() && inFlight.size() < PIPELINE_WINDOW) {
+                    Batch.Statement statement = statements.get(sent++);
+                    inFlight.add(conn.send(statement.sql, statement.params));
+                }
+                results.add(conn.readResult(inFlight.poll()));
+            }
+            pool.release(conn);
+        } catch (IOException | RuntimeException e) {
+            pool.invalidate(conn);
+            if (e instanceof IOException && retryOnStale && conn.reused && results.isEmpty()
+                    && (!conn.requestWritten() || readOnly(statements))) {
+                pipeline(statements, results, false);
+                return;
+            }
+            throw e;
+        }
+    }
+
+    // Runs all statements of the batch in one server transaction, in a single round trip
+    public static Batch.Result executeBatch(Batch batch) {
+        ClientTimings.Timer timer = ClientTimings.start("Batch", batch.size() + " statements");
+        try {
+            Batch.Result result = executeBatch(batch, timer, true);
+            timer.finish(result.isCommitted());
+            return result;
+        } catch (IOException | UncheckedIOException e) {
+            timer.finish(false);
+            e.printStackTrace();
+            return failedBatch(batch, e.getMessage());
+        }
+    }
+
+    private static Batch.Result executeBatch(Batch batch, ClientTimings.Timer timer, boolean retryOnStale) throws IOException {
+        ClientConnectionPool.PooledConnection conn = pool.borrow();
+        timer.connected();
+        if (!conn.binary) {
+            pool.release(conn);
+            // The text protocol has no transactions spanning requests, so only independent statements can run
+            if (batch.isAtomic()) {
+                return failedBatch(batch, "Atomic batches are not supported by this server");
+            }
+            return new Batch.Result(true, pipeline(batch.getStatements()));
+        }
+        try {
+            Batch.Result result = conn.readBatch(conn.sendBatch(batch), batch.size());
+            timer.received(conn);
+            pool.release(conn);
+            return result;
+        } catch (IOException | RuntimeException e) {
+            pool.invalidate(conn);
+            // A batch that was sent may have committed; running it again would repeat every insert in it
+            if (e instanceof IOException && retryOnStale && conn.reused
+                    && (!conn.requestWritten() || readOnly(batch.getStatements()))) {
+                return executeBatch(batch, timer, false);
+            }
+            throw e;
+        }
+    }
+
+    // Statements that can safely be sent again after a failure that may have come after they ran
+    private static boolean readOnly(List<Batch.Statement> statements) {
+        for (Batch.Statement statement : statements) {
+            if (!DatabasePool.isReadOnly(statement.sql)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Batch.Result failedBatch(Batch batch, String error) {
+        List<QueryResult> results = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            results.add(QueryResult.ofError(error, 0));
+        }
+        return new Batch.Result(false, results);
+    }
+
+    // Runs a statement and hands back its rows as they arrive; close the cursor when done with it
+    public static ResultCursor openCursor(String query, Object... params) throws IOException {
+        return openCursor(query, params, null, true);
+    }
+
+    // With a timer, the reply is timed when the cursor is done with it, before the connection goes back to the pool
+    private static ResultCursor openCursor(String query, Object[] params, ClientTimings.Timer timer, boolean retryOnStale) throws IOException {
+        ClientConnectionPool.PooledConnection conn = pool.borrow();
+        if (timer != null) {
+            timer.connected();
+        }
+        try {
+            return new ResultCursor(conn, query, params, healthy -> {
+                if (timer != null) {
+                    timer.received(conn);
+                }
+                if (healthy) {
+                    pool.release(conn);
+                } else {
+                    pool.invalidate(conn);
+                }
+            });
+        } catch (IOException e) {
+            // The cursor has already dropped the connection. A pooled socket may have been
+            // closed by the server since its last use; reconnect once. A write that was sent may
+            // have run, so only a read is sent again then, or an INSERT would be made twice
+            if (retryOnStale && conn.reused && (!conn.requestWritten() || DatabasePool.isReadOnly(query))) {
+                return openCursor(query, params, timer, false);
+            }
+            throw e;
+        }
+    }
+}
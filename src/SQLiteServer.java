@@ -0,0 +1,735 @@
+import java.io.*;
+import java.net.*;
+import java.nio.charset.StandardCharsets;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+class SQLiteServer {
+    private static final String DATABASE_URL = System.getProperty("server.database", "jdbc:sqlite:identifier.db");
+    private static final int PORT = Integer.getInteger("server.port", 12345); // Port number for the server
+
+    // Execution mode: "pool" = bounded worker pool with a backlog queue, "virtual" = one virtual thread per connection
+    private static final String SERVER_MODE = System.getProperty("server.mode", "pool");
+    private static final int WORKER_THREADS = Integer.getInteger("server.workers", 32);
+    private static final int QUEUE_CAPACITY = Integer.getInteger("server.queue", 64);
+    private static final int MAX_CONNECTIONS = Integer.getInteger("server.maxConnections", 256);
+    // Idle sockets are closed after this long so they stop holding a worker; clients reconnect transparently
+    private static final int IDLE_TIMEOUT_MILLIS = Integer.getInteger("server.idleTimeoutMillis", 60_000);
+    // Read-only connections shared by all clients; writes always go through the single writer connection
+    private static final int READER_CONNECTIONS = Integer.getInteger("server.readers", 4);
+    private static final long READER_WAIT_MILLIS = 10_000;
+    // Replies to reads up to this size are kept in memory, so the reader connection is released before a
+    // slow client takes them; a larger one streams, and a client that takes none of it for this long is dropped
+    private static final int REPLY_BUFFER_BYTES = Integer.getInteger("server.replyBufferBytes", 1 << 20);
+    private static final long REPLY_STALL_MILLIS = Long.getLong("server.replyStallMillis", 30_000);
+    // Compiled statements kept per database connection for parameterized requests
+    private static final int STATEMENT_CACHE_SIZE = Integer.getInteger("server.statementCacheSize", 64);
+    // Single INSERT, UPDATE and DELETE statements from different clients queued at the same time are
+    // committed together, up to this many in one transaction; 1 commits each on its own
+    private static final int GROUP_COMMIT_MAX = Integer.getInteger("server.groupCommitMax", 64);
+    // How long the writer waits for more writes to join a group before committing; 0 only groups the ones
+    // that queued up while the previous transaction ran, so a lone write is never held back
+    private static final long GROUP_COMMIT_MICROS = Long.getLong("server.groupCommitMicros", 0);
+    // SQLite's synchronous setting for the writer: FULL syncs every commit to disk; with WAL, NORMAL only
+    // syncs at checkpoints, so a power cut can lose the last commits but never corrupts the database
+    private static final String SYNCHRONOUS = System.getProperty("server.synchronous", "FULL");
+    // Connections turned into change feeds; they hold neither a worker nor a connection permit
+    private static final int MAX_SUBSCRIBERS = Integer.getInteger("server.maxSubscribers", 256);
+    // Statements taking at least this long are logged; 0 turns the log off
+    private static final long SLOW_QUERY_MILLIS = Long.getLong("server.slowQueryMillis", 500);
+    // Serves the metrics as plain text on this loopback port; 0 leaves them on JMX only
+    private static final int METRICS_PORT = Integer.getInteger("server.metricsPort", 0);
+
+    static final String SERVER_BUSY = "ERROR: SERVER_BUSY";
+    // Tables returned together by a DOSSIER request, in tab order
+    static final String[] DOSSIER_TABLES = {"InternshipAcceptance", "InternEvaluation", "InternshipPlaceEvaluation"};
+
+    private static final Semaphore connectionPermits = new Semaphore(MAX_CONNECTIONS);
+    // Rejections are written off the accept thread so a flood of refused clients cannot stall accept()
+    private static final ExecutorService rejector = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(256), new ThreadPoolExecutor.DiscardPolicy());
+    private static DatabasePool database;
+    private static final ChangeFeed changes = new ChangeFeed(MAX_SUBSCRIBERS);
+    static final ServerMetrics metrics = new ServerMetrics(SLOW_QUERY_MILLIS);
+    // Columns of each form table an UPDATE_IF_VERSION may set, by lower-case name; used on the writer thread only
+    private static final Map<String, Map<String, String>> updatableColumns = new HashMap<>();
+    private static ServerSocket serverSocket;
+    private static ExecutorService workers;
+
+    public static void main(String[] args) {
+        if (start()) {
+            serve();
+        }
+    }
+
+    // Opens the database and binds the port; serve() then takes clients until stop(). The benchmarks and
+    // the load generator call these to run a server inside their own JVM. Returns false if it cannot start.
+    static boolean start() {
+        if (!setupDatabase()) {
+            return false;
+        }
+        try {
+            database = new DatabasePool(DATABASE_URL, READER_CONNECTIONS, READER_WAIT_MILLIS, STATEMENT_CACHE_SIZE,
+                    SYNCHRONOUS, GROUP_COMMIT_MAX, GROUP_COMMIT_MICROS);
+            changes.attach(database);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return false;
+        }
+        try {
+            serverSocket = new ServerSocket(PORT);
+        } catch (IOException e) {
+            e.printStackTrace();
+            database.close();
+            return false;
+        }
+        workers = createWorkerExecutor();
+        metrics.attach(database, changes, workers);
+        metrics.publish(METRICS_PORT);
+        System.out.println("Server started on port " + PORT + " (mode: " + SERVER_MODE + ", max connections: " + MAX_CONNECTIONS + ")");
+        return true;
+    }
+
+    // Closes the listening socket, which ends serve() and closes the database
+    static void stop() {
+        try {
+            serverSocket.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    static void serve() {
+        try {
+            while (true) {
+                Socket clientSocket = serverSocket.accept();
+                System.out.println("Client connected: " + clientSocket.getInetAddress());
+                // Replies are written line by line; without this Nagle holds each reply back on a reused socket
+                clientSocket.setTcpNoDelay(true);
+
+                if (!connectionPermits.tryAcquire()) {
+                    reject(clientSocket, "too many connections (limit " + MAX_CONNECTIONS + ")");
+                    continue;
+                }
+                try {
+                    workers.execute(() -> {
+                        try {
+                            handleClient(clientSocket);
+                        } finally {
+                            connectionPermits.release();
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    connectionPermits.release();
+                    reject(clientSocket, "all workers busy and backlog full");
+                }
+            }
+        } catch (IOException e) {
+            if (!serverSocket.isClosed()) {
+                e.printStackTrace();
+            }
+        } finally {
+            workers.shutdown();
+            metrics.unpublish();
+            database.close();
+        }
+    }
+
+    private static ExecutorService createWorkerExecutor() {
+        if (SERVER_MODE.equalsIgnoreCase("virtual")) {
+            return Executors.newVirtualThreadPerTaskExecutor();
+        }
+        // Fixed-size pool; connections beyond the workers wait in the queue, beyond that they are rejected
+        return new ThreadPoolExecutor(WORKER_THREADS, WORKER_THREADS, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY), new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    // Tells the client why it was refused in the normal reply format, then closes the socket
+    private static void reject(Socket clientSocket, String reason) {
+        System.out.println("Rejecting client " + clientSocket.getInetAddress() + ": " + reason);
+        metrics.connectionRejected();
+        try {
+            rejector.execute(() -> {
+                try (Socket socket = clientSocket) {
+                    socket.setSoTimeout(2000);
+                    PrintWriter writer = new PrintWriter(socket.getOutputStream(), true);
+                    writer.println(SERVER_BUSY + " - server is overloaded, " + reason + ". Please try again.");
+                    writer.println("END");
+                    socket.shutdownOutput();
+                    // Swallow the client's first query so closing does not reset the connection before it reads the reply
+                    new BufferedReader(new InputStreamReader(socket.getInputStream())).readLine();
+                } catch (IOException ignored) {
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            try {
+                clientSocket.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private static void handleClient(Socket clientSocket) {
+        metrics.connectionAccepted();
+        try {
+            clientSocket.setSoTimeout(IDLE_TIMEOUT_MILLIS);
+        } catch (SocketException e) {
+            e.printStackTrace();
+        }
+        boolean subscribed = false;
+        try {
+            InputStream input = new BufferedInputStream(clientSocket.getInputStream());
+            OutputStream output = new BufferedOutputStream(metrics.countBytes(clientSocket.getOutputStream()));
+            String firstLine = WireProtocol.readLine(input);
+            if (firstLine == null) {
+                return;
+            }
+            if (firstLine.equals(WireProtocol.HANDSHAKE)) {
+                output.write((WireProtocol.HANDSHAKE_ACK + "\n").getBytes(StandardCharsets.UTF_8));
+                output.flush();
+                subscribed = handleBinarySession(clientSocket, input, output);
+            } else {
+                // Older clients speak the text protocol, starting with their first query
+                handleTextSession(clientSocket, firstLine, input, output);
+            }
+            output.flush();
+        } catch (SocketTimeoutException e) {
+            System.out.println("Closing idle client: " + clientSocket.getInetAddress());
+        } catch (IOException | UncheckedIOException e) {
+            e.printStackTrace();
+        } finally {
+            metrics.connectionClosed();
+            // A subscribed socket now belongs to the change feed, which closes it when the client goes away
+            if (!subscribed) {
+                try {
+                    clientSocket.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    private static void handleTextSession(Socket clientSocket, String firstQuery, InputStream input, OutputStream output) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        PrintWriter writer = new PrintWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        String query = firstQuery;
+        while (query != null) {
+            String sql = query;
+            try {
+                checkAllowed(sql);
+                if (DatabasePool.isReadOnly(sql)) {
+                    ReplyBuffer reply = newReply(clientSocket, output);
+                    PrintWriter replyWriter = new PrintWriter(new OutputStreamWriter(reply, StandardCharsets.UTF_8));
+                    try {
+                        database.read(conn -> {
+                            executeQuery(conn, sql, null, replyWriter);
+                            replyWriter.flush();
+                            return null;
+                        });
+                    } catch (SQLException e) {
+                        reply.discard();
+                        throw e;
+                    }
+                    reply.finish();
+                } else {
+                    // Writes are buffered on the writer thread so a slow client never holds up the write queue
+                    // Form values written as shown are encoded first, so the statement stays one write
+                    LegacyFormValues.Statement encoded = LegacyFormValues.translate(sql);
+                    DatabasePool.SqlWork<String> work = conn -> {
+                        StringWriter buffer = new StringWriter();
+                        if (encoded != null) {
+                            executeQuery(conn, encoded.sql, encoded.params, new PrintWriter(buffer));
+                        } else {
+                            executeQuery(conn, sql, null, new PrintWriter(buffer));
+                        }
+                        return buffer.toString();
+                    };
+                    String reply = DatabasePool.isGroupable(sql) ? database.writeGrouped(work) : database.write(work);
+                    writer.print(reply);
+                }
+            } catch (SQLException e) {
+                writer.println("ERROR: " + e.getMessage());
+                writer.println("END"); // **Ensure "END" is sent even on errors**
+            }
+            writer.flush();
+            query = reader.readLine();
+        }
+    }
+
+    // Returns true if the client subscribed to changes, handing the socket over to the change feed
+    private static boolean handleBinarySession(Socket clientSocket, InputStream input, OutputStream output) throws IOException {
+        WireProtocol.FrameReader requests = new WireProtocol.FrameReader(input);
+        WireProtocol.FrameWriter frames = new WireProtocol.FrameWriter(output);
+        Map<Integer, String> preparedStatements = new HashMap<>(); // Client-chosen handle -> SQL
+        while (requests.next()) {
+            int requestId = requests.requestId();
+            DataInputStream in = requests.in();
+            switch (requests.type()) {
+                case WireProtocol.QUERY:
+                    executeBinary(clientSocket, requestId, WireProtocol.readString(in), null, frames, output);
+                    break;
+                case WireProtocol.PREPARE:
+                    int handle = in.readInt();
+                    preparedStatements.put(handle, WireProtocol.readString(in));
+                    frames.writePrepared(requestId, handle);
+                    break;
+                case WireProtocol.DOSSIER:
+                    sendDossier(clientSocket, requestId, WireProtocol.readString(in), frames, output);
+                    break;
+                case WireProtocol.SEARCH:
+                    String match = FormSearch.matchExpression(WireProtocol.readString(in), WireProtocol.readString(in));
+                    int limit = Math.max(1, Math.min(in.readInt(), FormSearch.MAX_RESULTS));
+                    if (match == null) {
+                        frames.writeError(requestId, 0, "Enter a word or an institution to search for");
+                    } else {
+                        executeBinary(clientSocket, requestId, FormSearch.SQL, new Object[]{match, limit}, frames, output);
+                    }
+                    break;
+                case WireProtocol.UPDATE_IF_VERSION:
+                    String table = WireProtocol.readString(in);
+                    String studentID = WireProtocol.readString(in);
+                    long version = in.readLong();
+                    String[] columns = new String[in.readInt()];
+                    Object[] values = new Object[columns.length];
+                    for (int i = 0; i < columns.length; i++) {
+                        columns[i] = WireProtocol.readString(in);
+                        values[i] = WireProtocol.readValue(in);
+                    }
+                    updateIfVersion(requestId, new RecordUpdate(table, studentID, version, columns, values), frames, output);
+                    break;
+                case WireProtocol.SUBSCRIBE:
+                    frames.flush();
+                    if (changes.subscribe(clientSocket, output, requestId)) {
+                        return true;
+                    }
+                    frames.writeError(requestId, 0, "Too many change subscribers (limit " + MAX_SUBSCRIBERS + ")");
+                    break;
+                case WireProtocol.BATCH:
+                    boolean atomic = in.readBoolean();
+                    int count = in.readInt();
+                    List<String> statements = new ArrayList<>(count);
+                    List<Object[]> parameters = new ArrayList<>(count);
+                    for (int i = 0; i < count; i++) {
+                        statements.add(WireProtocol.readString(in));
+                        parameters.add(requests.readRow());
+                    }
+                    executeBatch(requestId, atomic, statements, parameters, frames, output);
+                    break;
+                case WireProtocol.EXECUTE:
+                    String sql = preparedStatements.get(in.readInt());
+                    Object[] params = requests.readRow();
+                    if (sql == null) {
+                        frames.writeError(requestId, 0, "Unknown statement handle");
+                    } else {
+                        executeBinary(clientSocket, requestId, sql, params, frames, output);
+                    }
+                    break;
+                default:
+                    requests.skipPayload();
+                    frames.writeError(requestId, 0, "Unknown request type " + requests.type());
+            }
+            // A client pipelining requests already has the next one on the wire; answer it in the same packet
+            if (input.available() == 0) {
+                frames.flush();
+            }
+        }
+        return false;
+    }
+
+    // params is null for a plain QUERY, which is compiled once and discarded
+    private static void executeBinary(Socket clientSocket, int requestId, String sql, Object[] params,
+                                      WireProtocol.FrameWriter frames, OutputStream output) throws IOException {
+        try {
+            checkAllowed(sql);
+            if (DatabasePool.isReadOnly(sql)) {
+                ReplyBuffer reply = newReply(clientSocket, output);
+                try {
+                    database.read(conn -> {
+                        executeQuery(conn, sql, params, new WireProtocol.FrameWriter(reply), requestId);
+                        return null;
+                    });
+                } catch (SQLException e) {
+                    reply.discard();
+                    throw e;
+                }
+                reply.finish();
+            } else {
+                DatabasePool.SqlWork<byte[]> work = conn -> {
+                    ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+                    executeQuery(conn, sql, params, new WireProtocol.FrameWriter(buffer), requestId);
+                    return buffer.toByteArray();
+                };
+                byte[] reply = DatabasePool.isGroupable(sql) ? database.writeGrouped(work) : database.write(work);
+                output.write(reply);
+            }
+        } catch (SQLException e) {
+            frames.writeError(requestId, e.getErrorCode(), e.getMessage());
+        }
+    }
+
+    // Writes the form only if the record is still at the expected version. The check, the update and the
+    // read-back of a conflicting record all happen in one turn of the writer, so nothing can come between;
+    // the turn may be shared with other clients' writes through group commit.
+    private static void updateIfVersion(int requestId, RecordUpdate update, WireProtocol.FrameWriter frames, OutputStream output) throws IOException {
+        if (!Arrays.asList(DOSSIER_TABLES).contains(update.table)) {
+            frames.writeError(requestId, 0, "Unknown form table " + update.table);
+            return;
+        }
+        try {
+            byte[] reply = database.writeGrouped(conn -> {
+                Map<String, String> allowed = updatableColumns(conn, update.table);
+                StringBuilder sql = new StringBuilder("UPDATE ").append(update.table).append(" SET ");
+                for (String column : update.columns) {
+                    String name = allowed.get(column.toLowerCase());
+                    if (name == null) {
+                        throw new SQLException("Column " + column + " of " + update.table + " cannot be updated");
+                    }
+                    sql.append(name).append(" = ?, ");
+                }
+                sql.append("version = version + 1 WHERE studentID = ? AND version = ?");
+
+                ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+                WireProtocol.FrameWriter replyFrames = new WireProtocol.FrameWriter(buffer);
+                try {
+                    String updateSql = sql.toString();
+                    PreparedStatement stmt = database.prepareCached(conn, updateSql);
+                    int updated;
+                    try {
+                        for (int i = 0; i < update.values.length; i++) {
+                            stmt.setObject(i + 1, update.values[i]);
+                        }
+                        stmt.setString(update.values.length + 1, update.studentID);
+                        stmt.setLong(update.values.length + 2, update.expectedVersion);
+                        long start = System.nanoTime();
+                        updated = stmt.executeUpdate();
+                        metrics.statement(updateSql, System.nanoTime() - start, 0, -1);
+                    } catch (SQLException e) {
+                        metrics.statementFailed(updateSql);
+                        throw e;
+                    } finally {
+                        stmt.clearParameters();
+                    }
+                    if (updated > 0) {
+                        replyFrames.writeUpdateCount(requestId, updated);
+                        return buffer.toByteArray();
+                    }
+
+                    long currentVersion = 0;
+                    PreparedStatement current = database.prepareCached(conn, "SELECT * FROM " + update.table + " WHERE studentID = ?");
+                    try {
+                        current.setString(1, update.studentID);
+                        try (ResultSet rs = current.executeQuery()) {
+                            ResultSetMetaData metaData = rs.getMetaData();
+                            String[] columns = new String[metaData.getColumnCount()];
+                            for (int i = 1; i <= columns.length; i++) {
+                                columns[i - 1] = metaData.getColumnName(i);
+                            }
+                            if (rs.next()) {
+                                Object[] values = new Object[columns.length];
+                                for (int i = 1; i <= columns.length; i++) {
+                                    values[i - 1] = rs.getObject(i);
+                                }
+                                currentVersion = rs.getLong("version");
+                                replyFrames.writeColumns(requestId, columns);
+                                replyFrames.writeRow(requestId, values);
+                            }
+                        }
+                    } finally {
+                        current.clearParameters();
+                    }
+                    replyFrames.writeConflict(requestId, currentVersion);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return buffer.toByteArray();
+            });
+            output.write(reply);
+        } catch (SQLException e) {
+            frames.writeError(requestId, e.getErrorCode(), e.getMessage());
+        }
+    }
+
+    // Every column of a form table except the ones that identify the record or are kept by the server
+    private static Map<String, String> updatableColumns(Connection conn, String table) throws SQLException {
+        Map<String, String> columns = updatableColumns.get(table);
+        if (columns == null) {
+            columns = new HashMap<>();
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("PRAGMA table_info(" + table + ")")) {
+                while (rs.next()) {
+                    String name = rs.getString("name");
+                    if (!name.equalsIgnoreCase("id") && !name.equalsIgnoreCase("studentID") && !name.equalsIgnoreCase("version")) {
+                        columns.put(name.toLowerCase(), name);
+                    }
+                }
+            }
+            updatableColumns.put(table, columns);
+        }
+        return columns;
+    }
+
+    // Runs every statement of a batch in one transaction on the writer. Each statement gets its own
+    // savepoint, so a failing one is undone on its own; an atomic batch is rolled back as a whole
+    // on the first failure and its remaining statements are skipped.
+    private static void executeBatch(int requestId, boolean atomic, List<String> statements, List<Object[]> parameters,
+                                     WireProtocol.FrameWriter frames, OutputStream output) throws IOException {
+        try {
+            for (String statement : statements) {
+                checkAllowed(statement);
+            }
+            byte[] reply = database.write(conn -> {
+                ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+                WireProtocol.FrameWriter batchFrames = new WireProtocol.FrameWriter(buffer);
+                boolean failed = false;
+                conn.setAutoCommit(false);
+                try {
+                    for (int i = 0; i < statements.size(); i++) {
+                        if (failed && atomic) {
+                            batchFrames.writeError(requestId, 0, "Skipped: an earlier statement in the batch failed");
+                            continue;
+                        }
+                        Savepoint savepoint = conn.setSavepoint();
+                        try {
+                            executeQuery(conn, statements.get(i), parameters.get(i), batchFrames, requestId);
+                            conn.releaseSavepoint(savepoint);
+                        } catch (SQLException e) {
+                            conn.rollback(savepoint);
+                            conn.releaseSavepoint(savepoint);
+                            if (DatabasePool.isBusy(e)) {
+                                throw e; // Retry the whole batch rather than report a transient failure
+                            }
+                            batchFrames.writeError(requestId, e.getErrorCode(), e.getMessage());
+                            failed = true;
+                        }
+                    }
+                    if (failed && atomic) {
+                        conn.rollback();
+                    } else {
+                        conn.commit();
+                    }
+                    batchFrames.writeBatchEnd(requestId, !(failed && atomic));
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                } catch (IOException e) {
+                    conn.rollback();
+                    throw new UncheckedIOException(e);
+                } finally {
+                    conn.setAutoCommit(true);
+                }
+                return buffer.toByteArray();
+            });
+            output.write(reply);
+        } catch (SQLException e) {
+            // Nothing was committed; still answer every statement so the client can match up the reply
+            for (int i = 0; i < statements.size(); i++) {
+                frames.writeError(requestId, e.getErrorCode(), e.getMessage());
+            }
+            frames.writeBatchEnd(requestId, false);
+        }
+    }
+
+    private static void executeQuery(Connection conn, String query, Object[] params, PrintWriter writer) throws SQLException {
+        long start = System.nanoTime();
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            if (params != null) {
+                for (int i = 0; i < params.length; i++) {
+                    stmt.setObject(i + 1, params[i]);
+                }
+            }
+            if (stmt.execute()) {
+                long executed = System.nanoTime();
+                int rows = 0;
+                ResultSet rs = stmt.getResultSet();
+                ResultSetMetaData metaData = rs.getMetaData();
+                int columnCount = metaData.getColumnCount();
+                // Text protocol clients show the form values as they are, so encoded ones are sent decoded
+                StorageCodec.Decoder decoder = LegacyFormValues.decoderFor(metaData);
+                String[] columns = new String[columnCount];
+                for (int i = 1; i <= columnCount; i++) {
+                    columns[i - 1] = metaData.getColumnName(i);
+                }
+
+                // Send column headers
+                writer.println(String.join("\t", decoder != null ? decoder.columns() : columns));
+
+                // Send all rows with all columns
+                Object[] values = new Object[columnCount];
+                while (rs.next()) {
+                    for (int i = 1; i <= columnCount; i++) {
+                        values[i - 1] = rs.getString(i);
+                    }
+                    Object[] shown = decoder != null ? decoder.decode(values) : values;
+                    StringBuilder row = new StringBuilder();
+                    for (int i = 0; i < shown.length; i++) {
+                        // Replace nulls with empty strings to avoid "null" in the table
+                        row.append(shown[i] != null ? shown[i] : "");
+                        if (i < shown.length - 1) {
+                            row.append("\t");
+                        }
+                    }
+                    writer.println(row.toString());
+                    rows++;
+                }
+                writer.println("END");
+                metrics.statement(query, executed - start, System.nanoTime() - executed, rows);
+            } else {
+                metrics.statement(query, System.nanoTime() - start, 0, -1);
+                writer.println("Update Count: " + stmt.getUpdateCount());
+                writer.println("END"); // **Added "END" signal for non-SELECT queries**
+            }
+        } catch (SQLException e) {
+            metrics.statementFailed(query);
+            throw e;
+        }
+    }
+
+    // Clients share the server's database connections, so nothing that would change one for everyone else may run
+    private static void checkAllowed(String sql) throws SQLException {
+        if (DatabasePool.changesConnection(sql)) {
+            throw new SQLException("Not allowed: transactions, savepoints, PRAGMA and ATTACH are managed by the server");
+        }
+    }
+
+    private static ReplyBuffer newReply(Socket clientSocket, OutputStream output) {
+        return new ReplyBuffer(clientSocket, output, REPLY_BUFFER_BYTES, REPLY_STALL_MILLIS);
+    }
+
+    // All forms of one student in one reply, read inside a single transaction so they come from the same snapshot
+    private static void sendDossier(Socket clientSocket, int requestId, String studentID, WireProtocol.FrameWriter frames,
+                                    OutputStream output) throws IOException {
+        ReplyBuffer reply = newReply(clientSocket, output);
+        WireProtocol.FrameWriter replyFrames = new WireProtocol.FrameWriter(reply);
+        try {
+            database.read(conn -> {
+                conn.setAutoCommit(false);
+                try {
+                    for (String table : DOSSIER_TABLES) {
+                        replyFrames.writeTable(requestId, table);
+                        String sql = "SELECT * FROM " + table + " WHERE studentID = ?";
+                        PreparedStatement stmt = database.prepareCached(conn, sql);
+                        try {
+                            stmt.setString(1, studentID);
+                            long start = System.nanoTime();
+                            try (ResultSet rs = stmt.executeQuery()) {
+                                long executed = System.nanoTime();
+                                int rows = writeRows(rs, replyFrames, requestId);
+                                metrics.statement(sql, executed - start, System.nanoTime() - executed, rows);
+                            }
+                        } catch (SQLException e) {
+                            metrics.statementFailed(sql);
+                            throw e;
+                        } finally {
+                            stmt.clearParameters();
+                        }
+                    }
+                    replyFrames.writeEndResult(requestId);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                } finally {
+                    conn.commit();
+                    conn.setAutoCommit(true);
+                }
+                return null;
+            });
+            reply.finish();
+        } catch (SQLException e) {
+            reply.discard();
+            frames.writeError(requestId, e.getErrorCode(), e.getMessage());
+        }
+    }
+
+    // Binary counterpart of the text executeQuery: typed values, one frame per row
+    private static void executeQuery(Connection conn, String query, Object[] params, WireProtocol.FrameWriter frames, int requestId) throws SQLException {
+        try {
+            if (params == null) {
+                try (PreparedStatement stmt = conn.prepareStatement(query)) {
+                    writeResult(query, stmt, frames, requestId);
+                }
+                return;
+            }
+            // Parameterized statements stay compiled in the connection's cache for the next execution
+            PreparedStatement stmt = database.prepareCached(conn, query);
+            try {
+                for (int i = 0; i < params.length; i++) {
+                    stmt.setObject(i + 1, params[i]);
+                }
+                writeResult(query, stmt, frames, requestId);
+            } finally {
+                stmt.clearParameters();
+            }
+        } catch (SQLException e) {
+            metrics.statementFailed(query);
+            throw e;
+        }
+    }
+
+    private static void writeResult(String query, PreparedStatement stmt, WireProtocol.FrameWriter frames, int requestId) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            if (stmt.execute()) {
+                long executed = System.nanoTime();
+                int rows;
+                try (ResultSet rs = stmt.getResultSet()) {
+                    rows = writeRows(rs, frames, requestId);
+                }
+                frames.writeEndResult(requestId);
+                metrics.statement(query, executed - start, System.nanoTime() - executed, rows);
+            } else {
+                metrics.statement(query, System.nanoTime() - start, 0, -1);
+                frames.writeUpdateCount(requestId, stmt.getUpdateCount());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Returns the number of rows written
+    static int writeRows(ResultSet rs, WireProtocol.FrameWriter frames, int requestId) throws SQLException, IOException {
+        ResultSetMetaData metaData = rs.getMetaData();
+        int columnCount = metaData.getColumnCount();
+
+        String[] columns = new String[columnCount];
+        for (int i = 1; i <= columnCount; i++) {
+            columns[i - 1] = metaData.getColumnName(i);
+        }
+        frames.writeColumns(requestId, columns);
+
+        Object[] values = new Object[columnCount];
+        int rows = 0;
+        while (rs.next()) {
+            for (int i = 1; i <= columnCount; i++) {
+                values[i - 1] = rs.getObject(i);
+            }
+            frames.writeRow(requestId, values);
+            rows++;
+        }
+        return rows;
+    }
+
+    // Returns false if the database could not be brought up to the current schema
+    private static boolean setupDatabase() {
+        try (Connection conn = DriverManager.getConnection(DATABASE_URL)) {
+            // WAL lets the pooled readers keep reading while the writer commits; the mode is stored in the file
+            try (Statement pragma = conn.createStatement()) {
+                pragma.execute("PRAGMA journal_mode=WAL"); // Returns a row, so close it before the DDL below
+            }
+            SchemaMigrations.migrate(conn);
+            System.out.println("Database setup complete.");
+            return true;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,247 @@
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+// Ordered, numbered schema changes applied by the server at startup. The versions already applied
+// are recorded in schema_version, so an existing identifier.db is upgraded in place by running only
+// the steps it has not seen yet, each in its own transaction. Never edit a released step; add a new
+// one with the next version number instead.
+final class SchemaMigrations {
+    private static final List<Migration> MIGRATIONS = new ArrayList<>();
+
+    static {
+        // Version 1 is the schema the server has always created, so databases made before migrations
+        // existed pass through it unchanged and are simply marked as version 1
+        add(1, "Initial schema",
+                "CREATE TABLE IF NOT EXISTS InternshipAcceptance (" +
+                        "id INTEGER PRIMARY KEY AUTOINCREMENT, name TEXT, studentID TEXT UNIQUE, faculty TEXT, dates TEXT, " +
+                        "institutionName TEXT, institutionAddress TEXT, institutionPhone TEXT, responsibleName TEXT)",
+                "CREATE TABLE IF NOT EXISTS InternEvaluation (" +
+                        "id INTEGER PRIMARY KEY AUTOINCREMENT, name TEXT, studentID TEXT UNIQUE, evaluationDate TEXT, responsibleName TEXT, evaluation TEXT)",
+                "CREATE TABLE IF NOT EXISTS InternshipPlaceEvaluation (" +
+                        "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                        "name TEXT, " +
+                        "studentID TEXT UNIQUE, " +
+                        "institutionName TEXT, " +
+                        "duration TEXT, " +
+                        "salary TEXT, " +
+                        "transportation TEXT, " +
+                        "meals TEXT, " +
+                        "practiceTheory TEXT, " +
+                        "foreignLanguage TEXT, " +
+                        "responsibilities TEXT, " +
+                        "workingSpace TEXT, " +
+                        "factoryConditions TEXT, " +
+                        "recommendation TEXT, " +
+                        "futureWork TEXT, " +
+                        "processScore TEXT, " +
+                        "decisionMaking TEXT, " +
+                        "expectations TEXT, " +
+                        "researchDevelopment TEXT, " +
+                        "comments TEXT, " +
+                        "reasonForChoice TEXT, " +
+                        "analysisMethodsLearned TEXT, " +
+                        "courseAssociation TEXT, " +
+                        "workAssociation TEXT, " +
+                        "knowledgeLacks TEXT, " +
+                        "positiveAspects TEXT, " +
+                        "negativeAspects TEXT)",
+                "CREATE TABLE IF NOT EXISTS instructors (" +
+                        "instructorId INTEGER PRIMARY KEY, password TEXT)",
+                "INSERT INTO instructors (instructorId, password) SELECT 123, '123' WHERE NOT EXISTS (SELECT 1 FROM instructors WHERE instructorId = 123)");
+
+        // Lookups by institution, responsible person, evaluation date and faculty. studentID and name
+        // are included so listing the matching students is answered from the index alone.
+        add(2, "Indexes for institution, responsible person, evaluation date and faculty lookups",
+                "CREATE INDEX IF NOT EXISTS idx_acceptance_institution ON InternshipAcceptance (institutionName, studentID, name)",
+                "CREATE INDEX IF NOT EXISTS idx_place_evaluation_institution ON InternshipPlaceEvaluation (institutionName, studentID, name)",
+                "CREATE INDEX IF NOT EXISTS idx_acceptance_responsible ON InternshipAcceptance (responsibleName, studentID, name)",
+                "CREATE INDEX IF NOT EXISTS idx_evaluation_responsible ON InternEvaluation (responsibleName, studentID, name)",
+                "CREATE INDEX IF NOT EXISTS idx_evaluation_date ON InternEvaluation (evaluationDate, studentID, name)",
+                "CREATE INDEX IF NOT EXISTS idx_acceptance_faculty ON InternshipAcceptance (faculty, studentID, name)");
+
+        add(3, "Typed storage for place evaluation answers and internship dates", SchemaMigrations::typedStorage);
+
+        add(4, "Institution rating summaries for the Statistics tab", InstitutionStatistics.schema());
+
+        add(5, "Full-text index over the free-text evaluation answers", FormSearch.schema());
+
+        add(6, "Change log feeding record change notifications", ChangeFeed.schema());
+
+        add(7, "Record versions in the form tables and change notifications", ChangeFeed.rowVersions());
+    }
+
+    private SchemaMigrations() {
+    }
+
+    @FunctionalInterface
+    interface Step {
+        void apply(Connection conn) throws SQLException;
+    }
+
+    private static final class Migration {
+        final int version;
+        final String description;
+        final Step step;
+
+        Migration(int version, String description, Step step) {
+            this.version = version;
+            this.description = description;
+            this.step = step;
+        }
+    }
+
+    private static void add(int version, String description, String... statements) {
+        add(version, description, conn -> {
+            try (Statement stmt = conn.createStatement()) {
+                for (String sql : statements) {
+                    stmt.execute(sql);
+                }
+            }
+        });
+    }
+
+    private static void add(int version, String description, Step step) {
+        if (!MIGRATIONS.isEmpty() && MIGRATIONS.get(MIGRATIONS.size() - 1).version >= version) {
+            throw new IllegalStateException("Migration " + version + " is out of order");
+        }
+        MIGRATIONS.add(new Migration(version, description, step));
+    }
+
+    static int latestVersion() {
+        return MIGRATIONS.get(MIGRATIONS.size() - 1).version;
+    }
+
+    // Brings the database up to the latest version; a failing step is rolled back and stops startup
+    static void migrate(Connection conn) throws SQLException {
+        migrate(conn, latestVersion());
+    }
+
+    // Up to the given version only, so tests can start from a database as an older server left it
+    static void migrate(Connection conn, int targetVersion) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS schema_version (" +
+                    "version INTEGER PRIMARY KEY, description TEXT, appliedAt TEXT DEFAULT CURRENT_TIMESTAMP)");
+        }
+        int current = currentVersion(conn);
+        if (current > latestVersion()) {
+            throw new SQLException("Database schema version " + current + " is newer than this server (" + latestVersion() + ")");
+        }
+
+        boolean applied = false;
+        for (Migration migration : MIGRATIONS) {
+            if (migration.version <= current || migration.version > targetVersion) {
+                continue;
+            }
+            conn.setAutoCommit(false);
+            try {
+                migration.step.apply(conn);
+                try (PreparedStatement record = conn.prepareStatement("INSERT INTO schema_version (version, description) VALUES (?, ?)")) {
+                    record.setInt(1, migration.version);
+                    record.setString(2, migration.description);
+                    record.executeUpdate();
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw new SQLException("Schema migration " + migration.version + " (" + migration.description + ") failed: " + e.getMessage(), e);
+            } finally {
+                conn.setAutoCommit(true);
+            }
+            System.out.println("Applied schema migration " + migration.version + ": " + migration.description);
+            applied = true;
+        }
+
+        if (applied) {
+            // Refresh the planner statistics so the new indexes are picked up
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("PRAGMA optimize");
+            }
+        }
+    }
+
+    // Place evaluations: the table is rebuilt with INTEGER answer and score columns, mapping the
+    // combo box labels to their codes. Values that are not one of the labels keep their text.
+    // Acceptance dates: startDay/endDay hold the ranges that parse as epoch days, and dates keeps the
+    // text of those that do not.
+    private static void typedStorage(Connection conn) throws SQLException {
+        StringBuilder select = new StringBuilder("SELECT id, name, studentID, institutionName, duration, ");
+        select.append(caseOf("salary", StorageCodec.SALARY_LABELS));
+        for (String column : StorageCodec.LIKERT_COLUMNS) {
+            select.append(", ").append(caseOf(column, StorageCodec.LIKERT_LABELS));
+        }
+        // INTEGER affinity turns digit strings into integers on insert
+        select.append(", processScore, decisionMaking, expectations, researchDevelopment, comments, reasonForChoice, " +
+                "analysisMethodsLearned, courseAssociation, workAssociation, knowledgeLacks, positiveAspects, negativeAspects " +
+                "FROM InternshipPlaceEvaluation");
+
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE InternshipPlaceEvaluation_typed (" +
+                    "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                    "name TEXT, " +
+                    "studentID TEXT UNIQUE, " +
+                    "institutionName TEXT, " +
+                    "duration TEXT, " +
+                    "salary INTEGER, " +
+                    "transportation INTEGER, " +
+                    "meals INTEGER, " +
+                    "practiceTheory INTEGER, " +
+                    "foreignLanguage INTEGER, " +
+                    "responsibilities INTEGER, " +
+                    "workingSpace INTEGER, " +
+                    "factoryConditions INTEGER, " +
+                    "recommendation INTEGER, " +
+                    "futureWork INTEGER, " +
+                    "processScore INTEGER, " +
+                    "decisionMaking INTEGER, " +
+                    "expectations INTEGER, " +
+                    "researchDevelopment INTEGER, " +
+                    "comments TEXT, " +
+                    "reasonForChoice TEXT, " +
+                    "analysisMethodsLearned TEXT, " +
+                    "courseAssociation TEXT, " +
+                    "workAssociation TEXT, " +
+                    "knowledgeLacks TEXT, " +
+                    "positiveAspects TEXT, " +
+                    "negativeAspects TEXT)");
+            stmt.execute("INSERT INTO InternshipPlaceEvaluation_typed " + select);
+            stmt.execute("DROP TABLE InternshipPlaceEvaluation");
+            stmt.execute("ALTER TABLE InternshipPlaceEvaluation_typed RENAME TO InternshipPlaceEvaluation");
+            stmt.execute("CREATE INDEX idx_place_evaluation_institution ON InternshipPlaceEvaluation (institutionName, studentID, name)");
+
+            stmt.execute("ALTER TABLE InternshipAcceptance ADD COLUMN startDay INTEGER");
+            stmt.execute("ALTER TABLE InternshipAcceptance ADD COLUMN endDay INTEGER");
+            stmt.execute("CREATE INDEX idx_acceptance_dates ON InternshipAcceptance (startDay, endDay)");
+        }
+
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT id, dates FROM InternshipAcceptance WHERE dates IS NOT NULL");
+             PreparedStatement update = conn.prepareStatement(
+                     "UPDATE InternshipAcceptance SET startDay = ?, endDay = ?, dates = NULL WHERE id = ?")) {
+            while (rs.next()) {
+                long[] days = StorageCodec.parseDateRange(rs.getString(2));
+                if (days != null) {
+                    update.setLong(1, days[0]);
+                    update.setLong(2, days[1]);
+                    update.setLong(3, rs.getLong(1));
+                    update.executeUpdate();
+                }
+            }
+        }
+    }
+
+    private static String caseOf(String column, String[] labels) {
+        StringBuilder sql = new StringBuilder("CASE ").append(column);
+        for (int code = 0; code < labels.length; code++) {
+            sql.append(" WHEN '").append(labels[code].replace("'", "''")).append("' THEN ").append(code);
+        }
+        return sql.append(" ELSE ").append(column).append(" END").toString();
+    }
+
+    private static int currentVersion(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(version), 0) FROM schema_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+}
@@ -0,0 +1,409 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Always-on counters and latency histograms for SQLiteServer, published through JMX and optionally on
+// loopback HTTP. Slow statements are logged with string literals masked, as those carry names and passwords.
+final class ServerMetrics implements ServerMetricsMXBean {
+    enum StatementType {
+        SELECT, INSERT, UPDATE, DELETE, OTHER;
+
+        static StatementType of(String sql) {
+            String head = sql.stripLeading();
+            int end = 0;
+            while (end < head.length() && Character.isLetter(head.charAt(end))) {
+                end++;
+            }
+            String keyword = head.substring(0, end).toUpperCase();
+            if (keyword.equals("WITH")) {
+                return DatabasePool.isReadOnly(sql) ? SELECT : OTHER;
+            }
+            for (StatementType type : values()) {
+                if (type.name().equals(keyword)) {
+                    return type;
+                }
+            }
+            return keyword.equals("REPLACE") ? INSERT : OTHER;
+        }
+    }
+
+    private static final String OBJECT_NAME = "se360.server:type=ServerMetrics";
+    private static final int RATE_WINDOW_SECONDS = 60;
+    private static final int RECENT_SLOW_QUERIES = 50;
+    private static final int MAX_LOGGED_SQL = 300;
+    private static final double[] PERCENTILES = {50, 99, 99.9};
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    // Counts and timings of one statement type
+    private static final class TypeMetrics {
+        final LongAdder count = new LongAdder();
+        final LongAdder errors = new LongAdder();
+        final LatencyHistogram execution = new LatencyHistogram();
+        final LatencyHistogram serialization = new LatencyHistogram();
+    }
+
+    private final Map<StatementType, TypeMetrics> types = new EnumMap<>(StatementType.class);
+    private final AtomicInteger activeConnections = new AtomicInteger();
+    private final LongAdder acceptedConnections = new LongAdder();
+    private final LongAdder rejectedConnections = new LongAdder();
+    private final LongAdder bytesSent = new LongAdder();
+    private final LongAdder slowQueries = new LongAdder();
+    private final Deque<String> recentSlowQueries = new ArrayDeque<>(); // Guarded by itself
+    private volatile long slowQueryMillis;
+
+    // Statement counts of every type once a second, oldest overwritten first; guarded by this
+    private final long[][] countHistory = new long[RATE_WINDOW_SECONDS + 1][StatementType.values().length];
+    private int historySize;
+    private int historyNext;
+
+    private DatabasePool database;
+    private ChangeFeed changes;
+    private ExecutorService workers;
+    private ScheduledExecutorService sampler;
+    private HttpServer http;
+
+    ServerMetrics(long slowQueryMillis) {
+        this.slowQueryMillis = slowQueryMillis;
+        for (StatementType type : StatementType.values()) {
+            types.put(type, new TypeMetrics());
+        }
+    }
+
+    // The parts of the server whose state is reported as it is at the moment of asking
+    void attach(DatabasePool database, ChangeFeed changes, ExecutorService workers) {
+        this.database = database;
+        this.changes = changes;
+        this.workers = workers;
+    }
+
+    // Registers the MBean and starts sampling rates; serves the text page too if httpPort is above 0.
+    // Failures are logged and leave the server running without that part.
+    void publish(int httpPort) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+        } catch (JMException e) {
+            e.printStackTrace();
+        }
+        sampler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "server-metrics");
+            t.setDaemon(true);
+            return t;
+        });
+        sampler.scheduleAtFixedRate(this::sampleCounts, 0, 1, TimeUnit.SECONDS);
+        if (httpPort > 0) {
+            try {
+                http = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), httpPort), 0);
+                http.createContext("/metrics", exchange -> respond(exchange, text()));
+                http.createContext("/slow", exchange -> respond(exchange, String.join("\n", getRecentSlowQueries()) + "\n"));
+                http.start();
+                System.out.println("Metrics on http://127.0.0.1:" + httpPort + "/metrics");
+            } catch (IOException e) {
+                System.out.println("Metrics page not started: " + e.getMessage());
+                http = null;
+            }
+        }
+    }
+
+    void unpublish() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        } catch (JMException e) {
+            e.printStackTrace();
+        }
+        if (sampler != null) {
+            sampler.shutdownNow();
+        }
+        if (http != null) {
+            http.stop(0);
+        }
+    }
+
+    void connectionAccepted() {
+        acceptedConnections.increment();
+        activeConnections.incrementAndGet();
+    }
+
+    void connectionClosed() {
+        activeConnections.decrementAndGet();
+    }
+
+    void connectionRejected() {
+        rejectedConnections.increment();
+    }
+
+    // Wraps a client socket's stream so everything written to it is counted
+    OutputStream countBytes(OutputStream out) {
+        return new FilterOutputStream(out) {
+            @Override
+            public void write(int b) throws IOException {
+                out.write(b);
+                bytesSent.increment();
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+                bytesSent.add(len);
+            }
+        };
+    }
+
+    // One statement that ran; rows is -1 if it returned an update count rather than rows
+    void statement(String sql, long executeNanos, long sendNanos, int rows) {
+        TypeMetrics metrics = types.get(StatementType.of(sql));
+        metrics.count.increment();
+        metrics.execution.recordNanos(executeNanos);
+        if (rows >= 0) {
+            metrics.serialization.recordNanos(sendNanos);
+        }
+        long threshold = slowQueryMillis;
+        long totalMillis = TimeUnit.NANOSECONDS.toMillis(executeNanos + sendNanos);
+        if (threshold > 0 && totalMillis >= threshold) {
+            slowQueries.increment();
+            String entry = LocalDateTime.now().format(TIME_FORMAT) + " " + totalMillis + " ms (" +
+                    TimeUnit.NANOSECONDS.toMillis(executeNanos) + " ms executing, " + TimeUnit.NANOSECONDS.toMillis(sendNanos) +
+                    " ms sending" + (rows >= 0 ? " " + rows + " rows" : "") + "): " + mask(sql);
+            System.out.println("Slow statement " + entry);
+            synchronized (recentSlowQueries) {
+                if (recentSlowQueries.size() >= RECENT_SLOW_QUERIES) {
+                    recentSlowQueries.removeFirst();
+                }
+                recentSlowQueries.addLast(entry);
+            }
+        }
+    }
+
+    void statementFailed(String sql) {
+        TypeMetrics metrics = types.get(StatementType.of(sql));
+        metrics.count.increment();
+        metrics.errors.increment();
+    }
+
+    // The statement on one line and without its string literals, which may hold personal data
+    static String mask(String sql) {
+        String masked = sql.replaceAll("'(?:[^']|'')*'", "'?'").replaceAll("\\s+", " ").trim();
+        return masked.length() > MAX_LOGGED_SQL ? masked.substring(0, MAX_LOGGED_SQL) + "..." : masked;
+    }
+
+    @Override
+    public int getActiveConnections() {
+        return activeConnections.get();
+    }
+
+    @Override
+    public int getQueuedConnections() {
+        return workers instanceof ThreadPoolExecutor ? ((ThreadPoolExecutor) workers).getQueue().size() : 0;
+    }
+
+    @Override
+    public int getChangeSubscribers() {
+        return changes == null ? 0 : changes.subscriberCount();
+    }
+
+    @Override
+    public long getAcceptedConnections() {
+        return acceptedConnections.sum();
+    }
+
+    @Override
+    public long getRejectedConnections() {
+        return rejectedConnections.sum();
+    }
+
+    @Override
+    public long getBytesSent() {
+        return bytesSent.sum();
+    }
+
+    @Override
+    public long getBusyRetries() {
+        return database == null ? 0 : database.busyRetries();
+    }
+
+    @Override
+    public long getWrites() {
+        return database == null ? 0 : database.writes();
+    }
+
+    @Override
+    public long getWriteTransactions() {
+        return database == null ? 0 : database.writeTransactions();
+    }
+
+    @Override
+    public Map<String, Long> getStatementCounts() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        types.forEach((type, metrics) -> counts.put(type.name(), metrics.count.sum()));
+        return counts;
+    }
+
+    @Override
+    public Map<String, Long> getStatementErrors() {
+        Map<String, Long> errors = new LinkedHashMap<>();
+        types.forEach((type, metrics) -> errors.put(type.name(), metrics.errors.sum()));
+        return errors;
+    }
+
+    @Override
+    public synchronized Map<String, Double> getStatementsPerSecond() {
+        Map<String, Double> rates = new LinkedHashMap<>();
+        int newest = (historyNext - 1 + countHistory.length) % countHistory.length;
+        int oldest = historySize < countHistory.length ? 0 : historyNext;
+        for (StatementType type : StatementType.values()) {
+            rates.put(type.name(), historySize < 2 ? 0.0
+                    : (countHistory[newest][type.ordinal()] - countHistory[oldest][type.ordinal()]) / (double) (historySize - 1));
+        }
+        return rates;
+    }
+
+    @Override
+    public Map<String, Long> getExecutionMicros() {
+        return percentiles(false);
+    }
+
+    @Override
+    public Map<String, Long> getSerializationMicros() {
+        return percentiles(true);
+    }
+
+    @Override
+    public Map<String, Long> getWriteWaitMicros() {
+        Map<String, Long> values = new LinkedHashMap<>();
+        if (database != null) {
+            putPercentiles(values, "", database.writeWaits());
+        }
+        return values;
+    }
+
+    @Override
+    public long getSlowQueries() {
+        return slowQueries.sum();
+    }
+
+    @Override
+    public String[] getRecentSlowQueries() {
+        synchronized (recentSlowQueries) {
+            return recentSlowQueries.toArray(new String[0]);
+        }
+    }
+
+    @Override
+    public long getSlowQueryMillis() {
+        return slowQueryMillis;
+    }
+
+    @Override
+    public void setSlowQueryMillis(long millis) {
+        slowQueryMillis = millis;
+    }
+
+    private Map<String, Long> percentiles(boolean serialization) {
+        Map<String, Long> values = new LinkedHashMap<>();
+        types.forEach((type, metrics) -> putPercentiles(values, type.name() + " ",
+                serialization ? metrics.serialization : metrics.execution));
+        return values;
+    }
+
+    private static void putPercentiles(Map<String, Long> values, String prefix, LatencyHistogram histogram) {
+        for (double percentile : PERCENTILES) {
+            values.put(prefix + "p" + formatPercentile(percentile), histogram.percentileMicros(percentile));
+        }
+        values.put(prefix + "max", histogram.maxMicros());
+    }
+
+    private synchronized void sampleCounts() {
+        for (StatementType type : StatementType.values()) {
+            countHistory[historyNext][type.ordinal()] = types.get(type).count.sum();
+        }
+        historyNext = (historyNext + 1) % countHistory.length;
+        historySize = Math.min(historySize + 1, countHistory.length);
+    }
+
+    // Everything above, one "name{labels} value" line each, as Prometheus and plain curl both read it
+    String text() {
+        StringBuilder text = new StringBuilder("# SQLiteServer metrics; latencies in microseconds\n");
+        text.append("server_connections_active ").append(getActiveConnections()).append('\n');
+        text.append("server_connections_queued ").append(getQueuedConnections()).append('\n');
+        text.append("server_change_subscribers ").append(getChangeSubscribers()).append('\n');
+        text.append("server_connections_accepted_total ").append(getAcceptedConnections()).append('\n');
+        text.append("server_connections_rejected_total ").append(getRejectedConnections()).append('\n');
+        text.append("server_bytes_sent_total ").append(getBytesSent()).append('\n');
+        text.append("server_busy_retries_total ").append(getBusyRetries()).append('\n');
+        text.append("server_writes_total ").append(getWrites()).append('\n');
+        text.append("server_write_transactions_total ").append(getWriteTransactions()).append('\n');
+        text.append("server_slow_statements_total ").append(getSlowQueries()).append('\n');
+        if (database != null) {
+            appendPercentiles(text, "server_write_wait_micros", "{", database.writeWaits());
+        }
+        Map<String, Double> rates = getStatementsPerSecond();
+        types.forEach((type, metrics) -> {
+            String label = "{type=\"" + type.name().toLowerCase() + "\"";
+            text.append("server_statements_total").append(label).append("} ").append(metrics.count.sum()).append('\n');
+            text.append("server_statement_errors_total").append(label).append("} ").append(metrics.errors.sum()).append('\n');
+            text.append("server_statements_per_second").append(label).append("} ")
+                    .append(String.format("%.2f", rates.get(type.name()))).append('\n');
+            appendPercentiles(text, "server_execution_micros", label, metrics.execution);
+            appendPercentiles(text, "server_serialization_micros", label, metrics.serialization);
+        });
+        return text.toString();
+    }
+
+    // label is the opening brace and any labels before the quantile; nothing is written for an empty histogram
+    private static void appendPercentiles(StringBuilder text, String name, String label, LatencyHistogram histogram) {
+        if (histogram.count() == 0) {
+            return;
+        }
+        String separator = label.equals("{") ? "" : ",";
+        for (double percentile : PERCENTILES) {
+            text.append(name).append(label).append(separator).append("quantile=\"").append(BigDecimal.valueOf(percentile).movePointLeft(2).stripTrailingZeros().toPlainString()).append("\"} ")
+                    .append(histogram.percentileMicros(percentile)).append('\n');
+        }
+        text.append(name).append(label).append(separator).append("quantile=\"1.0\"} ").append(histogram.maxMicros()).append('\n');
+    }
+
+    private static String formatPercentile(double percentile) {
+        return percentile == Math.rint(percentile) ? String.valueOf((long) percentile) : String.valueOf(percentile);
+    }
+
+    private static void respond(HttpExchange exchange, String body) throws IOException {
+        try (exchange) {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+            exchange.sendResponseHeaders(200, bytes.length);
+            exchange.getResponseBody().write(bytes);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+import java.util.Map;
+
+// What ServerMetrics shows in JConsole or any other JMX client, under se360.server:type=ServerMetrics.
+// Maps are keyed by statement type (SELECT, INSERT, UPDATE, DELETE, OTHER); latencies are in microseconds.
+public interface ServerMetricsMXBean {
+    int getActiveConnections();
+
+    int getQueuedConnections();
+
+    int getChangeSubscribers();
+
+    long getAcceptedConnections();
+
+    long getRejectedConnections();
+
+    long getBytesSent();
+
+    long getBusyRetries();
+
+    // Writes committed on the single writer connection, and the transactions committing them; group commit
+    // makes the second smaller than the first
+    long getWrites();
+
+    long getWriteTransactions();
+
+    Map<String, Long> getStatementCounts();
+
+    Map<String, Long> getStatementErrors();
+
+    // Over the last minute
+    Map<String, Double> getStatementsPerSecond();
+
+    // p50, p99, p99.9 and max of each type, e.g. "SELECT p99"
+    Map<String, Long> getExecutionMicros();
+
+    Map<String, Long> getSerializationMicros();
+
+    // p50, p99, p99.9 and max of how long writes waited for the single writer connection
+    Map<String, Long> getWriteWaitMicros();
+
+    long getSlowQueries();
+
+    String[] getRecentSlowQueries();
+
+    long getSlowQueryMillis();
+
+    void setSlowQueryMillis(long millis);
+}
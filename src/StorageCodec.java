@@ -0,0 +1,226 @@
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+// Converts between the values the forms show and the compact values stored since schema version 3:
+// Likert answers as codes 0-3, salary as 1/0, scores as integers and internship dates as a pair of
+// epoch days. Anything that does not convert, such as free text typed into an answer field or a date
+// range in another format, is stored as it was entered and shown back unchanged.
+final class StorageCodec {
+    static final String[] LIKERT_LABELS = {"Hiç/Never", "Az/Little", "Orta/Moderately", "Çok/Very much"};
+    static final String[] LIKERT_COLUMNS = {"transportation", "meals", "practiceTheory", "foreignLanguage",
+            "responsibilities", "workingSpace", "factoryConditions", "recommendation", "futureWork"};
+    static final String[] SALARY_LABELS = {"No", "Yes"};
+    static final String[] SCORE_COLUMNS = {"processScore", "decisionMaking", "expectations", "researchDevelopment"};
+
+    // The acceptance form's single "dates" field is stored as startDay and endDay, or if it does not
+    // parse as text in the dates column itself
+    static final String DATES = "dates";
+    static final String START_DAY = "startDay";
+    static final String END_DAY = "endDay";
+
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ofPattern("dd.MM.yy");
+
+    private StorageCodec() {
+    }
+
+    // Column names and values ready for an INSERT or UPDATE; the columns depend only on the input columns
+    static final class Encoded {
+        final String[] columns;
+        final Object[] values;
+
+        Encoded(String[] columns, Object[] values) {
+            this.columns = columns;
+            this.values = values;
+        }
+    }
+
+    static Encoded encode(String table, String[] columns, Object[] values) {
+        List<String> outColumns = new ArrayList<>(columns.length + 2);
+        List<Object> outValues = new ArrayList<>(columns.length + 2);
+        for (int i = 0; i < columns.length; i++) {
+            String column = columns[i];
+            Object value = values[i];
+            if (table.equals("InternshipAcceptance") && column.equals(DATES)) {
+                long[] days = value != null ? parseDateRange(value.toString()) : null;
+                outColumns.addAll(Arrays.asList(START_DAY, END_DAY, DATES));
+                outValues.add(days != null ? days[0] : null);
+                outValues.add(days != null ? days[1] : null);
+                outValues.add(days != null ? null : value);
+                continue;
+            }
+            outColumns.add(column);
+            outValues.add(table.equals("InternshipPlaceEvaluation") ? encodeValue(column, value) : value);
+        }
+        return new Encoded(outColumns.toArray(new String[0]), outValues.toArray());
+    }
+
+    private static Object encodeValue(String column, Object value) {
+        if (!(value instanceof String)) {
+            return value;
+        }
+        String text = (String) value;
+        if (contains(LIKERT_COLUMNS, column)) {
+            int code = Arrays.asList(LIKERT_LABELS).indexOf(text.trim());
+            return code >= 0 ? (Object) code : text;
+        }
+        if (column.equals("salary")) {
+            int code = Arrays.asList(SALARY_LABELS).indexOf(text.trim());
+            return code >= 0 ? (Object) code : text;
+        }
+        if (contains(SCORE_COLUMNS, column)) {
+            try {
+                return Integer.parseInt(text.trim());
+            } catch (NumberFormatException e) {
+                return text;
+            }
+        }
+        return value;
+    }
+
+    // Maps rows as stored back to the columns and values the forms use
+    static final class Decoder {
+        private final String table;
+        private final String[] stored;
+        private final String[] columns;
+        private final int startDay;
+        private final int endDay;
+        private final int datesText;
+        private final int datesAt; // Where the combined dates column goes, -1 if not decoding dates
+
+        private Decoder(String table, String[] stored) {
+            this.table = table;
+            this.stored = stored;
+            List<String> names = Arrays.asList(stored);
+            this.startDay = table.equals("InternshipAcceptance") ? names.indexOf(START_DAY) : -1;
+            this.endDay = startDay >= 0 ? names.indexOf(END_DAY) : -1;
+            this.datesText = startDay >= 0 ? names.indexOf(DATES) : -1;
+            this.datesAt = datesText >= 0 ? Math.min(startDay, datesText) : startDay;
+
+            List<String> out = new ArrayList<>(stored.length);
+            for (int i = 0; i < stored.length; i++) {
+                if (i == datesAt) {
+                    out.add(DATES);
+                } else if (i != startDay && i != endDay && i != datesText) {
+                    out.add(stored[i]);
+                }
+            }
+            this.columns = out.toArray(new String[0]);
+        }
+
+        String[] columns() {
+            return columns;
+        }
+
+        Object[] decode(Object[] row) {
+            Object[] out = new Object[columns.length];
+            int j = 0;
+            for (int i = 0; i < row.length; i++) {
+                if (i == datesAt) {
+                    out[j++] = formatDateRange(row[startDay], endDay >= 0 ? row[endDay] : null, datesText >= 0 ? row[datesText] : null);
+                } else if (i != startDay && i != endDay && i != datesText) {
+                    out[j++] = table.equals("InternshipPlaceEvaluation") ? decodeValue(stored[i], row[i]) : row[i];
+                }
+            }
+            return out;
+        }
+    }
+
+    static Decoder decoder(String table, String[] storedColumns) {
+        return new Decoder(table, storedColumns);
+    }
+
+    static QueryResult decode(String table, QueryResult result) {
+        if (!result.hasRows()) {
+            return result;
+        }
+        Decoder decoder = decoder(table, result.getColumns());
+        List<Object[]> rows = new ArrayList<>(result.rowCount());
+        for (Object[] row : result.getRows()) {
+            rows.add(decoder.decode(row));
+        }
+        return QueryResult.ofRows(decoder.columns(), rows);
+    }
+
+    // Codes are Longs on the binary protocol and digit strings on the text protocol
+    private static Object decodeValue(String column, Object value) {
+        Integer code = asCode(value);
+        if (code == null) {
+            return value;
+        }
+        if (contains(LIKERT_COLUMNS, column) && code >= 0 && code < LIKERT_LABELS.length) {
+            return LIKERT_LABELS[code];
+        }
+        if (column.equals("salary") && code >= 0 && code < SALARY_LABELS.length) {
+            return SALARY_LABELS[code];
+        }
+        return value;
+    }
+
+    private static Integer asCode(Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).intValue();
+        }
+        if (value instanceof String && ((String) value).matches("\\d")) {
+            return Integer.parseInt((String) value);
+        }
+        return null;
+    }
+
+    // "dd.MM.yy-dd.MM.yy" as {startDay, endDay} in days since 1970-01-01, or null if it does not parse
+    static long[] parseDateRange(String dateRange) {
+        String[] dates = dateRange.split("-");
+        if (dates.length != 2) {
+            return null;
+        }
+        SimpleDateFormat dateFormat = new SimpleDateFormat("dd.MM.yy");
+        dateFormat.setLenient(false);
+        try {
+            return new long[]{toEpochDay(dateFormat.parse(dates[0].trim())), toEpochDay(dateFormat.parse(dates[1].trim()))};
+        } catch (ParseException e) {
+            return null;
+        }
+    }
+
+    private static long toEpochDay(Date date) {
+        return date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate().toEpochDay();
+    }
+
+    static String formatDateRange(Object startDay, Object endDay, Object datesText) {
+        Long start = asDay(startDay);
+        Long end = asDay(endDay);
+        if (start == null || end == null) {
+            return datesText != null ? datesText.toString() : null;
+        }
+        return LocalDate.ofEpochDay(start).format(DAY_FORMAT) + "-" + LocalDate.ofEpochDay(end).format(DAY_FORMAT);
+    }
+
+    private static Long asDay(Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof String && !((String) value).isEmpty()) {
+            try {
+                return Long.parseLong((String) value);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    private static boolean contains(String[] columns, String column) {
+        for (String c : columns) {
+            if (c.equalsIgnoreCase(column)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,316 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+
+// Framed binary protocol between SQLiteClient and SQLiteServer.
+//
+// A client asks for it by sending HANDSHAKE as its first text line. A server that understands it
+// answers with HANDSHAKE_ACK and both sides switch to frames; an older server answers with an
+// "ERROR: ..." / "END" reply and the client stays on the tab-separated text protocol.
+//
+// Every frame is: int requestId, byte type, int payloadLength, payload. All frames of a response
+// carry the requestId of the request they answer. A response is a sequence of frames ending in
+// exactly one terminal frame (END_RESULT, UPDATE_COUNT, ERROR, PREPARED, BATCH_END or CONFLICT).
+//
+// Requests may be pipelined: a client can write several before reading any reply. The server
+// handles them in order, so replies come back in the order the requests were sent.
+//
+// PREPARE registers a statement under a handle chosen by the client, so it can be followed by
+// EXECUTE frames right away without waiting for the PREPARED reply. The server keeps a cache of
+// compiled statements per database connection, keyed by SQL text.
+//
+// DOSSIER returns every form of one student in a single reply: for each form table a TABLE frame
+// followed by that table's COLUMNS and ROW frames, then one END_RESULT for the whole reply.
+//
+// BATCH runs a list of statements in one transaction. The reply holds one result per statement, in
+// order, each ending in its own END_RESULT, UPDATE_COUNT or ERROR, and then a BATCH_END that says
+// whether the transaction was committed. Only BATCH_END ends a BATCH reply.
+//
+// SEARCH runs a ranked full-text search over the free-text answers (see FormSearch) and is answered
+// like a QUERY, with one row per matching form.
+//
+// UPDATE_IF_VERSION updates one student's form only if the record is still at the version given (see
+// RecordUpdate). Only the form's own columns can be set. The reply is UPDATE_COUNT 1 if it was
+// updated; otherwise the record as it is now (COLUMNS and ROW, left out if it was deleted) followed
+// by CONFLICT with its current version, or 0 if it no longer exists.
+//
+// SUBSCRIBE turns the connection into a feed of record changes (see ChangeFeed). The server answers
+// with SUBSCRIBED carrying the id of the last change made so far, then sends a CHANGE frame for every
+// form record inserted, updated or deleted after it, in commit order. When there has been nothing to
+// send for CHANGE_HEARTBEAT_MILLIS it repeats SUBSCRIBED with the id of the last change sent, so a
+// client can tell a quiet server from a dead connection. The connection takes no more requests.
+final class WireProtocol {
+    static final String HANDSHAKE = "#BINARY/1";
+    static final String HANDSHAKE_ACK = "OK BINARY/1";
+
+    // Request frames
+    static final byte QUERY = 1;            // string sql
+    static final byte PREPARE = 2;          // int handle, string sql
+    static final byte EXECUTE = 3;          // int handle, int count, count x value parameter
+    static final byte DOSSIER = 4;          // string studentID
+    static final byte BATCH = 5;            // boolean atomic, int count, count x (string sql, int n, n x value)
+    static final byte SEARCH = 6;           // string words, string institution, int limit
+    static final byte SUBSCRIBE = 7;        // no payload
+    static final byte UPDATE_IF_VERSION = 8; // string table, string studentID, long version, int count, count x (string column, value)
+
+    // Response frames
+    static final byte COLUMNS = 10;         // int count, count x string name
+    static final byte ROW = 11;             // int count, count x value
+    static final byte END_RESULT = 12;      // terminal: end of a result set
+    static final byte UPDATE_COUNT = 13;    // terminal: int count
+    static final byte ERROR = 14;           // terminal: int vendor error code, string message
+    static final byte PREPARED = 15;        // terminal: int handle
+    static final byte TABLE = 16;           // string table name, starts one table's rows in a DOSSIER reply
+    static final byte BATCH_END = 17;       // terminal: boolean committed
+    static final byte CHANGE = 18;          // long change id, string table, string studentID, string operation, long version
+    static final byte SUBSCRIBED = 19;      // long id of the last change already made, or on a heartbeat the last one sent
+    static final byte CONFLICT = 20;        // terminal: long current version, 0 if the record is gone
+
+    static final int CHANGE_HEARTBEAT_MILLIS = 15_000;
+
+    // Value tags
+    static final byte NULL = 0;
+    static final byte INTEGER = 1;          // long
+    static final byte REAL = 2;             // double
+    static final byte TEXT = 3;             // length-prefixed UTF-8
+    static final byte BLOB = 4;             // length-prefixed bytes
+
+    private WireProtocol() {
+    }
+
+    static boolean isTerminal(byte type) {
+        return type == END_RESULT || type == UPDATE_COUNT || type == ERROR || type == PREPARED || type == BATCH_END
+                || type == CONFLICT;
+    }
+
+    static void writeString(DataOutput out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(DataInput in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static void writeValue(DataOutput out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            out.writeByte(INTEGER);
+            out.writeLong(((Number) value).longValue());
+        } else if (value instanceof Double || value instanceof Float) {
+            out.writeByte(REAL);
+            out.writeDouble(((Number) value).doubleValue());
+        } else if (value instanceof byte[]) {
+            byte[] bytes = (byte[]) value;
+            out.writeByte(BLOB);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        } else {
+            out.writeByte(TEXT);
+            writeString(out, value.toString());
+        }
+    }
+
+    static Object readValue(DataInput in) throws IOException {
+        byte tag = in.readByte();
+        switch (tag) {
+            case NULL:
+                return null;
+            case INTEGER:
+                return in.readLong();
+            case REAL:
+                return in.readDouble();
+            case TEXT:
+                return readString(in);
+            case BLOB:
+                byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                return bytes;
+            default:
+                throw new IOException("Unknown value tag " + tag);
+        }
+    }
+
+    // Reads one '\n'-terminated line straight from the stream, so no bytes past it are buffered away
+    static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream(64);
+        int b;
+        while ((b = in.read()) != -1 && b != '\n') {
+            line.write(b);
+        }
+        if (b == -1 && line.size() == 0) {
+            return null;
+        }
+        String text = line.toString(StandardCharsets.UTF_8);
+        return text.endsWith("\r") ? text.substring(0, text.length() - 1) : text;
+    }
+
+    // Buffers one frame's payload so its length can be written ahead of it
+    static class FrameWriter {
+        private final DataOutputStream out;
+        private final ByteArrayOutputStream payload = new ByteArrayOutputStream(256);
+        private final DataOutputStream payloadOut = new DataOutputStream(payload);
+        private int requestId;
+        private byte type;
+
+        FrameWriter(OutputStream out) {
+            this.out = new DataOutputStream(out);
+        }
+
+        DataOutputStream begin(int requestId, byte type) {
+            this.requestId = requestId;
+            this.type = type;
+            payload.reset();
+            return payloadOut;
+        }
+
+        void end() throws IOException {
+            out.writeInt(requestId);
+            out.writeByte(type);
+            out.writeInt(payload.size());
+            payload.writeTo(out);
+        }
+
+        void writeColumns(int requestId, String[] columns) throws IOException {
+            DataOutputStream p = begin(requestId, COLUMNS);
+            p.writeInt(columns.length);
+            for (String column : columns) {
+                writeString(p, column);
+            }
+            end();
+        }
+
+        void writeRow(int requestId, Object[] values) throws IOException {
+            DataOutputStream p = begin(requestId, ROW);
+            p.writeInt(values.length);
+            for (Object value : values) {
+                writeValue(p, value);
+            }
+            end();
+        }
+
+        void writeTable(int requestId, String table) throws IOException {
+            writeString(begin(requestId, TABLE), table);
+            end();
+        }
+
+        void writeEndResult(int requestId) throws IOException {
+            begin(requestId, END_RESULT);
+            end();
+        }
+
+        void writeUpdateCount(int requestId, int count) throws IOException {
+            begin(requestId, UPDATE_COUNT).writeInt(count);
+            end();
+        }
+
+        void writePrepared(int requestId, int handle) throws IOException {
+            begin(requestId, PREPARED).writeInt(handle);
+            end();
+        }
+
+        void writeBatchEnd(int requestId, boolean committed) throws IOException {
+            begin(requestId, BATCH_END).writeBoolean(committed);
+            end();
+        }
+
+        void writeConflict(int requestId, long currentVersion) throws IOException {
+            begin(requestId, CONFLICT).writeLong(currentVersion);
+            end();
+        }
+
+        void writeChange(int requestId, RecordChange change) throws IOException {
+            DataOutputStream p = begin(requestId, CHANGE);
+            p.writeLong(change.id);
+            writeString(p, change.table);
+            writeString(p, change.studentID != null ? change.studentID : "");
+            writeString(p, change.operation);
+            p.writeLong(change.version);
+            end();
+        }
+
+        void writeSubscribed(int requestId, long lastChangeId) throws IOException {
+            begin(requestId, SUBSCRIBED).writeLong(lastChangeId);
+            end();
+        }
+
+        void writeError(int requestId, int errorCode, String message) throws IOException {
+            DataOutputStream p = begin(requestId, ERROR);
+            p.writeInt(errorCode);
+            writeString(p, message != null ? message : "");
+            end();
+        }
+
+        void flush() throws IOException {
+            out.flush();
+        }
+    }
+
+    // Reads frame headers; the caller consumes the payload from in() according to type()
+    static class FrameReader {
+        private final DataInputStream in;
+        private int requestId;
+        private byte type;
+        private int length;
+
+        FrameReader(InputStream in) {
+            this.in = new DataInputStream(in);
+        }
+
+        // Returns false on a clean end of stream between frames
+        boolean next() throws IOException {
+            int b = in.read();
+            if (b == -1) {
+                return false;
+            }
+            requestId = (b << 24) | (in.readUnsignedByte() << 16) | (in.readUnsignedByte() << 8) | in.readUnsignedByte();
+            type = in.readByte();
+            length = in.readInt();
+            return true;
+        }
+
+        int requestId() {
+            return requestId;
+        }
+
+        byte type() {
+            return type;
+        }
+
+        int length() {
+            return length;
+        }
+
+        DataInputStream in() {
+            return in;
+        }
+
+        void skipPayload() throws IOException {
+            in.skipNBytes(length);
+        }
+
+        String[] readColumns() throws IOException {
+            String[] columns = new String[in.readInt()];
+            for (int i = 0; i < columns.length; i++) {
+                columns[i] = readString(in);
+            }
+            return columns;
+        }
+
+        RecordChange readChange() throws IOException {
+            return new RecordChange(in.readLong(), readString(in), readString(in), readString(in), in.readLong());
+        }
+
+        // ROW payloads and EXECUTE parameters share the same count-prefixed value list
+        Object[] readRow() throws IOException {
+            Object[] values = new Object[in.readInt()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = readValue(in);
+            }
+            return values;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// The client's side of the handshake, against a server played over pipes
+class ClientConnectionPoolTest {
+    @Test
+    void serverThatAcknowledgesTheHandshakeGetsFrames() throws IOException {
+        PipedSocket socket = new PipedSocket();
+        reply(socket, WireProtocol.HANDSHAKE_ACK + "\n");
+
+        ClientConnectionPool.PooledConnection conn = new ClientConnectionPool.PooledConnection(socket, true);
+
+        assertTrue(conn.binary);
+        assertEquals(WireProtocol.HANDSHAKE + "\n", sent(socket));
+    }
+
+    @Test
+    void olderServerThatRefusesTheHandshakeIsSpokenToInText() throws IOException {
+        PipedSocket socket = new PipedSocket();
+        // As a server without the binary protocol answers a statement it cannot run
+        reply(socket, "ERROR: near \"#BINARY\": syntax error\nEND\n");
+
+        ClientConnectionPool.PooledConnection conn = new ClientConnectionPool.PooledConnection(socket, true);
+        assertFalse(conn.binary);
+        assertEquals(WireProtocol.HANDSHAKE + "\n", sent(socket));
+
+        reply(socket, "name\tstudentID\nAyşe\t1\nCan\t2\nEND\n");
+        AtomicReference<Boolean> reusable = new AtomicReference<>();
+        QueryResult result = new ResultCursor(conn, "SELECT name, studentID FROM InternEvaluation", null, reusable::set).toResult();
+
+        assertEquals("SELECT name, studentID FROM InternEvaluation\n", sent(socket));
+        assertArrayEquals(new String[]{"name", "studentID"}, result.getColumns());
+        List<Object[]> rows = result.getRows();
+        assertEquals(2, rows.size());
+        assertArrayEquals(new Object[]{"Ayşe", "1"}, rows.get(0));
+        assertArrayEquals(new Object[]{"Can", "2"}, rows.get(1));
+        assertTrue(reusable.get(), "the connection should go back to the pool");
+    }
+
+    @Test
+    void busyServerFailsTheConnection() throws IOException {
+        PipedSocket socket = new PipedSocket();
+        reply(socket, SQLiteServer.SERVER_BUSY + "\nEND\n");
+
+        IOException e = assertThrows(IOException.class, () -> new ClientConnectionPool.PooledConnection(socket, true));
+        assertEquals("SERVER_BUSY", e.getMessage());
+        assertTrue(socket.isClosed());
+    }
+
+    @Test
+    void textIsUsedWithoutAskingWhenBinaryIsNotPreferred() throws IOException {
+        PipedSocket socket = new PipedSocket();
+
+        ClientConnectionPool.PooledConnection conn = new ClientConnectionPool.PooledConnection(socket, false);
+
+        assertFalse(conn.binary);
+        assertEquals("", sent(socket));
+    }
+
+    private static void reply(PipedSocket socket, String text) throws IOException {
+        socket.toClient().write(text.getBytes(StandardCharsets.UTF_8));
+        socket.toClient().flush();
+    }
+
+    private static String sent(PipedSocket socket) throws IOException {
+        InputStream in = socket.fromClient();
+        return new String(in.readNBytes(in.available()), StandardCharsets.UTF_8);
+    }
+}
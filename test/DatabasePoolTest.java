@@ -0,0 +1,175 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Grouped writes are queued while the writer thread is held by another write, so they are all taken
+// into one group when it is let go
+class DatabasePoolTest {
+    @TempDir
+    Path dir;
+
+    private DatabasePool pool;
+    private ExecutorService callers;
+
+    @BeforeEach
+    void open() throws SQLException {
+        pool = new DatabasePool("jdbc:sqlite:" + dir.resolve("pool.db"), 1, 1000, 16, "NORMAL", 64, 0);
+        pool.write(conn -> {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("CREATE TABLE items (id INTEGER PRIMARY KEY, name TEXT UNIQUE)");
+            }
+            return null;
+        });
+        callers = Executors.newCachedThreadPool();
+    }
+
+    @AfterEach
+    void close() {
+        callers.shutdownNow();
+        pool.close();
+    }
+
+    @Test
+    void failingWriteInAGroupIsRolledBackAloneWhileTheOthersCommit() throws Exception {
+        insert("taken");
+        long writes = pool.writes();
+        long transactions = pool.writeTransactions();
+
+        List<Future<Integer>> results = inOneGroup(insertWork("first"), insertWork("taken"), insertWork("last"));
+
+        assertEquals(1, (int) results.get(0).get());
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> results.get(1).get());
+        assertTrue(failure.getCause().getMessage().contains("UNIQUE constraint failed"), failure.getCause().getMessage());
+        assertEquals(1, (int) results.get(2).get());
+        assertEquals(List.of("first", "last", "taken"), names());
+
+        // The write holding the writer, then the two that committed in one transaction
+        assertEquals(writes + 3, pool.writes());
+        assertEquals(transactions + 2, pool.writeTransactions());
+    }
+
+    @Test
+    void groupThatFailsAsAWholeIsRunOneWriteAtATime() throws Exception {
+        long writes = pool.writes();
+        long transactions = pool.writeTransactions();
+
+        // Not an SQLException, so the savepoint cannot contain it and the whole group is rolled back
+        DatabasePool.SqlWork<Integer> broken = conn -> {
+            throw new IllegalStateException("broken");
+        };
+        List<Future<Integer>> results = inOneGroup(insertWork("first"), broken, insertWork("last"));
+
+        assertEquals(1, (int) results.get(0).get());
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> results.get(1).get());
+        assertInstanceOf(SQLException.class, failure.getCause());
+        assertInstanceOf(IllegalStateException.class, failure.getCause().getCause());
+        assertEquals(1, (int) results.get(2).get());
+        assertEquals(List.of("first", "last"), names());
+
+        // Each committed write counted once, in a transaction of its own
+        assertEquals(writes + 3, pool.writes());
+        assertEquals(transactions + 3, pool.writeTransactions());
+    }
+
+    @Test
+    void failedWritesAreNotCounted() throws Exception {
+        insert("taken");
+        long writes = pool.writes();
+        long transactions = pool.writeTransactions();
+
+        assertThrows(SQLException.class, () -> insert("taken"));
+        assertThrows(SQLException.class, () -> pool.writeGrouped(insertWork("taken")));
+        List<Future<Integer>> results = inOneGroup(insertWork("taken"), insertWork("taken"));
+        for (Future<Integer> result : results) {
+            assertThrows(ExecutionException.class, result::get);
+        }
+
+        // Only the write that held the writer for the group
+        assertEquals(writes + 1, pool.writes());
+        assertEquals(transactions + 1, pool.writeTransactions());
+    }
+
+    // Queues the works with writeGrouped() while the writer is busy, then lets it go
+    @SafeVarargs
+    private List<Future<Integer>> inOneGroup(DatabasePool.SqlWork<Integer>... works) throws Exception {
+        CountDownLatch holding = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<Void> holder = callers.submit(() -> pool.write(conn -> {
+            holding.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        }));
+        holding.await();
+
+        List<Thread> waiting = new ArrayList<>();
+        List<Future<Integer>> results = new ArrayList<>();
+        for (DatabasePool.SqlWork<Integer> work : works) {
+            results.add(callers.submit(() -> {
+                synchronized (waiting) {
+                    waiting.add(Thread.currentThread());
+                }
+                return pool.writeGrouped(work);
+            }));
+        }
+        // Each caller waits for its result once its write is queued
+        while (!allWaiting(waiting, works.length)) {
+            Thread.sleep(5);
+        }
+        release.countDown();
+        holder.get();
+        return results;
+    }
+
+    private static boolean allWaiting(List<Thread> threads, int count) {
+        synchronized (threads) {
+            return threads.size() == count && threads.stream().allMatch(t -> t.getState() == Thread.State.WAITING);
+        }
+    }
+
+    private static DatabasePool.SqlWork<Integer> insertWork(String name) {
+        return conn -> {
+            try (Statement stmt = conn.createStatement()) {
+                return stmt.executeUpdate("INSERT INTO items (name) VALUES ('" + name + "')");
+            }
+        };
+    }
+
+    private void insert(String name) throws SQLException {
+        pool.write(insertWork(name));
+    }
+
+    private List<String> names() throws SQLException {
+        return pool.read(conn -> {
+            List<String> names = new ArrayList<>();
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT name FROM items ORDER BY name")) {
+                while (rs.next()) {
+                    names.add(rs.getString(1));
+                }
+            }
+            return names;
+        });
+    }
+}
@@ -0,0 +1,179 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// CSV imports into a local database, each batch statement run on its own as the server does for a
+// batch that is not atomic
+class FormImporterTest {
+    private static final String HEADER = "name,studentID,evaluationDate,responsibleName,evaluation\r\n";
+
+    @TempDir
+    Path dir;
+
+    private Connection conn;
+
+    @BeforeEach
+    void migrate() throws SQLException {
+        conn = DriverManager.getConnection("jdbc:sqlite:" + dir.resolve("forms.db"));
+        SchemaMigrations.migrate(conn);
+    }
+
+    @AfterEach
+    void close() throws SQLException {
+        conn.close();
+    }
+
+    @Test
+    void quotedFieldsKeepDelimitersQuotesAndLineBreaks() throws Exception {
+        FormImporter.Report report = importCsv(HEADER +
+                "\"Doe, Jane\",1,01.07.24,\"Bob \"\"B\"\" Smith\",\"Good,\r\nvery good\"\r\n" +
+                "Roe,2,02.07.24,\"Bob\",Fine\r\n");
+
+        assertEquals(2, report.getImported());
+        assertEquals(List.of(), report.getRejects());
+        assertEquals(List.of(
+                List.of("Doe, Jane", "1", "01.07.24", "Bob \"B\" Smith", "Good,\r\nvery good"),
+                List.of("Roe", "2", "02.07.24", "Bob", "Fine")), evaluations());
+    }
+
+    @Test
+    void byteOrderMarkIsSkipped() throws Exception {
+        FormImporter.Report report = importCsv("\uFEFF" + HEADER + "Doe,1,01.07.24,Bob,Good\n");
+
+        assertEquals(1, report.getImported());
+        assertEquals("Doe", evaluations().get(0).get(0));
+    }
+
+    @Test
+    void headerWithMoreSemicolonsThanCommasIsSemicolonSeparated() throws Exception {
+        FormImporter.Report report = importCsv("name;studentID;evaluationDate;responsibleName;evaluation;\"notes, misc\"\n" +
+                "Doe, Jane;1;01.07.24;Bob;Good, really;-\n");
+
+        assertEquals(1, report.getImported());
+        assertEquals(List.of(List.of("Doe, Jane", "1", "01.07.24", "Bob", "Good, really")), evaluations());
+    }
+
+    @Test
+    void headerWithMoreCommasThanSemicolonsIsCommaSeparated() throws Exception {
+        FormImporter.Report report = importCsv("name,studentID,evaluationDate,responsibleName,evaluation,notes;misc\n" +
+                "Doe,1,01.07.24,Bob,Good; really,-\n");
+
+        assertEquals(1, report.getImported());
+        assertEquals(List.of(List.of("Doe", "1", "01.07.24", "Bob", "Good; really")), evaluations());
+    }
+
+    @Test
+    void headerOnlyFileImportsNothing() throws Exception {
+        FormImporter.Report report = importCsv(HEADER);
+
+        assertEquals(0, report.getImported());
+        assertEquals(List.of(), report.getRejects());
+        assertEquals(List.of(), evaluations());
+    }
+
+    @Test
+    void emptyFileIsRefused() {
+        IOException e = assertThrows(IOException.class, () -> importCsv(""));
+        assertEquals("The file is empty", e.getMessage());
+    }
+
+    @Test
+    void rowsTheDatabaseRefusesAreReportedOneByOne() throws Exception {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("INSERT INTO InternEvaluation (name, studentID) VALUES ('Existing', '2')");
+        }
+
+        FormImporter.Report report = importCsv(HEADER +
+                "A,1,01.07.24,Bob,Good\n" +
+                "B,2,01.07.24,Bob,Good\n" +
+                "C,three,01.07.24,Bob,Good\n" +
+                "D,4,01.07.24,Bob,Good\n" +
+                "E,4,01.07.24,Bob,Good\n");
+
+        assertEquals(2, report.getImported());
+        assertEquals(List.of(
+                "Row 3 (Student ID 2): A record with this Student ID already exists",
+                "Row 4 (Student ID three): Student ID must be a number",
+                "Row 6 (Student ID 4): A record with this Student ID already exists"), report.getRejects());
+        List<String> names = new ArrayList<>();
+        for (List<String> row : evaluations()) {
+            names.add(row.get(0));
+        }
+        assertEquals(List.of("A", "D", "Existing"), names);
+    }
+
+    @Test
+    void acceptanceDatesAreCheckedAndStoredAsDays() throws Exception {
+        Path file = dir.resolve("acceptance.csv");
+        Files.writeString(file, "name,studentID,faculty,dates,institutionName,institutionAddress,institutionPhone,responsibleName\n" +
+                "A,1,Eng,01.07.24-31.08.24,Acme,Main St,555,Bob\n" +
+                "B,2,Eng,31.08.24-01.07.24,Acme,Main St,555,Bob\n", StandardCharsets.UTF_8);
+
+        FormImporter.Report report = new FormImporter("InternshipAcceptance", this::run).importFile(file.toFile());
+
+        assertEquals(1, report.getImported());
+        assertEquals(1, report.getRejects().size());
+        assertTrue(report.getRejects().get(0).startsWith("Row 3 (Student ID 2): Internship dates"), report.getRejects().get(0));
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT endDay - startDay FROM InternshipAcceptance")) {
+            rs.next();
+            assertEquals(61, rs.getInt(1));
+        }
+    }
+
+    private FormImporter.Report importCsv(String content) throws IOException {
+        File file = dir.resolve("evaluations.csv").toFile();
+        Files.writeString(file.toPath(), content, StandardCharsets.UTF_8);
+        return new FormImporter("InternEvaluation", this::run).importFile(file);
+    }
+
+    private Batch.Result run(Batch batch) {
+        List<QueryResult> results = new ArrayList<>();
+        for (Batch.Statement statement : batch.getStatements()) {
+            try (PreparedStatement stmt = conn.prepareStatement(statement.sql)) {
+                for (int i = 0; i < statement.params.length; i++) {
+                    stmt.setObject(i + 1, statement.params[i]);
+                }
+                results.add(QueryResult.ofUpdateCount(stmt.executeUpdate()));
+            } catch (SQLException e) {
+                results.add(QueryResult.ofError(e.getMessage(), e.getErrorCode()));
+            }
+        }
+        return new Batch.Result(true, results);
+    }
+
+    private List<List<String>> evaluations() throws SQLException {
+        List<List<String>> rows = new ArrayList<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT name, studentID, evaluationDate, responsibleName, evaluation " +
+                     "FROM InternEvaluation ORDER BY name")) {
+            while (rs.next()) {
+                List<String> row = new ArrayList<>();
+                for (int i = 1; i <= 5; i++) {
+                    row.add(rs.getString(i));
+                }
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,143 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+// The statements below are the ones clients from before typed storage send
+class LegacyFormValuesTest {
+    @TempDir
+    Path dir;
+
+    private Connection conn;
+
+    @BeforeEach
+    void migrate() throws SQLException {
+        conn = DriverManager.getConnection("jdbc:sqlite:" + dir.resolve("legacy.db"));
+        SchemaMigrations.migrate(conn);
+    }
+
+    @AfterEach
+    void close() throws SQLException {
+        conn.close();
+    }
+
+    @Test
+    void acceptanceDatesWrittenAsTextReadBack() throws SQLException {
+        run("INSERT INTO InternshipAcceptance (name, studentID, faculty, dates, institutionName, institutionAddress, institutionPhone, responsibleName) " +
+                "VALUES ('Ayşe O''Neil', 'S1', 'Engineering', '01.07.24-31.08.24', 'Acme', 'Main St', '555', 'Bob')");
+        run("INSERT INTO InternshipAcceptance (name, studentID, faculty, dates, institutionName, institutionAddress, institutionPhone, responsibleName) " +
+                "VALUES ('Can', 'S2', 'Engineering', 'summer term', 'Acme', 'Main St', '555', 'Bob')");
+
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT startDay, dates FROM InternshipAcceptance WHERE studentID = 'S1'")) {
+            rs.next();
+            assertNotNull(rs.getObject(1));
+            assertNull(rs.getObject(2));
+        }
+        assertEquals("01.07.24-31.08.24", readBack("InternshipAcceptance", "S1", "dates"));
+        assertEquals("Ayşe O'Neil", readBack("InternshipAcceptance", "S1", "name"));
+        assertEquals("summer term", readBack("InternshipAcceptance", "S2", "dates"));
+
+        run("UPDATE InternshipAcceptance SET name = 'Ayşe', faculty = 'Engineering', dates = '02.07.24-30.08.24', " +
+                "institutionName = 'Acme', institutionAddress = 'Main St', institutionPhone = '555', responsibleName = 'Bob' " +
+                "WHERE studentID = 'S1'");
+        assertEquals("02.07.24-30.08.24", readBack("InternshipAcceptance", "S1", "dates"));
+    }
+
+    @Test
+    void placeEvaluationLabelsAreStoredAsCodes() throws SQLException {
+        run("INSERT INTO InternshipPlaceEvaluation (name, studentID, institutionName, duration, salary, transportation, meals) " +
+                "VALUES ('Can', 'S1', 'Acme', '8 weeks', 'Yes', 'Çok/Very much', 'not asked')");
+
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT salary, transportation, meals FROM InternshipPlaceEvaluation")) {
+            rs.next();
+            assertEquals(1, rs.getObject(1));
+            assertEquals(3, rs.getObject(2));
+            assertEquals("not asked", rs.getObject(3));
+        }
+        assertEquals("Yes", readBack("InternshipPlaceEvaluation", "S1", "salary"));
+        assertEquals("Çok/Very much", readBack("InternshipPlaceEvaluation", "S1", "transportation"));
+    }
+
+    @Test
+    void legacyUpdateIsOneWrite() throws SQLException {
+        run("INSERT INTO InternshipPlaceEvaluation (name, studentID, salary) VALUES ('Can', 'S1', 'No')");
+        run("UPDATE InternshipPlaceEvaluation SET salary = 'Yes', processScore = '8' WHERE studentID = 'S1'");
+
+        try (Statement stmt = conn.createStatement()) {
+            try (ResultSet rs = stmt.executeQuery("SELECT version, salary, processScore FROM InternshipPlaceEvaluation")) {
+                rs.next();
+                assertEquals(2, rs.getInt(1));
+                assertEquals(1, rs.getObject(2));
+                assertEquals(8, rs.getObject(3));
+            }
+            try (ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM ChangeLog WHERE operation = '" + RecordChange.UPDATE + "'")) {
+                rs.next();
+                assertEquals(1, rs.getInt(1));
+            }
+        }
+    }
+
+    @Test
+    void otherStatementsAreNotTranslated() {
+        assertNull(LegacyFormValues.translate("SELECT * FROM InternshipAcceptance"));
+        assertNull(LegacyFormValues.translate("DELETE FROM InternshipAcceptance WHERE studentID = 'S1'"));
+        assertNull(LegacyFormValues.translate("INSERT INTO InternEvaluation (studentID) VALUES ('S1')"));
+        assertNull(LegacyFormValues.translate("INSERT INTO InternshipAcceptance (studentID) SELECT studentID FROM InternEvaluation"));
+        assertNull(LegacyFormValues.translate("UPDATE InternshipAcceptance SET dates = dates || 'x'"));
+        assertNull(LegacyFormValues.translate("INSERT INTO InternshipAcceptance (studentID) VALUES ('S1') -- comment"));
+    }
+
+    @Test
+    void whereClauseIsKeptAsSent() {
+        LegacyFormValues.Statement statement = LegacyFormValues.translate(
+                "update InternshipPlaceEvaluation set meals = 'Az/Little' where studentID = 'S''1' AND name <> 'x';");
+        assertNotNull(statement);
+        assertEquals("UPDATE InternshipPlaceEvaluation SET meals = ? where studentID = 'S''1' AND name <> 'x';", statement.sql);
+        assertArrayEquals(new Object[]{1}, statement.params);
+    }
+
+    // As the server runs a text protocol write
+    private void run(String sql) throws SQLException {
+        LegacyFormValues.Statement statement = LegacyFormValues.translate(sql);
+        assertNotNull(statement, sql);
+        try (PreparedStatement stmt = conn.prepareStatement(statement.sql)) {
+            for (int i = 0; i < statement.params.length; i++) {
+                stmt.setObject(i + 1, statement.params[i]);
+            }
+            stmt.executeUpdate();
+        }
+    }
+
+    // As the server sends a text protocol result: every value as a string, then decoded
+    private String readBack(String table, String studentID, String column) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT * FROM " + table + " WHERE studentID = '" + studentID + "'")) {
+            rs.next();
+            StorageCodec.Decoder decoder = LegacyFormValues.decoderFor(rs.getMetaData());
+            assertNotNull(decoder);
+            Object[] values = new Object[rs.getMetaData().getColumnCount()];
+            for (int i = 1; i <= values.length; i++) {
+                values[i - 1] = rs.getString(i);
+            }
+            List<String> columns = new ArrayList<>(List.of(decoder.columns()));
+            return (String) decoder.decode(values)[columns.indexOf(column)];
+        }
+    }
+}
@@ -0,0 +1,29 @@
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// A few instructors for a few seconds against a server in this JVM, every operation of the mix
+// included, so a change that breaks the server or the binary protocol under concurrent use fails the
+// build rather than the next load test. The server can start only once per JVM, so this is the only
+// test that runs one.
+class LoadGeneratorSmokeTest {
+    @Test
+    void shortRunCompletesWithoutErrors() throws Exception {
+        LoadGenerator.Config config = new LoadGenerator.Config();
+        config.clients = 8;
+        config.seconds = 3;
+        config.rampSeconds = 1;
+        config.students = 200;
+        config.thinkMillis = 20;
+        config.reportSeconds = 60;
+        config.timeoutMillis = 10_000;
+        config.external = false;
+
+        LoadGenerator.Summary summary = LoadGenerator.run(config);
+
+        assertTrue(summary.calls > 100, "only " + summary.calls + " calls completed");
+        assertEquals(0, summary.errors, summary.errorPercent() + "% of calls failed");
+        assertTrue(summary.busyPercent() < 5, summary.busyPercent() + "% of calls found the server busy");
+    }
+}
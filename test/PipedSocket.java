@@ -0,0 +1,62 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.net.Socket;
+
+// A socket whose two directions are pipes, for client code that is handed a Socket. The test writes
+// the server's side of the conversation to toClient() before the client reads it and reads what the
+// client sent from fromClient(); both fit in the pipe buffers, so one thread can play both sides.
+class PipedSocket extends Socket {
+    private static final int PIPE_BYTES = 1 << 16;
+
+    private final PipedInputStream clientIn = new PipedInputStream(PIPE_BYTES);
+    private final PipedOutputStream serverOut;
+    private final PipedInputStream serverIn = new PipedInputStream(PIPE_BYTES);
+    private final PipedOutputStream clientOut;
+    private boolean closed;
+
+    PipedSocket() throws IOException {
+        serverOut = new PipedOutputStream(clientIn);
+        clientOut = new PipedOutputStream(serverIn);
+    }
+
+    OutputStream toClient() {
+        return serverOut;
+    }
+
+    InputStream fromClient() {
+        return serverIn;
+    }
+
+    @Override
+    public InputStream getInputStream() {
+        return clientIn;
+    }
+
+    @Override
+    public OutputStream getOutputStream() {
+        return clientOut;
+    }
+
+    @Override
+    public void setTcpNoDelay(boolean on) {
+    }
+
+    @Override
+    public void setKeepAlive(boolean on) {
+    }
+
+    @Override
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        clientOut.close();
+        serverOut.close();
+    }
+}
@@ -0,0 +1,100 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReplyBufferTest {
+    private static final int CAPACITY = 1 << 20;
+    private static final long STALL_MILLIS = 300;
+
+    private Socket client;
+    private Socket server;
+
+    @BeforeEach
+    void connect() throws IOException {
+        try (ServerSocket listener = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            client = new Socket();
+            // Small socket buffers, so the writer has to wait for the reader
+            client.setReceiveBufferSize(16 * 1024);
+            client.connect(listener.getLocalSocketAddress());
+            server = listener.accept();
+            server.setSendBufferSize(16 * 1024);
+        }
+    }
+
+    @AfterEach
+    void close() throws IOException {
+        client.close();
+        server.close();
+    }
+
+    @Test
+    void smallReplyIsSentOnFinish() throws IOException {
+        ReplyBuffer reply = new ReplyBuffer(server, server.getOutputStream(), CAPACITY, STALL_MILLIS);
+        reply.write(new byte[]{1, 2, 3});
+        assertEquals(0, client.getInputStream().available());
+
+        reply.finish();
+        byte[] received = client.getInputStream().readNBytes(3);
+        assertArrayEquals(new byte[]{1, 2, 3}, received);
+    }
+
+    @Test
+    void slowButSteadyReaderTakesALargeReplyLongerThanTheStallLimit() throws Exception {
+        int size = 2 * CAPACITY;
+        Thread writer = new Thread(() -> {
+            try {
+                ReplyBuffer reply = new ReplyBuffer(server, server.getOutputStream(), CAPACITY, STALL_MILLIS);
+                byte[] chunk = new byte[64 * 1024];
+                for (int written = 0; written < size; written += chunk.length) {
+                    reply.write(chunk);
+                }
+                reply.finish();
+            } catch (IOException e) {
+                // Shows up as a short read below
+            }
+        });
+        long start = System.nanoTime();
+        writer.start();
+
+        InputStream in = client.getInputStream();
+        byte[] buffer = new byte[64 * 1024];
+        long received = 0;
+        int n;
+        while (received < size && (n = in.read(buffer)) > 0) {
+            received += n;
+            Thread.sleep(STALL_MILLIS / 15);
+        }
+        writer.join();
+
+        assertEquals(size, received, "the reply was cut off");
+        long millis = Duration.ofNanos(System.nanoTime() - start).toMillis();
+        assertTrue(millis > 3 * STALL_MILLIS, "the reply took only " + millis + " ms, too fast to show anything");
+    }
+
+    @Test
+    void readerThatStopsIsDisconnected() {
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            ReplyBuffer reply = new ReplyBuffer(server, server.getOutputStream(), CAPACITY, STALL_MILLIS);
+            byte[] chunk = new byte[64 * 1024];
+            assertThrows(IOException.class, () -> {
+                for (int i = 0; i < 1024; i++) {
+                    reply.write(chunk);
+                }
+            });
+            assertTrue(server.isClosed());
+        });
+    }
+}
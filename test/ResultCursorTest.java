@@ -0,0 +1,100 @@
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Binary replies read by request id, against a server played over pipes
+class ResultCursorTest {
+    private PipedSocket socket;
+    private ClientConnectionPool.PooledConnection conn;
+    private WireProtocol.FrameWriter server;
+
+    @BeforeEach
+    void connect() throws IOException {
+        socket = new PipedSocket();
+        socket.toClient().write((WireProtocol.HANDSHAKE_ACK + "\n").getBytes(StandardCharsets.UTF_8));
+        conn = new ClientConnectionPool.PooledConnection(socket, true);
+        assertTrue(conn.binary);
+        socket.fromClient().skipNBytes(socket.fromClient().available());
+        server = new WireProtocol.FrameWriter(socket.toClient());
+    }
+
+    @Test
+    void framesOfOtherRequestsAreSkipped() throws IOException {
+        // A parameterized query is sent as PREPARE (request 1) then EXECUTE (request 2)
+        int requestId = conn.send("SELECT name FROM InternEvaluation WHERE studentID = ?", new Object[]{"1"});
+        assertEquals(2, requestId);
+        DataInputStream sent = new DataInputStream(socket.fromClient());
+        assertEquals(1, sent.readInt());
+        assertEquals(WireProtocol.PREPARE, sent.readByte());
+        sent.skipNBytes(sent.readInt());
+        assertEquals(2, sent.readInt());
+        assertEquals(WireProtocol.EXECUTE, sent.readByte());
+        sent.skipNBytes(sent.readInt());
+
+        server.writePrepared(1, 1);
+        server.writeRow(9, new Object[]{"from a cursor closed early", 1L}); // Left over from an older request
+        server.writeColumns(2, new String[]{"name"});
+        server.writeError(9, 1, "also not ours");
+        server.writeRow(2, new Object[]{"Ayşe"});
+        server.writeRow(2, new Object[]{"Can"});
+        server.writeEndResult(2);
+        server.flush();
+
+        AtomicReference<Boolean> reusable = new AtomicReference<>();
+        ResultCursor cursor = new ResultCursor(conn, requestId, reusable::set);
+        assertArrayEquals(new String[]{"name"}, cursor.getColumns());
+        assertArrayEquals(new Object[]{"Ayşe"}, cursor.next());
+        assertArrayEquals(new Object[]{"Can"}, cursor.next());
+        assertFalse(cursor.hasNext());
+        assertFalse(cursor.isError());
+        assertTrue(reusable.get());
+
+        // The same statement again is only executed, and its reply follows on from the last one
+        requestId = conn.send("SELECT name FROM InternEvaluation WHERE studentID = ?", new Object[]{"2"});
+        assertEquals(3, requestId);
+        server.writeColumns(3, new String[]{"name"});
+        server.writeEndResult(3);
+        server.writeUpdateCount(4, 1);
+        server.flush();
+        assertEquals(0, conn.readResult(3).rowCount());
+        assertEquals(1, conn.readResult(4).getUpdateCount());
+    }
+
+    @Test
+    void errorPartWayThroughTheRowsEndsTheResult() throws IOException {
+        int requestId = conn.send("SELECT name FROM InternEvaluation", null);
+        server.writeColumns(requestId, new String[]{"name"});
+        server.writeRow(requestId, new Object[]{"Ayşe"});
+        server.writeError(requestId, 5, "database is locked");
+        server.flush();
+
+        QueryResult result = conn.readResult(requestId);
+        assertTrue(result.isError());
+        assertEquals("database is locked", result.getError());
+    }
+
+    @Test
+    void connectionClosedMidReplyIsNotReused() throws IOException {
+        int requestId = conn.send("SELECT name FROM InternEvaluation", null);
+        server.writeColumns(requestId, new String[]{"name"});
+        server.writeRow(requestId, new Object[]{"Ayşe"});
+        server.flush();
+        socket.toClient().close();
+
+        AtomicReference<Boolean> reusable = new AtomicReference<>();
+        ResultCursor cursor = new ResultCursor(conn, requestId, reusable::set);
+        assertThrows(UncheckedIOException.class, cursor::next);
+        assertFalse(reusable.get());
+    }
+}
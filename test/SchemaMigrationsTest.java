@@ -0,0 +1,82 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class SchemaMigrationsTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void versionTwoDatabaseWithMixedValuesIsMigrated() throws SQLException {
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + dir.resolve("v2.db"))) {
+            SchemaMigrations.migrate(conn, 2);
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("INSERT INTO InternshipAcceptance (studentID, dates) VALUES " +
+                        "('A1', '01.07.24-31.08.24'), ('A2', 'summer term'), ('A3', NULL)");
+                stmt.execute("INSERT INTO InternshipPlaceEvaluation (studentID, salary, transportation, meals, processScore, comments) VALUES " +
+                        "('P1', 'Yes', 'Çok/Very much', 'Hiç/Never', '9', 'Orta/Moderately'), " +
+                        "('P2', 'Sometimes', 'quite good', NULL, 'n/a', NULL)");
+            }
+
+            SchemaMigrations.migrate(conn);
+
+            try (Statement stmt = conn.createStatement()) {
+                try (ResultSet rs = stmt.executeQuery("SELECT MAX(version) FROM schema_version")) {
+                    rs.next();
+                    assertEquals(SchemaMigrations.latestVersion(), rs.getInt(1));
+                }
+
+                try (ResultSet rs = stmt.executeQuery("SELECT startDay, endDay, dates FROM InternshipAcceptance ORDER BY studentID")) {
+                    rs.next();
+                    assertEquals(StorageCodec.parseDateRange("01.07.24-31.08.24")[0], rs.getLong(1));
+                    assertEquals(StorageCodec.parseDateRange("01.07.24-31.08.24")[1], rs.getLong(2));
+                    assertNull(rs.getObject(3));
+                    rs.next();
+                    assertNull(rs.getObject(1));
+                    assertEquals("summer term", rs.getString(3));
+                    rs.next();
+                    assertNull(rs.getObject(1));
+                    assertNull(rs.getObject(3));
+                }
+
+                try (ResultSet rs = stmt.executeQuery("SELECT salary, transportation, meals, processScore, comments " +
+                        "FROM InternshipPlaceEvaluation ORDER BY studentID")) {
+                    rs.next();
+                    assertEquals(1, rs.getObject(1));
+                    assertEquals(3, rs.getObject(2));
+                    assertEquals(0, rs.getObject(3));
+                    assertEquals(9, rs.getObject(4));
+                    assertEquals("Orta/Moderately", rs.getObject(5)); // Free text is never coded
+                    rs.next();
+                    assertEquals("Sometimes", rs.getObject(1));
+                    assertEquals("quite good", rs.getObject(2));
+                    assertNull(rs.getObject(3));
+                    assertEquals("n/a", rs.getObject(4));
+                }
+            }
+        }
+    }
+
+    @Test
+    void migratingAgainChangesNothing() throws SQLException {
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + dir.resolve("latest.db"))) {
+            SchemaMigrations.migrate(conn);
+            SchemaMigrations.migrate(conn);
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT COUNT(*), MAX(version) FROM schema_version")) {
+                rs.next();
+                assertEquals(SchemaMigrations.latestVersion(), rs.getInt(1));
+                assertEquals(SchemaMigrations.latestVersion(), rs.getInt(2));
+            }
+        }
+    }
+}
@@ -0,0 +1,80 @@
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class StorageCodecTest {
+    private static final String PLACE = "InternshipPlaceEvaluation";
+    private static final String ACCEPTANCE = "InternshipAcceptance";
+
+    @Test
+    void likertAndSalaryLabelsRoundTrip() {
+        for (int code = 0; code < StorageCodec.LIKERT_LABELS.length; code++) {
+            assertRoundTrip("transportation", StorageCodec.LIKERT_LABELS[code], code);
+        }
+        for (int code = 0; code < StorageCodec.SALARY_LABELS.length; code++) {
+            assertRoundTrip("salary", StorageCodec.SALARY_LABELS[code], code);
+        }
+    }
+
+    @Test
+    void textThatIsNotALabelIsKeptAsText() {
+        String[] columns = {"studentID", "salary", "meals", "processScore", "comments"};
+        Object[] values = {"S1", "Sometimes", "Çok", "seven", "Çok/Very much"};
+
+        StorageCodec.Encoded encoded = StorageCodec.encode(PLACE, columns, values);
+        assertArrayEquals(values, encoded.values);
+
+        StorageCodec.Decoder decoder = StorageCodec.decoder(PLACE, encoded.columns);
+        assertArrayEquals(values, decoder.decode(encoded.values));
+    }
+
+    @Test
+    void scoresAreStoredAsIntegers() {
+        StorageCodec.Encoded encoded = StorageCodec.encode(PLACE, new String[]{"processScore"}, new Object[]{" 7 "});
+        assertArrayEquals(new Object[]{7}, encoded.values);
+    }
+
+    @Test
+    void datesRoundTripThroughDayNumbers() {
+        String[] columns = {"studentID", "dates"};
+        StorageCodec.Encoded encoded = StorageCodec.encode(ACCEPTANCE, columns, new Object[]{"S1", "01.07.24-31.08.24"});
+        assertArrayEquals(new String[]{"studentID", "startDay", "endDay", "dates"}, encoded.columns);
+        assertEquals(61L, (long) encoded.values[2] - (long) encoded.values[1]);
+        assertNull(encoded.values[3]);
+
+        StorageCodec.Decoder decoder = StorageCodec.decoder(ACCEPTANCE, encoded.columns);
+        assertArrayEquals(columns, decoder.columns());
+        assertArrayEquals(new Object[]{"S1", "01.07.24-31.08.24"}, decoder.decode(encoded.values));
+    }
+
+    @Test
+    void datesThatDoNotParseAreKeptAsText() {
+        StorageCodec.Encoded encoded = StorageCodec.encode(ACCEPTANCE, new String[]{"dates"}, new Object[]{"summer term"});
+        assertArrayEquals(new Object[]{null, null, "summer term"}, encoded.values);
+        assertArrayEquals(new Object[]{"summer term"}, StorageCodec.decoder(ACCEPTANCE, encoded.columns).decode(encoded.values));
+    }
+
+    @Test
+    void parseDateRangeRejectsBadInput() {
+        assertNull(StorageCodec.parseDateRange(""));
+        assertNull(StorageCodec.parseDateRange("01.07.24"));
+        assertNull(StorageCodec.parseDateRange("01.07.24-31.08.24-01.09.24"));
+        assertNull(StorageCodec.parseDateRange("01.07.24-"));
+        assertNull(StorageCodec.parseDateRange("July-August"));
+        assertNull(StorageCodec.parseDateRange("31.02.24-01.03.24"));
+        assertNull(StorageCodec.parseDateRange("01.13.24-01.14.24"));
+        assertNotNull(StorageCodec.parseDateRange(" 01.07.24 - 31.08.24 "));
+    }
+
+    private static void assertRoundTrip(String column, String label, int code) {
+        StorageCodec.Encoded encoded = StorageCodec.encode(PLACE, new String[]{column}, new Object[]{label});
+        assertArrayEquals(new Object[]{code}, encoded.values, column);
+        StorageCodec.Decoder decoder = StorageCodec.decoder(PLACE, encoded.columns);
+        // Codes come back as Longs on the binary protocol and as digit strings on the text protocol
+        assertArrayEquals(new Object[]{label}, decoder.decode(new Object[]{(long) code}), column);
+        assertArrayEquals(new Object[]{label}, decoder.decode(new Object[]{String.valueOf(code)}), column);
+    }
+}
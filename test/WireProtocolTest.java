@@ -0,0 +1,115 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WireProtocolTest {
+    @Test
+    void framesRoundTrip() throws IOException {
+        PipedInputStream in = new PipedInputStream(1 << 16);
+        PipedOutputStream out = new PipedOutputStream(in);
+        WireProtocol.FrameWriter writer = new WireProtocol.FrameWriter(out);
+        byte[] blob = {0, 1, (byte) 0xff};
+
+        writer.writeColumns(1, new String[]{"name", "öğrenci"});
+        writer.writeRow(1, new Object[]{null, 42, -7L, 2.5, "Çok/Very much", blob, ""});
+        writer.writeEndResult(1);
+        writer.writeUpdateCount(2, 3);
+        writer.writeError(3, 19, "UNIQUE constraint failed");
+        writer.writeChange(4, new RecordChange(99, "InternshipAcceptance", null, RecordChange.DELETE, 5));
+        writer.writeBatchEnd(5, true);
+        writer.flush();
+        out.close();
+
+        WireProtocol.FrameReader reader = new WireProtocol.FrameReader(in);
+        assertFrame(reader, 1, WireProtocol.COLUMNS);
+        assertArrayEquals(new String[]{"name", "öğrenci"}, reader.readColumns());
+
+        assertFrame(reader, 1, WireProtocol.ROW);
+        Object[] row = reader.readRow();
+        assertEquals(7, row.length);
+        assertNull(row[0]);
+        assertEquals(42L, row[1]); // Every integer comes back as a Long
+        assertEquals(-7L, row[2]);
+        assertEquals(2.5, row[3]);
+        assertEquals("Çok/Very much", row[4]);
+        assertArrayEquals(blob, (byte[]) row[5]);
+        assertEquals("", row[6]);
+
+        assertFrame(reader, 1, WireProtocol.END_RESULT);
+        assertEquals(0, reader.length());
+
+        assertFrame(reader, 2, WireProtocol.UPDATE_COUNT);
+        assertEquals(3, reader.in().readInt());
+
+        assertFrame(reader, 3, WireProtocol.ERROR);
+        assertEquals(19, reader.in().readInt());
+        assertEquals("UNIQUE constraint failed", WireProtocol.readString(reader.in()));
+
+        assertFrame(reader, 4, WireProtocol.CHANGE);
+        RecordChange change = reader.readChange();
+        assertEquals(99, change.id);
+        assertEquals("InternshipAcceptance", change.table);
+        assertEquals("", change.studentID);
+        assertEquals(RecordChange.DELETE, change.operation);
+        assertEquals(5, change.version);
+
+        assertFrame(reader, 5, WireProtocol.BATCH_END);
+        assertTrue(reader.in().readBoolean());
+
+        assertFalse(reader.next(), "the stream should end cleanly between frames");
+    }
+
+    @Test
+    void skippedPayloadLeavesTheReaderOnTheNextFrame() throws IOException {
+        PipedInputStream in = new PipedInputStream(1 << 16);
+        PipedOutputStream out = new PipedOutputStream(in);
+        WireProtocol.FrameWriter writer = new WireProtocol.FrameWriter(out);
+        writer.writeRow(7, new Object[]{"x".repeat(1000), 1, 2.0});
+        writer.writeUpdateCount(8, 1);
+        writer.flush();
+
+        WireProtocol.FrameReader reader = new WireProtocol.FrameReader(in);
+        assertFrame(reader, 7, WireProtocol.ROW);
+        reader.skipPayload();
+        assertFrame(reader, 8, WireProtocol.UPDATE_COUNT);
+        assertEquals(1, reader.in().readInt());
+    }
+
+    @Test
+    void terminalFrames() {
+        for (byte type : new byte[]{WireProtocol.END_RESULT, WireProtocol.UPDATE_COUNT, WireProtocol.ERROR,
+                WireProtocol.PREPARED, WireProtocol.BATCH_END, WireProtocol.CONFLICT}) {
+            assertTrue(WireProtocol.isTerminal(type), "type " + type);
+        }
+        for (byte type : new byte[]{WireProtocol.COLUMNS, WireProtocol.ROW, WireProtocol.TABLE,
+                WireProtocol.CHANGE, WireProtocol.SUBSCRIBED}) {
+            assertFalse(WireProtocol.isTerminal(type), "type " + type);
+        }
+    }
+
+    @Test
+    void readLineTakesNothingPastTheLine() throws IOException {
+        ByteArrayInputStream in = new ByteArrayInputStream("OK BINARY/1\r\nAyşe\n\u0000\u0000".getBytes(StandardCharsets.UTF_8));
+        assertEquals(WireProtocol.HANDSHAKE_ACK, WireProtocol.readLine(in));
+        assertEquals("Ayşe", WireProtocol.readLine(in));
+        assertEquals(2, in.available());
+        in.skip(2);
+        assertNull(WireProtocol.readLine(in));
+    }
+
+    private static void assertFrame(WireProtocol.FrameReader reader, int requestId, byte type) throws IOException {
+        assertTrue(reader.next(), "expected a frame of type " + type);
+        assertEquals(requestId, reader.requestId());
+        assertEquals(type, reader.type());
+    }
+}